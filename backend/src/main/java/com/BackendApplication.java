@@ -3,10 +3,7 @@ package com;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-import org.springframework.scheduling.annotation.EnableAsync;
-
 @SpringBootApplication
-@EnableAsync
 public class BackendApplication {
 
 	public static void main(String[] args) {
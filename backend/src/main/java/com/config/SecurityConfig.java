@@ -1,6 +1,7 @@
 package com.config;
 
 import java.util.List;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -97,6 +98,10 @@ public class SecurityConfig {
                                                 // Allow CORS preflight requests
                                                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
+                                                // Async dispatches (streamed downloads) were already
+                                                // authorized on the original request
+                                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                                                 // ---------------- PUBLIC ENDPOINTS ----------------
                                                 .requestMatchers(
                                                                 "/error",
@@ -205,7 +210,8 @@ public class SecurityConfig {
                                 List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
 
                 config.setAllowedHeaders(
-                                List.of("Authorization", "Content-Type", "Accept", "Origin", "X-Requested-With"));
+                                List.of("Authorization", "Content-Type", "Accept", "Origin", "X-Requested-With",
+                                                "Idempotency-Key"));
 
                 // Expose headers so frontend can read them
                 config.setExposedHeaders(
@@ -0,0 +1,267 @@
+package com.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WorkloadExecutors
+ * =================
+ *
+ * One bounded pool per kind of background work, so a burst of one kind (a
+ * bulk invoice job, a mass mailing) cannot take the threads another kind
+ * needs. Each pool is configured under {@code app.executors.<workload>}:
+ * {@code threads}, {@code queue-capacity}, {@code rejection}
+ * ({@code caller-runs}, {@code abort} or {@code discard}) and {@code virtual}.
+ *
+ * <p>
+ * Pools are started on first use and report to Micrometer with the tag
+ * {@code name=<workload>}: {@code executor.queued}, {@code executor.active},
+ * {@code executor.pool.size}, the {@code executor.idle} (time queued) and
+ * {@code executor} (run time) timers, and {@code executor.rejected}.
+ * </p>
+ *
+ * <p>
+ * {@code virtual=true} runs each task on its own virtual thread, meant for
+ * pools that mostly wait on I/O; {@code threads + queue-capacity} then caps
+ * the tasks in flight. Virtual threads need Java 21, so older JVMs log a
+ * warning and get the platform pool.
+ * </p>
+ */
+@Component
+@Slf4j
+public class WorkloadExecutors {
+
+    public enum Workload {
+        MAIL(2, 500, Rejection.CALLER_RUNS),
+        PDF(4, 64, Rejection.CALLER_RUNS),
+        ANALYTICS(4, 32, Rejection.CALLER_RUNS);
+
+        private final int threads;
+        private final int queueCapacity;
+        private final Rejection rejection;
+
+        Workload(int threads, int queueCapacity, Rejection rejection) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.rejection = rejection;
+        }
+
+        public String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    public enum Rejection {
+        // Run the task on the submitting thread, slowing the producer down
+        CALLER_RUNS,
+        // Throw RejectedExecutionException
+        ABORT,
+        // Drop the task silently (it is still counted)
+        DISCARD
+    }
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Workload, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    public ExecutorService get(Workload workload) {
+        return executors.computeIfAbsent(workload, this::create);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<ExecutorService> running = new ArrayList<>(executors.values());
+        running.forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (ExecutorService executor : running) {
+            try {
+                if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private ExecutorService create(Workload workload) {
+        String prefix = "app.executors." + workload.key() + ".";
+        int threads = Math.max(1, environment.getProperty(prefix + "threads", Integer.class, workload.threads));
+        int queueCapacity = Math.max(0,
+                environment.getProperty(prefix + "queue-capacity", Integer.class, workload.queueCapacity));
+        String rejectionName = environment.getProperty(prefix + "rejection", workload.rejection.name());
+        Rejection rejection = Rejection.valueOf(rejectionName.trim().toUpperCase().replace('-', '_'));
+        boolean virtual = environment.getProperty(prefix + "virtual", Boolean.class, false);
+
+        Counter rejected = Counter.builder("executor.rejected")
+                .tag("name", workload.key())
+                .description("Tasks refused because the pool and its queue were full")
+                .register(meterRegistry);
+
+        ExecutorService executor = virtual
+                ? virtualThreads(workload, threads + queueCapacity, rejection, rejected)
+                : null;
+        if (executor == null) {
+            BlockingQueue<Runnable> queue = queueCapacity > 0
+                    ? new LinkedBlockingQueue<>(queueCapacity)
+                    : new SynchronousQueue<>();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue,
+                    namedThreads(workload.key() + "-worker-"), countingHandler(rejection, rejected));
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        log.info("Started {} executor: threads={}, queue={}, rejection={}, virtual={}", workload.key(), threads,
+                queueCapacity, rejection, executor instanceof BoundedExecutor);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, workload.key());
+    }
+
+    private ExecutorService virtualThreads(Workload workload, int maxInFlight, Rejection rejection,
+            Counter rejected) {
+        ExecutorService perTask;
+        try {
+            // Reflective so the code still compiles and runs on Java 17
+            perTask = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads need Java 21+ (running {}); {} executor uses platform threads",
+                    Runtime.version(), workload.key());
+            return null;
+        }
+        BoundedExecutor bounded = new BoundedExecutor(perTask, maxInFlight, rejection, rejected);
+        Gauge.builder("executor.active", bounded, BoundedExecutor::inFlight)
+                .tag("name", workload.key())
+                .description("Tasks running on virtual threads")
+                .register(meterRegistry);
+        return bounded;
+    }
+
+    private static RejectedExecutionHandler countingHandler(Rejection rejection, Counter rejected) {
+        RejectedExecutionHandler policy = switch (rejection) {
+            case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+            case ABORT -> new ThreadPoolExecutor.AbortPolicy();
+            case DISCARD -> new ThreadPoolExecutor.DiscardPolicy();
+        };
+        return (task, pool) -> {
+            rejected.increment();
+            policy.rejectedExecution(task, pool);
+        };
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Thread-per-task executor with a cap on tasks in flight; over the cap
+     * the rejection policy applies, as it would for a full pool queue.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final int maxInFlight;
+        private final Semaphore permits;
+        private final Rejection rejection;
+        private final Counter rejected;
+
+        BoundedExecutor(ExecutorService delegate, int maxInFlight, Rejection rejection, Counter rejected) {
+            this.delegate = delegate;
+            this.maxInFlight = maxInFlight;
+            this.permits = new Semaphore(maxInFlight);
+            this.rejection = rejection;
+            this.rejected = rejected;
+        }
+
+        int inFlight() {
+            return maxInFlight - permits.availablePermits();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                rejected.increment();
+                switch (rejection) {
+                    case CALLER_RUNS -> {
+                        if (!delegate.isShutdown()) {
+                            task.run();
+                        }
+                    }
+                    case ABORT -> throw new RejectedExecutionException("Executor is at " + maxInFlight + " tasks");
+                    case DISCARD -> {
+                    }
+                }
+                return;
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.controller;
 
 import com.dto.PaymentDTO;
+import com.dto.PaymentStatusDTO;
 import com.entity.Payment;
+import com.entity.PaymentStatus;
+import com.exception.IdempotencyConflictException;
+import com.service.IdempotencyService;
 import com.service.PaymentService;
+import com.service.PaymentStatusNotifier;
 import com.service.QRCodeService;
+import com.service.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PaymentController
@@ -31,6 +43,15 @@ public class PaymentController {
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private PaymentStatusNotifier paymentStatusNotifier;
+
+    @Value("${app.payments.status.sse-timeout-ms:600000}")
+    private long sseTimeoutMs;
+
     /**
      * Initiate payment for an order
      * 
@@ -61,27 +82,36 @@ public class PaymentController {
     }
 
     /**
-     * Get QR code image for payment
+     * Get QR code image for payment (PNG by default, or SVG). The image never
+     * changes for a payment, so clients may cache it.
      * 
-     * GET /api/payments/{paymentId}/qr-code
+     * GET /api/payments/{paymentId}/qr-code?format=svg&size=300
      */
     @GetMapping("/{paymentId}/qr-code")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<byte[]> getQRCode(@PathVariable Long paymentId) {
+    public ResponseEntity<byte[]> getQRCode(@PathVariable Long paymentId,
+            @RequestParam(defaultValue = "png") String format,
+            @RequestParam(defaultValue = "300") int size) {
         try {
-            Payment payment = paymentService.getPaymentById(paymentId);
-            String upiString = payment.getStripePaymentIntentId();
+            String upiString = paymentService.getQrPayload(paymentId);
 
             if (upiString == null || upiString.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            byte[] qrCodeImage = qrCodeService.generateQRCodeImage(upiString, 300, 300);
+            QRCodeService.Format imageFormat = QRCodeService.Format.valueOf(format.toUpperCase());
+            int pixels = Math.min(Math.max(size, 100), 1000);
+            byte[] qrCodeImage = qrCodeService.render(upiString, pixels, imageFormat);
 
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.IMAGE_PNG);
+            headers.setContentType(imageFormat == QRCodeService.Format.SVG
+                    ? MediaType.parseMediaType("image/svg+xml")
+                    : MediaType.IMAGE_PNG);
+            headers.setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate());
 
             return new ResponseEntity<>(qrCodeImage, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -93,22 +123,35 @@ public class PaymentController {
      * 
      * POST /api/payments/verify
      * Body: { "paymentId": 123, "transactionId": "TXN123456" }
+     * Header (optional): Idempotency-Key
      */
     @PostMapping("/verify")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Map<String, String>> verifyPayment(@RequestBody Map<String, String> request) {
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, String>> verifyPayment(@RequestBody Map<String, String> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
         try {
-            Long paymentId = Long.parseLong(request.get("paymentId"));
-            String transactionId = request.get("transactionId");
+            Map<String, String> response = idempotencyService.execute(idempotencyKey, currentUser.getId(),
+                    "payment-verify", request, HashMap.class, () -> {
+                        Long paymentId = Long.parseLong(request.get("paymentId"));
+                        String transactionId = request.get("transactionId");
 
-            Payment payment = paymentService.verifyPayment(paymentId, transactionId);
+                        Payment payment = paymentService.verifyPayment(paymentId, transactionId);
 
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Payment verified successfully");
-            response.put("paymentStatus", payment.getStatus().toString());
+                        HashMap<String, String> body = new HashMap<>();
+                        body.put("status", "success");
+                        body.put("message", "Payment verified successfully");
+                        body.put("paymentStatus", payment.getStatus().toString());
+                        return body;
+                    });
 
             return ResponseEntity.ok(response);
+        } catch (IdempotencyConflictException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("status", "error");
@@ -142,4 +185,37 @@ public class PaymentController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
     }
+
+    /**
+     * Long-poll for a payment status change: answers as soon as the status is
+     * no longer {@code since}, or with the unchanged status after waitSeconds
+     * (max 60). Replaces polling /order/{orderId} every second.
+     *
+     * GET /api/payments/order/{orderId}/status?since=PENDING&waitSeconds=30
+     */
+    @GetMapping("/order/{orderId}/status")
+    @PreAuthorize("hasRole('USER')")
+    public DeferredResult<ResponseEntity<PaymentStatusDTO>> awaitPaymentStatus(@PathVariable Long orderId,
+            @RequestParam(defaultValue = "PENDING") PaymentStatus since,
+            @RequestParam(defaultValue = "30") int waitSeconds,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        long timeoutMs = Math.min(Math.max(waitSeconds, 1), 60) * 1000L;
+        DeferredResult<ResponseEntity<PaymentStatusDTO>> result = new DeferredResult<>(timeoutMs);
+        paymentStatusNotifier.awaitChange(orderId, currentUser.getId(), since, result);
+        return result;
+    }
+
+    /**
+     * Server-sent events: a "status" event with the current status, then one
+     * per change. The stream ends once the payment is COMPLETED, FAILED or
+     * REFUNDED.
+     *
+     * GET /api/payments/order/{orderId}/events
+     */
+    @GetMapping(value = "/order/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public SseEmitter streamPaymentStatus(@PathVariable Long orderId,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return paymentStatusNotifier.subscribe(orderId, currentUser.getId(), sseTimeoutMs);
+    }
 }
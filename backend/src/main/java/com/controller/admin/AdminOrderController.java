@@ -1,14 +1,26 @@
 package com.controller.admin;
 
 import com.dto.AdminOrderDTO;
+import com.dto.BulkOrderStatusResultDTO;
 import com.entity.Order;
 import com.entity.OrderStatus;
+import com.payload.request.BulkOrderStatusRequest;
+import com.payload.request.OrderExportFilter;
+import com.service.BulkOrderStatusService;
 import com.service.InvoiceService;
+import com.service.OrderExportService;
 import com.service.OrderService;
+import com.service.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -23,6 +35,12 @@ public class AdminOrderController {
     @Autowired
     private InvoiceService invoiceService;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private BulkOrderStatusService bulkOrderStatusService;
+
     @PostMapping("/{orderId}/resend-invoice")
     public ResponseEntity<?> resendInvoice(@PathVariable Long orderId) {
         invoiceService.sendInvoiceEmail(orderId);
@@ -34,11 +52,57 @@ public class AdminOrderController {
         return ResponseEntity.ok(orderService.getAllOrdersDTO());
     }
 
+    /**
+     * Archived orders, newest first (the /all list covers live orders only).
+     *
+     * GET /api/admin/orders/archived?page=0&size=50
+     */
+    @GetMapping("/archived")
+    public ResponseEntity<Page<AdminOrderDTO>> getArchivedOrders(Pageable pageable) {
+        return ResponseEntity.ok(orderService.getArchivedOrdersPage(pageable));
+    }
+
+    /**
+     * Stream orders (optionally with items) as CSV or NDJSON.
+     * Moderators are always limited to orders containing their products.
+     *
+     * GET /api/admin/orders/export?format=CSV&from=2026-01-01&to=2026-01-31&status=DELIVERED&includeItems=true&gzip=true
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@ModelAttribute OrderExportFilter filter,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        orderExportService.applyScope(filter, currentUser);
+
+        MediaType contentType = filter.isGzip() ? MediaType.parseMediaType("application/gzip")
+                : filter.getFormat() == OrderExportFilter.Format.NDJSON ? MediaType.parseMediaType("application/x-ndjson")
+                        : MediaType.parseMediaType("text/csv");
+
+        StreamingResponseBody body = out -> orderExportService.export(filter, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=" + orderExportService.fileName(filter))
+                .body(body);
+    }
+
     @PutMapping("/{orderId}/status")
     public ResponseEntity<Order> updateStatus(@PathVariable Long orderId, @RequestParam OrderStatus status) {
         return ResponseEntity.ok(orderService.updateOrderStatus(orderId, status));
     }
 
+    /**
+     * Move many orders to one status (optionally with a new location) in a
+     * single request. Orders whose current status does not allow the
+     * transition are returned under "rejected" with the reason.
+     *
+     * POST /api/admin/orders/bulk-status
+     * { "orderIds": [101, 102], "status": "SHIPPED", "location": "Mumbai Hub" }
+     */
+    @PostMapping("/bulk-status")
+    public ResponseEntity<BulkOrderStatusResultDTO> bulkUpdateStatus(@RequestBody BulkOrderStatusRequest request) {
+        return ResponseEntity.ok(bulkOrderStatusService.updateStatus(request));
+    }
+
     @PutMapping("/{orderId}/tracking")
     public ResponseEntity<Order> updateTracking(
             @PathVariable Long orderId,
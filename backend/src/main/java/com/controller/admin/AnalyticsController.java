@@ -1,14 +1,23 @@
 package com.controller.admin;
 
+import com.dto.SalesRollupDTO;
+import com.entity.SalesRollup;
 import com.payload.response.DashboardResponse;
 import com.service.AnalyticsService;
+import com.service.OrderRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/admin/analytics")
 public class AnalyticsController {
@@ -16,9 +25,41 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private OrderRollupService orderRollupService;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<DashboardResponse> getDashboardStats() {
         return ResponseEntity.ok(analyticsService.getDashboardStats());
     }
+
+    /**
+     * GET /api/admin/analytics/sales?scope=CATEGORY&key=MEN&from=2026-01-01T00:00&to=2026-02-01T00:00&granularity=DAY
+     */
+    @GetMapping("/sales")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SalesRollupDTO>> getSales(
+            @RequestParam(defaultValue = "ALL") SalesRollup.Scope scope,
+            @RequestParam(required = false) String key,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "DAY") OrderRollupService.Granularity granularity) {
+        if (scope != SalesRollup.Scope.ALL && (key == null || key.isBlank())) {
+            throw new RuntimeException("A key is required for scope " + scope);
+        }
+        return ResponseEntity.ok(orderRollupService.query(scope, key, from, to, granularity));
+    }
+
+    /**
+     * Totals per category or moderator over a range, highest net first.
+     */
+    @GetMapping("/sales/breakdown")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, SalesRollupDTO>> getSalesBreakdown(
+            @RequestParam SalesRollup.Scope scope,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(orderRollupService.breakdown(scope, from, to));
+    }
 }
@@ -0,0 +1,98 @@
+package com.controller.admin;
+
+import com.dto.BulkInvoiceJobDTO;
+import com.payload.request.OrderExportFilter;
+import com.service.BulkInvoiceService;
+import com.service.OrderExportService;
+import com.service.UserDetailsImpl;
+import com.util.FileTransferUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Path;
+
+/**
+ * BulkInvoiceController
+ * =====================
+ *
+ * Invoices of many orders at once as a ZIP, for month-end and GST filing.
+ * Accepts the same filters as the order export (from, to, status,
+ * moderatorId); moderators are limited to their own orders.
+ */
+@RestController
+@RequestMapping("/api/admin/invoices")
+@PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR')")
+public class BulkInvoiceController {
+
+    private static final MediaType ZIP = MediaType.parseMediaType("application/zip");
+
+    @Autowired
+    private BulkInvoiceService bulkInvoiceService;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    /**
+     * Start a background job; poll its status, then download the archive.
+     *
+     * POST /api/admin/invoices/bulk?from=2026-01-01&to=2026-01-31&status=DELIVERED
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkInvoiceJobDTO> startBulkJob(@ModelAttribute OrderExportFilter filter,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        orderExportService.applyScope(filter, currentUser);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkInvoiceService.submit(filter, currentUser.getId()));
+    }
+
+    /**
+     * GET /api/admin/invoices/bulk/{jobId}
+     */
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<BulkInvoiceJobDTO> getBulkJob(@PathVariable String jobId,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return ResponseEntity.ok(bulkInvoiceService.getJob(jobId, currentUser.getId(), isAdmin(currentUser)));
+    }
+
+    /**
+     * GET /api/admin/invoices/bulk/{jobId}/download
+     */
+    @GetMapping("/bulk/{jobId}/download")
+    public ResponseEntity<Resource> downloadBulkJob(@PathVariable String jobId,
+            @AuthenticationPrincipal UserDetailsImpl currentUser, HttpServletRequest request) {
+        Path zip = bulkInvoiceService.getZip(jobId, currentUser.getId(), isAdmin(currentUser));
+        return FileTransferUtil.serve(request, zip, zip.toFile().length(), jobId, ZIP, "invoices-" + jobId + ".zip");
+    }
+
+    /**
+     * Stream the ZIP directly into the response while the invoices are
+     * rendered, without a job or a file on disk. The filter and free slots are
+     * checked before the headers go out, so errors still get a 400 or 503.
+     *
+     * GET /api/admin/invoices/bulk/stream?from=2026-01-01&to=2026-01-31
+     */
+    @GetMapping("/bulk/stream")
+    public ResponseEntity<StreamingResponseBody> streamBulk(@ModelAttribute OrderExportFilter filter,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        orderExportService.applyScope(filter, currentUser);
+        BulkInvoiceService.ZipWriter zip = bulkInvoiceService.prepareStream(filter);
+        StreamingResponseBody body = zip::writeTo;
+        return ResponseEntity.ok()
+                .contentType(ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoices.zip")
+                .body(body);
+    }
+
+    private static boolean isAdmin(UserDetailsImpl user) {
+        return user.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || a.getAuthority().equals("ROLE_SUPER_ADMIN"));
+    }
+}
@@ -1,14 +1,19 @@
 package com.controller.admin;
 
-// import com.entity.Order;
-// import com.repository.OrderRepository;
+import com.exception.ServiceBusyException;
+import com.repository.OrderRepository;
 import com.service.InvoiceService;
+import com.service.OrderArchiveService;
+import com.service.UserDetailsImpl;
+import com.util.FileTransferUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -27,33 +32,50 @@ public class InvoiceController {
     @Autowired
     private InvoiceService invoiceService;
 
-    // @Autowired
-    // private OrderRepository orderRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
 
     /**
-     * Download invoice PDF (User access)
+     * Download invoice PDF (User access). Served from the stored copy with an
+     * ETag; a matching If-None-Match gets 304. The invoice is rendered into
+     * the store first when it is missing or out of date (capped by
+     * app.invoices.render.max-concurrent; over the cap this answers 503).
      * 
      * GET /api/invoices/{orderId}
+     * GET /api/invoices/{orderId}/stream (kept for older clients)
      */
-    @GetMapping("/{orderId}")
+    @GetMapping({ "/{orderId}", "/{orderId}/stream" })
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
-    public ResponseEntity<byte[]> downloadInvoice(@PathVariable Long orderId) {
+    public ResponseEntity<Resource> downloadInvoice(@PathVariable Long orderId, HttpServletRequest request,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        if (!canAccess(orderId, currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
-            // Order order = orderRepository.findById(orderId)
-            // .orElseThrow(() -> new RuntimeException("Order not found"));
-
-            byte[] invoicePdf = invoiceService.generateInvoice(orderId);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "SnapCart_Invoice_" + orderId + ".pdf");
-
-            return new ResponseEntity<>(invoicePdf, headers, HttpStatus.OK);
+            InvoiceService.InvoiceArtifact invoice = invoiceService.getInvoice(orderId);
+            return FileTransferUtil.serve(request, invoice.path(), invoice.size(), invoice.fingerprint(),
+                    MediaType.APPLICATION_PDF, "SnapCart_Invoice_" + orderId + ".pdf");
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Users may only fetch invoices of their own orders; staff may fetch any.
+     */
+    private boolean canAccess(Long orderId, UserDetailsImpl currentUser) {
+        boolean isStaff = currentUser.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || a.getAuthority().equals("ROLE_MODERATOR")
+                        || a.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        return isStaff || orderRepository.existsByIdAndUserId(orderId, currentUser.getId())
+                || orderArchiveService.isOwnedBy(orderId, currentUser.getId());
+    }
+
     /**
      * Resend invoice email (SUPER_ADMIN only)
      * 
@@ -1,19 +1,35 @@
 package com.controller.moderator;
 
 import com.dto.AdminOrderDTO;
+import com.dto.OrderStatusNotificationDTO;
+import com.dto.SalesRollupDTO;
 import com.entity.Order;
 import com.entity.OrderStatus;
+import com.entity.SalesRollup;
 import com.mapper.OrderMapper;
+import com.repository.ModeratorRepository;
 import com.repository.OrderRepository;
-import com.service.EmailService;
+import com.service.ModeratorOrderIndexService;
+import com.service.OrderArchiveService;
+import com.service.OrderNotificationCoalescer;
+import com.service.OrderHistoryService;
+import com.service.OrderRollupService;
+import com.service.OrderService;
+import com.service.TrendingService;
+import com.service.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,17 +47,84 @@ public class ModeratorOrderController {
     private OrderRepository orderRepository;
 
     @Autowired
-    private EmailService emailService;
+    private OrderNotificationCoalescer orderNotificationCoalescer;
+
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private ModeratorOrderIndexService moderatorOrderIndexService;
+
+    @Autowired
+    private ModeratorRepository moderatorRepository;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TrendingService trendingService;
 
     /**
-     * Get all customer orders
+     * Get customer orders, newest first.
+     * 
+     * Moderators see only orders containing their products (served from the
+     * moderator_order index); admins see every order.
      * 
-     * GET /api/moderators/orders
+     * GET /api/moderators/orders?status=SHIPPED&page=0&size=20
      */
     @GetMapping
-    public ResponseEntity<Page<AdminOrderDTO>> getAllOrders(Pageable pageable) {
-        Page<Order> orders = orderRepository.findAll(pageable);
-        return ResponseEntity.ok(orders.map(OrderMapper::toAdminDTO));
+    public ResponseEntity<Page<AdminOrderDTO>> getAllOrders(Pageable pageable,
+            @RequestParam(required = false) OrderStatus status,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return ResponseEntity.ok(orderService.getAdminOrdersPage(resolveModeratorId(currentUser), status, pageable));
+    }
+
+    /**
+     * Order counts by status (plus TOTAL) for the current moderator, or for the
+     * whole platform when called by an admin.
+     * 
+     * GET /api/moderators/orders/counts
+     */
+    @GetMapping("/counts")
+    public ResponseEntity<Map<String, Long>> getOrderCounts(@AuthenticationPrincipal UserDetailsImpl currentUser) {
+        Long moderatorId = resolveModeratorId(currentUser);
+        if (moderatorId != null) {
+            return ResponseEntity.ok(moderatorOrderIndexService.countByStatus(moderatorId));
+        }
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long total = 0;
+        for (Object[] row : orderRepository.getStatusDistribution()) {
+            long count = ((Number) row[1]).longValue();
+            counts.put(row[0].toString(), count);
+            total += count;
+        }
+        counts.put("TOTAL", total);
+        return ResponseEntity.ok(counts);
+    }
+
+    /**
+     * Sales of the moderator's products per hour, day or month (the whole
+     * platform for admins).
+     * 
+     * GET /api/moderators/orders/sales?from=2026-01-01T00:00&to=2026-02-01T00:00&granularity=DAY
+     */
+    @GetMapping("/sales")
+    public ResponseEntity<List<SalesRollupDTO>> getSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "DAY") OrderRollupService.Granularity granularity,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        Long moderatorId = resolveModeratorId(currentUser);
+        return ResponseEntity.ok(moderatorId != null
+                ? orderRollupService.query(SalesRollup.Scope.MODERATOR, moderatorId.toString(), from, to, granularity)
+                : orderRollupService.query(SalesRollup.Scope.ALL, null, from, to, granularity));
     }
 
     /**
@@ -51,8 +134,11 @@ public class ModeratorOrderController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<AdminOrderDTO> getOrder(@PathVariable Long id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        Order order = orderRepository.findById(id).orElse(null);
+        if (order == null) {
+            return ResponseEntity.ok(orderArchiveService.findOrder(id).map(OrderMapper::toAdminDTO)
+                    .orElseThrow(() -> new RuntimeException("Order not found")));
+        }
 
         return ResponseEntity.ok(OrderMapper.toAdminDTO(order));
     }
@@ -74,20 +160,22 @@ public class ModeratorOrderController {
 
             String statusStr = request.get("status");
             OrderStatus newStatus = OrderStatus.valueOf(statusStr);
+            if (newStatus == OrderStatus.CANCELLED && order.getStatus() != OrderStatus.CANCELLED) {
+                trendingService.recordCancellation(List.of(order.getId()));
+            }
 
             order.setStatus(newStatus);
             orderRepository.save(order);
+            moderatorOrderIndexService.updateStatus(order.getId(), newStatus);
+            orderHistoryService.evict(order.getUser().getId());
 
-            // Send status update email
-            try {
-                emailService.sendOrderStatusUpdate(
-                        order.getUser().getEmail(),
-                        order.getId().toString(),
-                        newStatus.toString(),
-                        order.getUser().getName());
-            } catch (Exception e) {
-                System.err.println("Failed to send status update email: " + e.getMessage());
-            }
+            // Send status update email (coalesced with further updates of this order)
+            orderNotificationCoalescer.publishAfterCommit(new OrderStatusNotificationDTO(
+                    order.getUser().getEmail(),
+                    order.getUser().getName(),
+                    order.getId().toString(),
+                    newStatus.toString(),
+                    null));
 
             Map<String, String> response = new HashMap<>();
             response.put("status", "success");
@@ -120,4 +208,18 @@ public class ModeratorOrderController {
 
         return ResponseEntity.ok(paymentDetails);
     }
+
+    /**
+     * Moderator record of the caller, or null for admins (unscoped access).
+     */
+    private Long resolveModeratorId(UserDetailsImpl currentUser) {
+        boolean isAdmin = currentUser.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || a.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        if (isAdmin) {
+            return null;
+        }
+        return moderatorRepository.findByUserId(currentUser.getId())
+                .orElseThrow(() -> new RuntimeException("Moderator profile not found"))
+                .getId();
+    }
 }
@@ -44,6 +44,12 @@ public class ProductController {
     @Autowired
     private ModeratorRepository moderatorRepository;
 
+    @Autowired
+    private com.service.StockReservationService stockReservationService;
+
+    @Autowired
+    private com.service.TrendingService trendingService;
+
     @GetMapping
     @PreAuthorize("permitAll()")
     public ResponseEntity<org.springframework.data.domain.Page<ProductResponse>> getAllProducts(
@@ -54,6 +60,45 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts(pageable).map(productMapper::toResponse));
     }
 
+    /**
+     * Available-to-sell stock per variant (served from memory, refreshed every
+     * few seconds), plus the units held by orders awaiting payment.
+     *
+     * GET /api/products/availability?variantIds=1,2,3
+     */
+    @GetMapping("/availability")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<java.util.Collection<com.dto.StockAvailabilityDTO>> getAvailability(
+            @RequestParam List<Long> variantIds) {
+        if (variantIds.size() > 200) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(stockReservationService.getAvailability(variantIds).values());
+    }
+
+    /**
+     * Top products over a sliding window (1h, 24h or 7d), optionally within
+     * one category. ranking=trending weighs views, cart adds and orders;
+     * ranking=best-selling counts ordered units only.
+     *
+     * GET /api/products/trending?window=24h&category=MEN&ranking=trending&limit=10
+     */
+    @GetMapping("/trending")
+    @PreAuthorize("permitAll()")
+    public List<ProductResponse> getTrendingProducts(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "trending") String ranking,
+            @RequestParam(defaultValue = "10") int limit) {
+        com.entity.Category categoryFilter = category != null && !category.isBlank()
+                ? com.entity.Category.valueOf(category.trim().toUpperCase())
+                : null;
+        com.service.TrendingService.Ranking rankingType = com.service.TrendingService.Ranking
+                .valueOf(ranking.trim().toUpperCase().replace('-', '_'));
+        return trendingService.topProducts(com.service.TrendingService.Window.of(window.trim()), categoryFilter,
+                rankingType, limit).stream().map(productMapper::toResponse).toList();
+    }
+
     @GetMapping("/category/{category}/{subCategory}")
     @PreAuthorize("permitAll()")
     public List<ProductResponse> getProductsByCategoryAndSubCategory(
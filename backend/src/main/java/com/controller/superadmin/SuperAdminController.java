@@ -1,15 +1,31 @@
 package com.controller.superadmin;
 
 import com.entity.AuditLog;
+import com.entity.ModeratorSettlement;
+import com.entity.ReconciliationMismatch;
+import com.entity.ReconciliationRun;
 import com.entity.Role;
 import com.entity.User;
 import com.payload.response.UserResponse;
 import com.service.AuditLogService;
+import com.service.ModeratorPayoutService;
+import com.service.OrderArchiveService;
+import com.service.OrderRollupService;
+import com.service.ReconciliationService;
 import com.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,6 +41,18 @@ public class SuperAdminController {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private ModeratorPayoutService moderatorPayoutService;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
     // ==================== USER & ROLE MANAGEMENT ====================
 
     @GetMapping("/admins")
@@ -89,4 +117,109 @@ public class SuperAdminController {
                 .gender(user.getGender())
                 .build();
     }
+
+    // ==================== DATA RETENTION ====================
+
+    /**
+     * Run order archival now instead of waiting for the nightly schedule.
+     */
+    @PostMapping("/archive/orders")
+    public ResponseEntity<?> archiveOrders() {
+        if (!orderArchiveService.isEnabled()) {
+            return ResponseEntity.badRequest().body("Order archival is disabled (app.archive.enabled=false)");
+        }
+        long moved = orderArchiveService.archiveClosedOrders();
+        if (moved < 0) {
+            return ResponseEntity.status(409).body("An archive run is already in progress");
+        }
+        return ResponseEntity.ok(Map.of("archivedOrders", moved));
+    }
+
+    // ==================== MODERATOR PAYOUTS ====================
+
+    /**
+     * Settle a day's moderator earnings now (default: yesterday). Re-running a
+     * day resumes an interrupted run; a completed day is not paid twice.
+     */
+    @PostMapping("/payouts/run")
+    public ResponseEntity<?> runPayouts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        Map<String, Object> summary = moderatorPayoutService.settleDay(date != null ? date : LocalDate.now().minusDays(1));
+        if (summary == null) {
+            return ResponseEntity.status(409).body("A payout run is already in progress");
+        }
+        return ResponseEntity.ok(summary);
+    }
+
+    @GetMapping("/payouts")
+    public ResponseEntity<List<ModeratorSettlement>> getPayouts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(moderatorPayoutService.getSettlements(date));
+    }
+
+    /**
+     * GET /api/super-admin/payouts/2026-01-31/file
+     */
+    @GetMapping("/payouts/{date}/file")
+    public ResponseEntity<Resource> downloadPayoutFile(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        Path file = moderatorPayoutService.getPayoutFile(date);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + file.getFileName())
+                .body(new FileSystemResource(file));
+    }
+
+    // ==================== SALES ROLLUPS ====================
+
+    /**
+     * Run (or resume) the sales rollup backfill; {@code restart} re-checks
+     * every order after a completed run.
+     */
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<?> runRollupBackfill(@RequestParam(defaultValue = "false") boolean restart) {
+        Map<String, Object> summary = orderRollupService.runBackfill(restart);
+        if (summary == null) {
+            return ResponseEntity.status(409).body("A rollup backfill is already in progress");
+        }
+        return ResponseEntity.ok(summary);
+    }
+
+    @GetMapping("/rollups/backfill")
+    public ResponseEntity<Map<String, Object>> getRollupBackfill() {
+        return ResponseEntity.ok(orderRollupService.getBackfillStatus());
+    }
+
+    // ==================== RECONCILIATION ====================
+
+    /**
+     * Reconcile the payments completed since the last run now.
+     */
+    @PostMapping("/reconciliation/run")
+    public ResponseEntity<?> runReconciliation() {
+        ReconciliationRun run = reconciliationService.reconcile();
+        if (run == null) {
+            return ResponseEntity.status(409).body("A reconciliation run is in progress or there is nothing new");
+        }
+        return ResponseEntity.ok(run);
+    }
+
+    @GetMapping("/reconciliation/runs")
+    public ResponseEntity<List<ReconciliationRun>> getReconciliationRuns() {
+        return ResponseEntity.ok(reconciliationService.getRecentRuns());
+    }
+
+    @GetMapping("/reconciliation/runs/{runId}")
+    public ResponseEntity<Map<String, Object>> getReconciliationReport(@PathVariable Long runId) {
+        return ResponseEntity.ok(reconciliationService.getReport(runId));
+    }
+
+    @GetMapping("/reconciliation/runs/{runId}/mismatches")
+    public ResponseEntity<Page<ReconciliationMismatch>> getReconciliationMismatches(@PathVariable Long runId,
+            Pageable pageable) {
+        return ResponseEntity.ok(reconciliationService.getMismatches(runId, pageable));
+    }
 }
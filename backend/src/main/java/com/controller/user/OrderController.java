@@ -5,15 +5,28 @@ import com.entity.Order;
 import com.entity.OrderStatus;
 import com.entity.User;
 import com.repository.UserRepository;
+import com.dto.OrderIntakeStatusDTO;
+import com.service.IdempotencyService;
+import com.service.InvoiceService;
+import com.service.OrderIntakeService;
 import com.service.OrderService;
 import com.service.UserDetailsImpl;
+import com.util.FileTransferUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Objects;
 
@@ -28,14 +41,83 @@ public class OrderController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Place an order from the current cart.
+     *
+     * Clients may send an Idempotency-Key header; retries with the same key
+     * return the original order instead of placing a second one.
+     */
     @PostMapping("/place")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<OrderResponseDTO> placeOrder(@RequestBody com.payload.request.OrderRequest request) {
+    public ResponseEntity<OrderResponseDTO> placeOrder(@RequestBody com.payload.request.OrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         User user = getCurrentUser();
-        OrderResponseDTO orderResponse = orderService.placeOrder(user, request);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        OrderResponseDTO orderResponse = idempotencyService.execute(idempotencyKey, user.getId(), "order-place",
+                request, OrderResponseDTO.class, () -> orderService.placeOrder(user, request));
+        sample.stop(meterRegistry.timer(OrderIntakeService.PLACEMENT_TIMER, "mode", "sync"));
         return ResponseEntity.ok(orderResponse);
     }
 
+    /**
+     * Queue a checkout of the current cart (flash-sale mode, enabled with
+     * app.orders.intake.enabled). Answers 202 with a ticket; the outcome is
+     * read from GET /api/orders/intake/{ticketId}. Returns 503 when the queue
+     * is full.
+     */
+    @PostMapping("/intake")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<OrderIntakeStatusDTO> submitOrder(@RequestBody com.payload.request.OrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (!orderIntakeService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        User user = getCurrentUser();
+        OrderIntakeStatusDTO ticket = orderIntakeService.submit(user, request, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/intake/" + ticket.getTicketId()))
+                .body(ticket);
+    }
+
+    /**
+     * Outcome of a queued checkout. With waitSeconds > 0 the request is held
+     * (up to 30s) until the order is placed or rejected.
+     *
+     * GET /api/orders/intake/{ticketId}?waitSeconds=10
+     */
+    @GetMapping("/intake/{ticketId}")
+    @PreAuthorize("hasRole('USER')")
+    public DeferredResult<ResponseEntity<OrderIntakeStatusDTO>> getIntakeStatus(@PathVariable String ticketId,
+            @RequestParam(defaultValue = "0") int waitSeconds,
+            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+        long timeoutMs = Math.min(Math.max(waitSeconds, 0), 30) * 1000L;
+        Long userId = currentUser.getId();
+        DeferredResult<ResponseEntity<OrderIntakeStatusDTO>> result = new DeferredResult<>(
+                timeoutMs > 0 ? timeoutMs : null);
+
+        if (timeoutMs == 0) {
+            result.setResult(orderIntakeService.getStatus(ticketId, userId).map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build()));
+            return result;
+        }
+
+        result.onTimeout(() -> result.setResult(orderIntakeService.getStatus(ticketId, userId)
+                .map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build())));
+        orderIntakeService.awaitStatus(ticketId, userId).ifPresentOrElse(
+                future -> future.thenAccept(status -> result.setResult(ResponseEntity.ok(status))),
+                () -> result.setResult(ResponseEntity.notFound().build()));
+        return result;
+    }
+
     @GetMapping("/my-orders")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<List<OrderResponseDTO>> getMyOrders() {
@@ -43,6 +125,21 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getUserOrdersDTO(user));
     }
 
+    /**
+     * Paged order history (newest first). Items for the whole page are loaded
+     * in one batch; the first page is cached per user.
+     *
+     * GET /api/orders/history?page=0&size=10
+     */
+    @GetMapping("/history")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<org.springframework.data.domain.Page<com.dto.OrderHistoryDTO>> getOrderHistory(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(orderService.getUserOrderHistory(user, page, size));
+    }
+
     @GetMapping("/check-first-order")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<Boolean> isFirstOrder() {
@@ -96,11 +193,16 @@ public class OrderController {
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    /**
+     * Invoice PDF, served from the stored copy with an ETag (304 when the
+     * client's copy is current).
+     */
     @GetMapping("/{orderId}/invoice")
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
-    public ResponseEntity<byte[]> downloadInvoice(
+    public ResponseEntity<Resource> downloadInvoice(
             @PathVariable Long orderId,
-            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+            @AuthenticationPrincipal UserDetailsImpl currentUser,
+            HttpServletRequest request) {
 
         Order order = orderService.getOrderById(orderId);
 
@@ -112,11 +214,8 @@ public class OrderController {
             return ResponseEntity.status(403).build();
         }
 
-        byte[] invoicePdf = orderService.generateInvoice(orderId);
-
-        return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=Invoice_" + orderId + ".pdf")
-                .header("Content-Type", "application/pdf")
-                .body(invoicePdf);
+        InvoiceService.InvoiceArtifact invoice = orderService.getInvoice(orderId);
+        return FileTransferUtil.serve(request, invoice.path(), invoice.size(), invoice.fingerprint(),
+                MediaType.APPLICATION_PDF, "Invoice_" + orderId + ".pdf");
     }
 }
@@ -0,0 +1,25 @@
+package com.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BulkInvoiceJobDTO {
+    private String jobId;
+    // QUEUED, RUNNING, COMPLETED, FAILED
+    private String status;
+    private int totalOrders;
+    private int rendered;
+    private int failed;
+    private long zipBytes;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    // "orderId: reason" for the first failed orders
+    private List<String> failures = new ArrayList<>();
+}
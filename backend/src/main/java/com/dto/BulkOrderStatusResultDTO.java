@@ -0,0 +1,18 @@
+package com.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+public class BulkOrderStatusResultDTO {
+    private String status;
+    private List<Long> updated = new ArrayList<>();
+    // orderId -> reason
+    private Map<Long, String> rejected = new LinkedHashMap<>();
+}
@@ -0,0 +1,41 @@
+package com.dto;
+
+import com.entity.OrderStatus;
+import com.entity.PaymentStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight order row for the paged order-history API.
+ * Header fields are filled by a JPQL constructor projection; items are
+ * attached afterwards from one batched query for the whole page.
+ */
+@Data
+@NoArgsConstructor
+public class OrderHistoryDTO {
+    private Long id;
+    private double totalAmount;
+    private double discount;
+    private String status;
+    private String paymentStatus;
+    private String paymentMethod;
+    private String currentLocation;
+    private LocalDateTime orderDate;
+    private List<AdminOrderItemDTO> items = new ArrayList<>();
+
+    public OrderHistoryDTO(Long id, Double totalAmount, Double discount, OrderStatus status,
+            PaymentStatus paymentStatus, String paymentMethod, String currentLocation, LocalDateTime orderDate) {
+        this.id = id;
+        this.totalAmount = totalAmount != null ? totalAmount : 0.0;
+        this.discount = discount != null ? discount : 0.0;
+        this.status = status != null ? status.name() : null;
+        this.paymentStatus = paymentStatus != null ? paymentStatus.name() : null;
+        this.paymentMethod = paymentMethod;
+        this.currentLocation = currentLocation;
+        this.orderDate = orderDate;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeStatusDTO {
+    private String ticketId;
+    // QUEUED, PLACED or FAILED
+    private String status;
+    private OrderResponseDTO order;
+    private String error;
+    private LocalDateTime queuedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,27 @@
+package com.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flat order-item projection (item + variant + product columns) used to load
+ * the items of many orders in a single query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemRowDTO {
+    private Long orderId;
+    private Long variantId;
+    private Long modelNo;
+    private String productName;
+    private Boolean returnable;
+    private Boolean replaceable;
+    private Boolean singleBrand;
+    private Double price;
+    private Integer quantity;
+    private String size;
+    private String color;
+    private String colorHex;
+}
@@ -0,0 +1,17 @@
+package com.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusNotificationDTO {
+    private String email;
+    private String customerName;
+    private String orderId;
+    private String status;
+    // Null for a plain status change
+    private String location;
+}
@@ -0,0 +1,25 @@
+package com.dto;
+
+import com.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payment status pushed to clients waiting for a payment to complete.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatusDTO {
+    private Long orderId;
+    private Long paymentId;
+    private PaymentStatus status;
+    private LocalDateTime updatedAt;
+
+    public boolean isFinal() {
+        return status != PaymentStatus.PENDING;
+    }
+}
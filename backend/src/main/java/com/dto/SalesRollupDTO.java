@@ -0,0 +1,19 @@
+package com.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupDTO {
+    // "2026-01-31 14:00", "2026-01-31" or "2026-01" depending on the granularity
+    private String period;
+    private long orders;
+    private long units;
+    private double gross;
+    private double discount;
+    private double net;
+    private double commission;
+}
@@ -0,0 +1,16 @@
+package com.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAvailabilityDTO {
+    private Long variantId;
+    // Units that can still be sold (on-hand stock, holds already subtracted)
+    private int available;
+    // Units held by orders waiting for payment
+    private int held;
+}
@@ -0,0 +1,68 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * JobCheckpoint
+ * =============
+ *
+ * Progress of one run of a batch job (e.g. the settlement of a given day).
+ * The job advances {@code position} in the same transaction as the work it
+ * covers, so a run that stops half-way resumes after the last committed
+ * position instead of starting over.
+ */
+@Entity
+@Table(name = "job_checkpoints", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_job_checkpoint_run", columnNames = { "job_name", "run_key" })
+})
+@Data
+@NoArgsConstructor
+public class JobCheckpoint {
+
+    public enum Status {
+        RUNNING, COMPLETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 50)
+    private String jobName;
+
+    // Identifies the run within the job, e.g. the business date
+    @Column(name = "run_key", nullable = false, length = 50)
+    private String runKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    // Last key fully processed (job specific: a user id, a row id, ...)
+    @Column
+    private Long position;
+
+    @Column(nullable = false)
+    private long processed;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public JobCheckpoint(String jobName, String runKey) {
+        this.jobName = jobName;
+        this.runKey = runKey;
+        this.status = Status.RUNNING;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = this.startedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * ModeratorOrder
+ * ==============
+ *
+ * Denormalized link between a moderator and every order that contains at
+ * least one of their products. Written at order placement so moderator order
+ * lists, counts and status filters are plain indexed lookups instead of walking
+ * {@code Order.items -> variant -> product -> moderator}.
+ *
+ * {@code status} and {@code orderDate} mirror the order and are kept in sync on
+ * every status change.
+ */
+@Entity
+@Table(name = "moderator_order", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_moderator_order", columnNames = { "moderator_id", "order_id" })
+}, indexes = {
+        @Index(name = "idx_moderator_order_date", columnList = "moderator_id, order_date"),
+        @Index(name = "idx_moderator_order_status", columnList = "moderator_id, status, order_date"),
+        @Index(name = "idx_moderator_order_order", columnList = "order_id")
+})
+@Data
+@NoArgsConstructor
+public class ModeratorOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "moderator_id", nullable = false)
+    private Long moderatorId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OrderStatus status;
+
+    @Column(name = "order_date", nullable = false)
+    private LocalDateTime orderDate;
+
+    // Value of this moderator's lines in the order (before order-level discount)
+    @Column(nullable = false)
+    private double moderatorSubtotal;
+
+    @Column(nullable = false)
+    private int itemCount;
+}
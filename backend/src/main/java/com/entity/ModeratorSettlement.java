@@ -0,0 +1,56 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * ModeratorSettlement
+ * ===================
+ *
+ * One moderator's earnings for one day, as settled by the nightly payout run:
+ * the order shares credited to their wallet that day and the amount paid out
+ * (the PAYOUT ledger entry referenced by {@code transactionId}).
+ */
+@Entity
+@Table(name = "moderator_settlements", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_moderator_settlement_day", columnNames = { "settlement_date", "user_id" })
+})
+@Data
+@NoArgsConstructor
+public class ModeratorSettlement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "settlement_date", nullable = false)
+    private LocalDate settlementDate;
+
+    @Column(name = "moderator_id", nullable = false)
+    private Long moderatorId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Number of order shares included
+    @Column(nullable = false)
+    private int entries;
+
+    @Column(name = "gross_amount", nullable = false)
+    private double grossAmount;
+
+    // Gross amount, capped at the wallet balance at payout time
+    @Column(name = "payout_amount", nullable = false)
+    private double payoutAmount;
+
+    // PAYOUT ledger entry, null when nothing could be paid
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,47 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * OrderRollupState
+ * ================
+ *
+ * Whether an order is currently included in the {@link SalesRollup} rows,
+ * and with which hour bucket, discount and lines. Updating the rollups locks this
+ * row and only adds, removes or moves the order when it no longer matches the
+ * order, so refreshing an order any number of times (after a retry, or from
+ * the backfill) never counts it twice. The lines keep the category and
+ * moderator they were counted under, so taking an order out after its
+ * product was recategorised or moved to another moderator subtracts from the
+ * rows it was added to.
+ */
+@Entity
+@Table(name = "order_rollup_state")
+@Data
+@NoArgsConstructor
+public class OrderRollupState {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(nullable = false)
+    private boolean counted;
+
+    // Hour bucket and discount the order was added with (null while not counted)
+    @Column(name = "bucket_hour")
+    private LocalDateTime bucketHour;
+
+    private Double discount;
+
+    // One "category,moderatorId,quantity,price" entry per line, ';'-separated (null while not counted)
+    @Column(name = "counted_lines", columnDefinition = "TEXT")
+    private String countedLines;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,5 +1,8 @@
 package com.entity;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING,
     PROCESSING,
@@ -7,5 +10,24 @@ public enum OrderStatus {
     DELIVERED,
     CANCELLED,
     RETURNED,
-    REFUNDED
+    REFUNDED;
+
+    /**
+     * Statuses an order may move to from this one. Used to validate bulk
+     * transitions; terminal statuses allow nothing.
+     */
+    public Set<OrderStatus> nextStatuses() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(PROCESSING, SHIPPED, CANCELLED);
+            case PROCESSING -> EnumSet.of(SHIPPED, CANCELLED);
+            case SHIPPED -> EnumSet.of(DELIVERED, RETURNED);
+            case DELIVERED -> EnumSet.of(RETURNED, REFUNDED);
+            case RETURNED, CANCELLED -> EnumSet.of(REFUNDED);
+            case REFUNDED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return nextStatuses().contains(next);
+    }
 }
@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_status_date", columnList = "status, payment_date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,58 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ReconciliationMismatch
+ * ======================
+ *
+ * A completed payment whose order or wallet credits do not agree with it.
+ */
+@Entity
+@Table(name = "reconciliation_mismatches", indexes = {
+        @Index(name = "idx_reconciliation_mismatch_run", columnList = "run_id, order_id"),
+        @Index(name = "idx_reconciliation_mismatch_order", columnList = "order_id")
+})
+@Data
+@NoArgsConstructor
+public class ReconciliationMismatch {
+
+    public enum Type {
+        // No order row for the payment
+        ORDER_MISSING,
+        // Order's paymentStatus is not COMPLETED
+        ORDER_NOT_PAID,
+        // Payment amount differs from the order total
+        AMOUNT_MISMATCH,
+        // No ORDER_PAYMENT/COMMISSION credits for the order
+        LEDGER_MISSING,
+        // Credits do not add up to the order total
+        LEDGER_MISMATCH
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Type type;
+
+    private Double expected;
+
+    private Double actual;
+
+    @Column(length = 255)
+    private String detail;
+}
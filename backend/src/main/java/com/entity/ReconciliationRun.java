@@ -0,0 +1,55 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * ReconciliationRun
+ * =================
+ *
+ * One pass of the payment reconciliation over the payments completed in
+ * {@code (windowFrom, windowTo]}. The mismatches found are stored as
+ * {@link ReconciliationMismatch} rows referencing the run.
+ */
+@Entity
+@Table(name = "reconciliation_runs")
+@Data
+@NoArgsConstructor
+public class ReconciliationRun {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "window_from", nullable = false)
+    private LocalDateTime windowFrom;
+
+    @Column(name = "window_to", nullable = false)
+    private LocalDateTime windowTo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "payments_checked", nullable = false)
+    private long paymentsChecked;
+
+    @Column(nullable = false)
+    private long mismatches;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(length = 500)
+    private String error;
+}
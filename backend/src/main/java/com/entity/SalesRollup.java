@@ -0,0 +1,66 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * SalesRollup
+ * ===========
+ *
+ * Order totals for one hour, either for the whole shop ({@code ALL}), one
+ * product category or one moderator ({@code platform} for platform-owned
+ * products). Maintained by {@code OrderRollupService}; day and month figures
+ * are summed from the hourly rows at query time.
+ *
+ * Money columns follow the settlement split: {@code discount} is the order
+ * discount prorated over its lines, {@code net = gross - discount}, and
+ * {@code commission} is the platform's cut of {@code net}.
+ */
+@Entity
+@Table(name = "sales_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sales_rollup", columnNames = { "scope", "scope_key", "bucket_hour" })
+})
+@Data
+@NoArgsConstructor
+public class SalesRollup {
+
+    public enum Scope {
+        ALL, CATEGORY, MODERATOR
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Scope scope;
+
+    // "all", a category name or a moderator id
+    @Column(name = "scope_key", nullable = false, length = 40)
+    private String scopeKey;
+
+    @Column(name = "bucket_hour", nullable = false)
+    private LocalDateTime bucketHour;
+
+    @Column(nullable = false)
+    private long orders;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false)
+    private double gross;
+
+    @Column(nullable = false)
+    private double discount;
+
+    @Column(nullable = false)
+    private double net;
+
+    @Column(nullable = false)
+    private double commission;
+}
@@ -0,0 +1,54 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * StockReservation
+ * ================
+ *
+ * Time-limited hold on the stock of an order that is waiting for an online
+ * payment. Stock is taken from the variants when the order is placed; the hold
+ * either becomes a sale when the payment is verified or is released (stock
+ * returned, order cancelled) once {@code expiresAt} passes.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservation_status_expiry", columnList = "status, expires_at")
+})
+@Data
+@NoArgsConstructor
+public class StockReservation {
+
+    public enum Status {
+        HELD, CONVERTED, RELEASED
+    }
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // When the hold was converted or released
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+
+    public StockReservation(Long orderId, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.orderId = orderId;
+        this.status = Status.HELD;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+}
@@ -7,8 +7,17 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
+/**
+ * Wallet ledger entry. Entries are append-only: each one carries the wallet's
+ * sequence number and the balance right after it was applied.
+ */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transactions_wallet_seq", columnNames = { "wallet_id", "sequence_no" })
+}, indexes = {
+        @Index(name = "idx_transactions_reference", columnList = "reference_id")
+})
+@org.hibernate.annotations.Immutable
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -50,6 +59,13 @@ public class Transaction {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    // Position in the wallet's ledger (null for entries written before sequencing)
+    @Column(name = "sequence_no")
+    private Long sequenceNo;
+
+    @Column(name = "balance_after")
+    private Double balanceAfter;
+
     @PrePersist
     public void onCreate() {
         this.timestamp = LocalDateTime.now();
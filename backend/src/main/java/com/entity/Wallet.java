@@ -28,6 +28,10 @@ public class Wallet {
     @Column(nullable = false)
     private LocalDateTime lastUpdated;
 
+    // Sequence number of the last ledger entry applied to this wallet
+    @Column(name = "ledger_seq", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long ledgerSeq;
+
     @PrePersist
     @PreUpdate
     public void onUpdate() {
@@ -0,0 +1,48 @@
+package com.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * WalletSnapshot
+ * ==============
+ *
+ * Balance of a wallet as derived from its ledger up to {@code sequenceNo}. A
+ * wallet's balance can be recomputed from its latest snapshot plus the sum of
+ * the ledger entries after it, without replaying the whole history.
+ */
+@Entity
+@Table(name = "wallet_snapshots", indexes = {
+        @Index(name = "idx_wallet_snapshot_seq", columnList = "wallet_id, sequence_no")
+})
+@org.hibernate.annotations.Immutable
+@Data
+@NoArgsConstructor
+public class WalletSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "sequence_no", nullable = false)
+    private long sequenceNo;
+
+    @Column(nullable = false)
+    private double balance;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public WalletSnapshot(Long walletId, long sequenceNo, double balance) {
+        this.walletId = walletId;
+        this.sequenceNo = sequenceNo;
+        this.balance = balance;
+        this.createdAt = LocalDateTime.now();
+    }
+}
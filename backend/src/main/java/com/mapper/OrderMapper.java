@@ -37,6 +37,19 @@ public class OrderMapper {
                                 order.getOrderDate());
         }
 
+        /** Admin view of an order read from the archive tables. */
+        public static AdminOrderDTO toAdminDTO(OrderResponseDTO order) {
+                return new AdminOrderDTO(
+                                order.getId(),
+                                order.getUser(),
+                                order.getItems(),
+                                order.getTotalAmount(),
+                                order.getDiscount(),
+                                order.getStatus(),
+                                order.getCurrentLocation(),
+                                order.getOrderDate());
+        }
+
         public static OrderResponseDTO toResponseDTO(Order order) {
                 List<AdminOrderItemDTO> itemDTOs = order.getItems().stream()
                                 .map(OrderMapper::toItemDTO)
@@ -0,0 +1,14 @@
+package com.payload.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkOrderStatusRequest {
+    private List<Long> orderIds;
+    private String status;
+    // Optional: also move every order to this location (tracking update)
+    private String location;
+    private String description;
+}
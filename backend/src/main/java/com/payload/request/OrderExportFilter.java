@@ -0,0 +1,35 @@
+package com.payload.request;
+
+import com.entity.OrderStatus;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Query parameters for the order export endpoints.
+ * {@code from} is inclusive and {@code to} is inclusive (whole day).
+ */
+@Data
+public class OrderExportFilter {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private OrderStatus status;
+
+    private Long moderatorId;
+
+    private Format format = Format.CSV;
+
+    private boolean includeItems = false;
+
+    private boolean gzip = false;
+}
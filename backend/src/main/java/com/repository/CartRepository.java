@@ -8,4 +8,11 @@ import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUser(User user);
+
+    /**
+     * Cart lines of several users as {@code [userId, variantId, quantity]}.
+     */
+    @org.springframework.data.jpa.repository.Query("SELECT ci.cart.user.id, ci.variant.id, ci.quantity FROM CartItem ci WHERE ci.cart.user.id IN :userIds")
+    java.util.List<Object[]> findCartLinesByUserIds(
+            @org.springframework.data.repository.query.Param("userIds") java.util.Collection<Long> userIds);
 }
@@ -0,0 +1,59 @@
+package com.repository;
+
+import com.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Plain INSERT (never merge) so that a concurrent claim of the same key fails
+     * on the primary key instead of overwriting the other request's row.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (record_key, request_hash, status, created_at, expires_at) "
+            + "VALUES (:recordKey, :requestHash, 'IN_PROGRESS', :createdAt, :expiresAt)", nativeQuery = true)
+    int claim(@Param("recordKey") String recordKey, @Param("requestHash") String requestHash,
+            @Param("createdAt") LocalDateTime createdAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Take over an expired or abandoned row for a new request. Matches the row
+     * exactly as it was read, so of several nodes taking over the same row only
+     * one updates it; the others see 0 and re-read the winner's claim.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, "
+            + "r.status = com.entity.IdempotencyRecord.Status.IN_PROGRESS, r.responseBody = NULL, "
+            + "r.createdAt = :createdAt, r.expiresAt = :expiresAt WHERE r.recordKey = :recordKey "
+            + "AND r.status = :oldStatus AND r.createdAt = :oldCreatedAt AND r.expiresAt = :oldExpiresAt")
+    int takeOver(@Param("recordKey") String recordKey, @Param("requestHash") String requestHash,
+            @Param("createdAt") LocalDateTime createdAt, @Param("expiresAt") LocalDateTime expiresAt,
+            @Param("oldStatus") IdempotencyRecord.Status oldStatus,
+            @Param("oldCreatedAt") LocalDateTime oldCreatedAt, @Param("oldExpiresAt") LocalDateTime oldExpiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.entity.IdempotencyRecord.Status.COMPLETED, "
+            + "r.responseBody = :body, r.expiresAt = :expiresAt WHERE r.recordKey = :recordKey")
+    int complete(@Param("recordKey") String recordKey, @Param("body") String body,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.recordKey = :recordKey AND r.status = com.entity.IdempotencyRecord.Status.IN_PROGRESS")
+    int release(@Param("recordKey") String recordKey);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,12 @@
+package com.repository;
+
+import com.entity.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, Long> {
+    Optional<JobCheckpoint> findByJobNameAndRunKey(String jobName, String runKey);
+}
@@ -0,0 +1,57 @@
+package com.repository;
+
+import com.entity.ModeratorOrder;
+import com.entity.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ModeratorOrderRepository extends JpaRepository<ModeratorOrder, Long> {
+
+    Page<ModeratorOrder> findByModeratorIdOrderByOrderDateDesc(Long moderatorId, Pageable pageable);
+
+    Page<ModeratorOrder> findByModeratorIdAndStatusOrderByOrderDateDesc(Long moderatorId, OrderStatus status,
+            Pageable pageable);
+
+    long countByModeratorId(Long moderatorId);
+
+    boolean existsByModeratorIdAndOrderId(Long moderatorId, Long orderId);
+
+    @Query("SELECT m.status, COUNT(m) FROM ModeratorOrder m WHERE m.moderatorId = :moderatorId GROUP BY m.status")
+    List<Object[]> countByStatus(@Param("moderatorId") Long moderatorId);
+
+    @Modifying
+    @Query("UPDATE ModeratorOrder m SET m.status = :status WHERE m.orderId = :orderId")
+    int updateStatus(@Param("orderId") Long orderId, @Param("status") OrderStatus status);
+
+    @Modifying
+    @Query("UPDATE ModeratorOrder m SET m.status = :status WHERE m.orderId IN :orderIds")
+    int updateStatus(@Param("orderIds") Collection<Long> orderIds, @Param("status") OrderStatus status);
+
+    @Modifying
+    @Query("DELETE FROM ModeratorOrder m WHERE m.orderId = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Rebuilds index rows for existing orders; rows already present are kept.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO moderator_order (moderator_id, order_id, status, order_date, moderator_subtotal, item_count) "
+            + "SELECT p.moderator_id, o.id, o.status, o.order_date, SUM(oi.price * oi.quantity), SUM(oi.quantity) "
+            + "FROM orders o JOIN order_item oi ON oi.order_id = o.id "
+            + "JOIN product_variant pv ON pv.id = oi.variant_id "
+            + "JOIN product p ON p.model_no = pv.model_no "
+            + "WHERE p.moderator_id IS NOT NULL "
+            + "GROUP BY p.moderator_id, o.id, o.status, o.order_date", nativeQuery = true)
+    int backfill();
+}
@@ -0,0 +1,13 @@
+package com.repository;
+
+import com.entity.ModeratorSettlement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ModeratorSettlementRepository extends JpaRepository<ModeratorSettlement, Long> {
+    List<ModeratorSettlement> findBySettlementDateOrderByUserIdAsc(LocalDate settlementDate);
+}
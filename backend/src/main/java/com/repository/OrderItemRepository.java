@@ -0,0 +1,32 @@
+package com.repository;
+
+import com.dto.OrderItemRowDTO;
+import com.entity.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    /**
+     * Items of several orders in one round trip, flattened with the variant and
+     * product columns the order views need.
+     */
+    @Query("SELECT new com.dto.OrderItemRowDTO(i.order.id, v.id, p.modelNo, p.name, p.isReturnable, p.isReplaceable, "
+            + "p.isSingleBrand, i.price, i.quantity, v.size, v.color, v.colorHex) "
+            + "FROM OrderItem i JOIN i.variant v JOIN v.product p "
+            + "WHERE i.order.id IN :orderIds ORDER BY i.order.id, i.id")
+    List<OrderItemRowDTO> findRowsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Quantity per variant across several orders, used to restore stock in one
+     * pass when orders are cancelled in bulk.
+     */
+    @Query("SELECT i.variant.id, SUM(i.quantity) FROM OrderItem i WHERE i.order.id IN :orderIds GROUP BY i.variant.id")
+    List<Object[]> sumQuantityByVariant(@Param("orderIds") Collection<Long> orderIds);
+}
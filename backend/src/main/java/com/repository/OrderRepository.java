@@ -2,6 +2,8 @@ package com.repository;
 
 import com.entity.Order;
 import com.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
@@ -10,6 +12,43 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     List<Order> findByUserId(Long userId);
 
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    @org.springframework.data.jpa.repository.Query(value = "SELECT new com.dto.OrderHistoryDTO(o.id, o.totalAmount, o.discount, o.status, o.paymentStatus, o.paymentMethod, o.currentLocation, o.orderDate) "
+            + "FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<com.dto.OrderHistoryDTO> findHistoryByUserId(@org.springframework.data.repository.query.Param("userId") Long userId,
+            Pageable pageable);
+
+    /**
+     * Status and recipient of several orders, locked for update so a bulk
+     * transition validates against the state it will overwrite.
+     */
+    @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @org.springframework.data.jpa.repository.Query("SELECT o.id, o.status, u.id, u.email, u.name FROM Order o JOIN o.user u WHERE o.id IN :ids")
+    List<Object[]> lockStatusRowsByIds(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+    @org.springframework.data.jpa.repository.Modifying(clearAutomatically = true)
+    @org.springframework.data.jpa.repository.Query("UPDATE Order o SET o.status = :status, o.currentLocation = COALESCE(:location, o.currentLocation) WHERE o.id IN :ids")
+    int bulkUpdateStatus(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids,
+            @org.springframework.data.repository.query.Param("status") com.entity.OrderStatus status,
+            @org.springframework.data.repository.query.Param("location") String location);
+
+    @org.springframework.data.jpa.repository.Modifying(clearAutomatically = true)
+    @org.springframework.data.jpa.repository.Query("UPDATE Order o SET o.paymentStatus = :paymentStatus WHERE o.id IN :ids")
+    int bulkUpdatePaymentStatus(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids,
+            @org.springframework.data.repository.query.Param("paymentStatus") com.entity.PaymentStatus paymentStatus);
+
+    /**
+     * Orders with their customer, items, variants and products, so a page can
+     * be mapped without a lazy load per order and item.
+     */
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.items i "
+            + "LEFT JOIN FETCH i.variant v LEFT JOIN FETCH v.product WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+    Page<Order> findByStatus(com.entity.OrderStatus status, Pageable pageable);
+
     long countByUserIdAndStatusNot(Long userId, com.entity.OrderStatus status);
 
     Order findTopByUserOrderByOrderDateDesc(User user);
@@ -19,7 +58,4 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @org.springframework.data.jpa.repository.Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
     List<Object[]> getStatusDistribution();
-
-    @org.springframework.data.jpa.repository.Query("SELECT FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d'), SUM(o.totalAmount) FROM Order o GROUP BY FUNCTION('DATE_FORMAT', o.orderDate, '%Y-%m-%d')")
-    List<Object[]> getRevenueTrend();
 }
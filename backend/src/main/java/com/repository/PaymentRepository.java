@@ -14,4 +14,28 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByUserId(Long userId);
 
     Optional<Payment> findByStripePaymentIntentId(String stripePaymentIntentId);
+
+    /**
+     * [orderId, paymentId] of the still-pending payments of these orders,
+     * locked so the status change that follows applies to exactly these rows.
+     */
+    @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @org.springframework.data.jpa.repository.Query("SELECT p.order.id, p.id FROM Payment p WHERE p.order.id IN :orderIds AND p.status = com.entity.PaymentStatus.PENDING")
+    List<Object[]> lockPendingByOrderIds(@org.springframework.data.repository.query.Param("orderIds") java.util.Collection<Long> orderIds);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query("UPDATE Payment p SET p.status = :status WHERE p.order.id IN :orderIds AND p.status = com.entity.PaymentStatus.PENDING")
+    int updatePendingStatusByOrderIds(@org.springframework.data.repository.query.Param("orderIds") java.util.Collection<Long> orderIds,
+            @org.springframework.data.repository.query.Param("status") com.entity.PaymentStatus status);
+
+    /**
+     * [paymentId, status, paymentDate, userId] of the order's payment, without
+     * loading the entity graph.
+     */
+    @org.springframework.data.jpa.repository.Query("SELECT p.id, p.status, p.paymentDate, p.user.id FROM Payment p WHERE p.order.id = :orderId")
+    List<Object[]> findStatusByOrderId(@org.springframework.data.repository.query.Param("orderId") Long orderId);
+
+    /** [orderId, paymentId, status, paymentDate] of these orders' payments. */
+    @org.springframework.data.jpa.repository.Query("SELECT p.order.id, p.id, p.status, p.paymentDate FROM Payment p WHERE p.order.id IN :orderIds")
+    List<Object[]> findStatusesByOrderIds(@org.springframework.data.repository.query.Param("orderIds") java.util.Collection<Long> orderIds);
 }
@@ -2,6 +2,15 @@ package com.repository;
 
 import com.entity.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
+
+    // [variantId, imageUrl] ordered so the first row per variant is its first image
+    @Query("SELECT pi.variant.id, pi.imageUrl FROM ProductImage pi WHERE pi.variant.id IN :variantIds ORDER BY pi.variant.id, pi.id")
+    List<Object[]> findImageUrlsByVariantIds(@Param("variantIds") Collection<Long> variantIds);
 }
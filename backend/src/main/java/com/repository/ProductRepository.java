@@ -18,6 +18,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     long countByCategory(Category category);
 
+    // category, count
+    @org.springframework.data.jpa.repository.Query("SELECT p.category, COUNT(p) FROM Product p GROUP BY p.category")
+    List<Object[]> countGroupByCategory();
+
     // Fallback search using DB
     // @org.springframework.data.jpa.repository.Query("SELECT p FROM Product p WHERE
     // LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(p.description)
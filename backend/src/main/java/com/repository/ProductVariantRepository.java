@@ -13,4 +13,16 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     // Find low stock variants
     List<ProductVariant> findByQuantityLessThanOrderByQuantityAsc(int threshold,
             org.springframework.data.domain.Pageable pageable);
+
+    @org.springframework.data.jpa.repository.Query("SELECT v.id, v.quantity FROM ProductVariant v WHERE v.id IN :ids")
+    List<Object[]> findQuantitiesByIds(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+    // Initialises the image lists of variants already loaded in the session (two bags cannot be fetched in one query)
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT v FROM ProductVariant v LEFT JOIN FETCH v.images WHERE v.id IN :ids")
+    List<ProductVariant> fetchImagesByIds(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+    // Ordered by id so concurrent lockers always take row locks in the same order
+    @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @org.springframework.data.jpa.repository.Query("SELECT v FROM ProductVariant v WHERE v.id IN :ids ORDER BY v.id")
+    List<ProductVariant> lockByIds(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
 }
@@ -0,0 +1,22 @@
+package com.repository;
+
+import com.entity.ReconciliationMismatch;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, Long> {
+    Page<ReconciliationMismatch> findByRunIdOrderByOrderIdAsc(Long runId, Pageable pageable);
+
+    /**
+     * [type, count] for a run.
+     */
+    @Query("SELECT m.type, COUNT(m) FROM ReconciliationMismatch m WHERE m.runId = :runId GROUP BY m.type")
+    List<Object[]> countByType(@Param("runId") Long runId);
+}
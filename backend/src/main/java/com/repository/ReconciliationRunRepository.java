@@ -0,0 +1,15 @@
+package com.repository;
+
+import com.entity.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+    List<ReconciliationRun> findTop50ByOrderByIdDesc();
+
+    Optional<ReconciliationRun> findTopByStatusOrderByWindowToDesc(ReconciliationRun.Status status);
+}
@@ -0,0 +1,44 @@
+package com.repository;
+
+import com.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByStatus(StockReservation.Status status);
+
+    /**
+     * Move holds that are still HELD to {@code status}. The status guard makes
+     * convert and release race-safe across nodes: only one of them wins.
+     */
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :status, r.closedAt = :now "
+            + "WHERE r.orderId IN :orderIds AND r.status = :held")
+    int closeHeld(@Param("orderIds") Collection<Long> orderIds, @Param("status") StockReservation.Status status,
+            @Param("now") LocalDateTime now, @Param("held") StockReservation.Status held);
+
+    /**
+     * Lock the expired holds among {@code orderIds} (SELECT ... FOR UPDATE), so
+     * a payment converting one of them waits until the release commits.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r.orderId FROM StockReservation r "
+            + "WHERE r.orderId IN :orderIds AND r.status = :held AND r.expiresAt <= :now")
+    List<Long> findExpiredHeld(@Param("orderIds") Collection<Long> orderIds, @Param("now") LocalDateTime now,
+            @Param("held") StockReservation.Status held);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r.orderId FROM StockReservation r WHERE r.orderId IN :orderIds AND r.status = :held")
+    List<Long> findHeld(@Param("orderIds") Collection<Long> orderIds, @Param("held") StockReservation.Status held);
+}
@@ -3,6 +3,8 @@ package com.repository;
 import com.entity.Transaction;
 import com.entity.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,23 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByWalletOrderByTimestampDesc(Wallet wallet);
 
     List<Transaction> findByWalletIdOrderByTimestampDesc(Long walletId);
+
+    List<Transaction> findByWalletIdOrderBySequenceNoAsc(Long walletId);
+
+    /**
+     * Net effect (credits minus debits) of the sequenced entries in
+     * {@code (fromSeq, toSeq]}.
+     */
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.type = :credit THEN t.amount ELSE -t.amount END), 0) "
+            + "FROM Transaction t WHERE t.wallet.id = :walletId AND t.sequenceNo > :fromSeq AND t.sequenceNo <= :toSeq")
+    Double sumDelta(@Param("walletId") Long walletId, @Param("fromSeq") long fromSeq, @Param("toSeq") long toSeq,
+            @Param("credit") Transaction.TransactionType credit);
+
+    /**
+     * Net effect of the entries written before the ledger was sequenced
+     * ({@code sequenceNo} is null): the wallet's opening balance.
+     */
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.type = :credit THEN t.amount ELSE -t.amount END), 0) "
+            + "FROM Transaction t WHERE t.wallet.id = :walletId AND t.sequenceNo IS NULL")
+    Double sumUnsequencedDelta(@Param("walletId") Long walletId, @Param("credit") Transaction.TransactionType credit);
 }
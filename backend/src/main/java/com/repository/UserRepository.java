@@ -11,7 +11,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     long countByRole(com.entity.Role role);
 
+    // role, count
+    @org.springframework.data.jpa.repository.Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    java.util.List<Object[]> countGroupByRole();
+
     java.util.List<User> findByRole(com.entity.Role role);
 
+    Optional<User> findFirstByRoleOrderByIdAsc(com.entity.Role role);
+
     java.util.List<User> findByParentId(Long parentId);
 }
@@ -2,9 +2,16 @@ package com.repository;
 
 import com.entity.User;
 import com.entity.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +21,52 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByUserId(Long userId);
 
     boolean existsByUser(User user);
+
+    @Query("SELECT w.id FROM Wallet w WHERE w.user.id = :userId")
+    Optional<Long> findIdByUserId(@Param("userId") Long userId);
+
+    /**
+     * Creates an empty wallet unless the user already has one (safe under
+     * concurrent first credits).
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO wallets (user_id, balance, last_updated, ledger_seq) VALUES (:userId, 0, :now, 0)",
+            nativeQuery = true)
+    int createIfAbsent(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically applies a credit and advances the ledger sequence.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount, w.ledgerSeq = w.ledgerSeq + 1, "
+            + "w.lastUpdated = :now WHERE w.id = :walletId")
+    int applyCredit(@Param("walletId") Long walletId, @Param("amount") double amount,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically applies a debit if the balance covers it; returns 0 otherwise.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount, w.ledgerSeq = w.ledgerSeq + 1, "
+            + "w.lastUpdated = :now WHERE w.id = :walletId AND w.balance >= :amount")
+    int applyDebit(@Param("walletId") Long walletId, @Param("amount") double amount,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * {@code [ledgerSeq, balance]} read from the database, bypassing any
+     * cached entity.
+     */
+    @Query("SELECT w.ledgerSeq, w.balance FROM Wallet w WHERE w.id = :walletId")
+    List<Object[]> findLedgerState(@Param("walletId") Long walletId);
+
+    /**
+     * {@code [ledgerSeq, balance]} with the wallet row locked, so no credit or
+     * debit lands until the caller's transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w.ledgerSeq, w.balance FROM Wallet w WHERE w.id = :walletId")
+    List<Object[]> lockLedgerState(@Param("walletId") Long walletId);
+
+    @Query("SELECT w.id FROM Wallet w")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,13 @@
+package com.repository;
+
+import com.entity.WalletSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WalletSnapshotRepository extends JpaRepository<WalletSnapshot, Long> {
+
+    Optional<WalletSnapshot> findTopByWalletIdOrderBySequenceNoDesc(Long walletId);
+}
@@ -1,64 +1,64 @@
 package com.service;
 
+import com.entity.Category;
+import com.entity.Role;
+import com.entity.SalesRollup;
 import com.payload.response.ChartData;
 import com.payload.response.DashboardResponse;
-import com.repository.OrderRepository;
-import com.repository.ProductRepository;
-import com.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsService {
 
-    @Autowired
-    private OrderRepository orderRepository;
+    // The trend covers the whole history
+    private static final LocalDateTime TREND_START = LocalDateTime.of(2000, 1, 1, 0, 0);
 
     @Autowired
-    private UserRepository userRepository;
+    private DashboardCounterService dashboardCounterService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private OrderRollupService orderRollupService;
 
+    /**
+     * Counts, revenue and the status distribution come from the
+     * {@link DashboardCounterService}, the revenue trend from the daily
+     * {@link OrderRollupService} figures.
+     */
     public DashboardResponse getDashboardStats() {
         DashboardResponse stats = new DashboardResponse();
 
         // 1. Basic Counts
-        stats.setTotalOrders(orderRepository.count());
-        stats.setTotalUsers(userRepository.count());
-        stats.setTotalProducts(productRepository.count());
-
-        Double revenue = orderRepository.getTotalRevenue();
-        stats.setTotalRevenue(revenue != null ? revenue : 0.0);
+        stats.setTotalOrders(dashboardCounterService.totalOrders());
+        stats.setTotalUsers(dashboardCounterService.totalUsers());
+        stats.setTotalProducts(dashboardCounterService.totalProducts());
+        stats.setTotalRevenue(dashboardCounterService.totalRevenue());
 
         // Segmented Counts
-        try {
-            stats.setAdminCount(userRepository.countByRole(com.entity.Role.ADMIN));
-            stats.setModeratorCount(userRepository.countByRole(com.entity.Role.MODERATOR));
-            stats.setUserCount(userRepository.countByRole(com.entity.Role.USER));
+        stats.setAdminCount(dashboardCounterService.countUsers(Role.ADMIN));
+        stats.setModeratorCount(dashboardCounterService.countUsers(Role.MODERATOR));
+        stats.setUserCount(dashboardCounterService.countUsers(Role.USER));
 
-            stats.setMenProducts(productRepository.countByCategory(com.entity.Category.MEN));
-            stats.setWomenProducts(productRepository.countByCategory(com.entity.Category.WOMEN));
-            stats.setKidsProducts(productRepository.countByCategory(com.entity.Category.KIDS));
-        } catch (Exception e) {
-            // Fallback if enums differ or error
-            System.err.println("Error fetching segmented stats: " + e.getMessage());
-        }
+        stats.setMenProducts(dashboardCounterService.countProducts(Category.MEN));
+        stats.setWomenProducts(dashboardCounterService.countProducts(Category.WOMEN));
+        stats.setKidsProducts(dashboardCounterService.countProducts(Category.KIDS));
 
-        // 2. Status Distribution
-        List<Object[]> statusData = orderRepository.getStatusDistribution();
-        List<ChartData> statusChart = statusData.stream()
-                .map(obj -> new ChartData(obj[0].toString(), ((Number) obj[1]).doubleValue()))
+        // 2. Status Distribution (live and archived orders)
+        List<ChartData> statusChart = dashboardCounterService.orderStatusDistribution().entrySet().stream()
+                .map(e -> new ChartData(e.getKey(), e.getValue().doubleValue()))
                 .collect(Collectors.toList());
         stats.setOrderStatusDistribution(statusChart);
 
-        // 3. Revenue Trend
-        List<Object[]> trendData = orderRepository.getRevenueTrend();
-        List<ChartData> trendChart = trendData.stream()
-                .map(obj -> new ChartData((String) obj[0], ((Number) obj[1]).doubleValue()))
+        // 3. Revenue Trend (net of discounts; cancelled, returned and refunded orders excluded)
+        List<ChartData> trendChart = orderRollupService
+                .query(SalesRollup.Scope.ALL, null, TREND_START, LocalDateTime.now().plusHours(1),
+                        OrderRollupService.Granularity.DAY)
+                .stream()
+                .map(day -> new ChartData(day.getPeriod(), day.getNet()))
                 .collect(Collectors.toList());
         stats.setRevenueTrend(trendChart);
 
@@ -0,0 +1,416 @@
+package com.service;
+
+import com.config.WorkloadExecutors;
+import com.dto.BulkInvoiceJobDTO;
+import com.exception.ResourceNotFoundException;
+import com.exception.ServiceBusyException;
+import com.payload.request.OrderExportFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * BulkInvoiceService
+ * ==================
+ *
+ * Builds a ZIP of the invoices of every order matching a date range, status
+ * and/or moderator filter, either as a background job written to disk (with
+ * progress available while it runs) or streamed straight into a response.
+ *
+ * <p>
+ * Invoices are rendered (or taken from the {@link InvoiceArtifactStore}) on the
+ * shared PDF pool ({@code app.executors.pdf.*}, see {@link WorkloadExecutors}). A job keeps at most
+ * {@code app.invoices.bulk.in-flight} invoices submitted ahead of the ZIP
+ * writer and adds them to the archive in order as they complete, so a slow
+ * disk or client slows rendering down instead of piling PDFs up in memory.
+ * At most {@code app.invoices.bulk.max-jobs} jobs and streams run at once.
+ * </p>
+ */
+@Service
+@Slf4j
+public class BulkInvoiceService {
+
+    private static final int MAX_REPORTED_FAILURES = 50;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WorkloadExecutors workloadExecutors;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Value("${app.invoices.bulk.dir:invoices/bulk}")
+    private String bulkDir;
+
+    @Value("${app.invoices.bulk.in-flight:32}")
+    private int inFlight;
+
+    @Value("${app.invoices.bulk.max-jobs:2}")
+    private int maxJobs;
+
+    @Value("${app.invoices.bulk.max-orders:20000}")
+    private int maxOrders;
+
+    @Value("${app.invoices.bulk.retention-hours:24}")
+    private long retentionHours;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor jobRunner;
+    private Semaphore jobSlots;
+
+    @PostConstruct
+    public void start() {
+        // Unbounded queue: jobs are capped by jobSlots
+        jobRunner = new ThreadPoolExecutor(maxJobs, maxJobs, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                namedThreads("invoice-bulk-"));
+        jobSlots = new Semaphore(maxJobs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        jobRunner.shutdownNow();
+    }
+
+    /**
+     * Starts a background job for the orders matching the filter.
+     *
+     * @throws ServiceBusyException when max-jobs jobs or streams are running
+     */
+    public BulkInvoiceJobDTO submit(OrderExportFilter filter, Long ownerUserId) {
+        List<Long> orderIds = findOrderIds(filter);
+        acquireSlot();
+
+        Job job = new Job(UUID.randomUUID().toString(), ownerUserId, orderIds.size());
+        jobs.put(job.id, job);
+        try {
+            jobRunner.execute(() -> runJob(job, orderIds));
+        } catch (RuntimeException e) {
+            jobSlots.release();
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Resolves the matching orders, so a bad filter fails before the caller
+     * commits a response, and turns the request away early when every slot is
+     * taken. The slot itself is taken by the returned writer and given back
+     * when it ends, so a body that never runs (client gone, request failed)
+     * holds nothing. If the slots fill up in between, the writer fails instead.
+     *
+     * @throws ServiceBusyException when max-jobs jobs or streams are running
+     */
+    public ZipWriter prepareStream(OrderExportFilter filter) {
+        List<Long> orderIds = findOrderIds(filter);
+        if (jobSlots.availablePermits() == 0) {
+            throw new ServiceBusyException("Too many bulk invoice jobs running, try again later");
+        }
+        return out -> {
+            acquireSlot();
+            try {
+                Job job = new Job(null, null, orderIds.size());
+                writeZip(orderIds, out, job);
+                log.info("Streamed {} invoices ({} failed)", job.rendered, job.failed);
+            } finally {
+                jobSlots.release();
+            }
+        };
+    }
+
+    /** Writes a prepared ZIP; see {@link #prepareStream}. */
+    @FunctionalInterface
+    public interface ZipWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public BulkInvoiceJobDTO getJob(String jobId, Long userId, boolean isAdmin) {
+        return find(jobId, userId, isAdmin).toDTO();
+    }
+
+    /**
+     * The finished archive of a COMPLETED job.
+     */
+    public Path getZip(String jobId, Long userId, boolean isAdmin) {
+        Job job = find(jobId, userId, isAdmin);
+        Path file = zipPath(job.id);
+        if (!"COMPLETED".equals(job.status) || !Files.exists(file)) {
+            throw new ResourceNotFoundException("Invoice archive not ready: " + jobId);
+        }
+        return file;
+    }
+
+    /**
+     * Forgets finished jobs and deletes their archives after the retention
+     * period.
+     */
+    @Scheduled(fixedDelayString = "${app.invoices.bulk.cleanup-ms:3600000}")
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        jobs.values().removeIf(job -> {
+            if (job.finishedAt == null || job.finishedAt.isAfter(cutoff)) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(zipPath(job.id));
+            } catch (IOException e) {
+                log.warn("Could not delete invoice archive of job {}", job.id, e);
+            }
+            return true;
+        });
+    }
+
+    private void runJob(Job job, List<Long> orderIds) {
+        job.status = "RUNNING";
+        Path target = zipPath(job.id);
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                writeZip(orderIds, out, job);
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            job.status = "COMPLETED";
+            log.info("Bulk invoice job {} finished: {} invoices, {} failed", job.id, job.rendered, job.failed);
+        } catch (Exception e) {
+            log.error("Bulk invoice job {} failed", job.id, e);
+            job.error = e.getMessage();
+            job.status = "FAILED";
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            jobSlots.release();
+        }
+    }
+
+    /**
+     * Keeps up to in-flight renders running ahead and adds the oldest one to
+     * the archive whenever the window is full, so entries keep order-id order.
+     */
+    private void writeZip(List<Long> orderIds, OutputStream target, Job job) throws IOException {
+        CountingOutputStream counted = new CountingOutputStream(target, job);
+        ZipOutputStream zip = new ZipOutputStream(counted);
+        // PDFs are already compressed internally; spend as little CPU as possible on them
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        // A full PDF queue renders on this thread, which also holds the window back
+        ExecutorService renderPool = workloadExecutors.get(WorkloadExecutors.Workload.PDF);
+        Deque<Pending> window = new ArrayDeque<>(inFlight);
+        try {
+            for (Long orderId : orderIds) {
+                if (window.size() >= inFlight) {
+                    addEntry(zip, window.removeFirst(), job);
+                }
+                window.addLast(new Pending(orderId, renderPool.submit(() -> invoiceService.getInvoice(orderId))));
+            }
+            while (!window.isEmpty()) {
+                addEntry(zip, window.removeFirst(), job);
+            }
+        } catch (IOException | RuntimeException e) {
+            window.forEach(p -> p.invoice.cancel(true));
+            throw e;
+        }
+
+        if (!job.failures.isEmpty()) {
+            zip.putNextEntry(new ZipEntry("failures.txt"));
+            zip.write(String.join("\n", job.failures).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private void addEntry(ZipOutputStream zip, Pending pending, Job job) throws IOException {
+        InvoiceService.InvoiceArtifact invoice;
+        try {
+            invoice = pending.invoice.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            job.failed++;
+            if (job.failures.size() < MAX_REPORTED_FAILURES) {
+                job.failures.add(pending.orderId + ": " + e.getCause().getMessage());
+            }
+            return;
+        }
+        zip.putNextEntry(new ZipEntry("SnapCart_Invoice_" + pending.orderId + ".pdf"));
+        Files.copy(invoice.path(), zip);
+        zip.closeEntry();
+        job.rendered++;
+    }
+
+    private List<Long> findOrderIds(OrderExportFilter filter) {
+        if (filter.getFrom() == null && filter.getTo() == null && filter.getStatus() == null
+                && filter.getModeratorId() == null) {
+            throw new RuntimeException("Give a date range, status or moderator to select the orders");
+        }
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (filter.getFrom() != null) {
+            where.append(" AND o.order_date >= ?");
+            params.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        }
+        if (filter.getTo() != null) {
+            where.append(" AND o.order_date < ?");
+            params.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        }
+        if (filter.getStatus() != null) {
+            where.append(" AND o.status = ?");
+            params.add(filter.getStatus().name());
+        }
+        if (filter.getModeratorId() != null) {
+            where.append(" AND EXISTS (SELECT 1 FROM moderator_order mo WHERE mo.order_id = o.id AND mo.moderator_id = ?)");
+            params.add(filter.getModeratorId());
+        }
+
+        String sql = "SELECT o.id FROM orders o" + where;
+        if (orderArchiveService.isEnabled()) {
+            // Archived orders keep their moderator_order rows, so the same filter applies
+            sql = "SELECT id FROM (" + sql + " UNION ALL SELECT o.id FROM orders_archive o" + where + ") matched";
+            params.addAll(new ArrayList<>(params));
+        }
+        sql += " ORDER BY id LIMIT " + (maxOrders + 1);
+
+        List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, params.toArray());
+        if (ids.size() > maxOrders) {
+            throw new RuntimeException("More than " + maxOrders + " orders match; narrow the filter");
+        }
+        return ids;
+    }
+
+    private void acquireSlot() {
+        if (!jobSlots.tryAcquire()) {
+            throw new ServiceBusyException("Too many bulk invoice jobs running, try again later");
+        }
+    }
+
+    private Job find(String jobId, Long userId, boolean isAdmin) {
+        Job job = jobs.get(jobId);
+        if (job == null || (!isAdmin && !job.ownerUserId.equals(userId))) {
+            throw new ResourceNotFoundException("Bulk invoice job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private Path zipPath(String jobId) {
+        return Paths.get(bulkDir).resolve(jobId + ".zip");
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Pending(Long orderId, Future<InvoiceService.InvoiceArtifact> invoice) {
+    }
+
+    /**
+     * Progress of one job. Counters are only written by the thread building
+     * the ZIP and read by status requests.
+     */
+    private static class Job {
+        final String id;
+        final Long ownerUserId;
+        final int total;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final List<String> failures = new CopyOnWriteArrayList<>();
+        volatile String status = "QUEUED";
+        volatile int rendered;
+        volatile int failed;
+        volatile long zipBytes;
+        volatile LocalDateTime finishedAt;
+        volatile String error;
+
+        Job(String id, Long ownerUserId, int total) {
+            this.id = id;
+            this.ownerUserId = ownerUserId;
+            this.total = total;
+        }
+
+        BulkInvoiceJobDTO toDTO() {
+            BulkInvoiceJobDTO dto = new BulkInvoiceJobDTO();
+            dto.setJobId(id);
+            dto.setStatus(status);
+            dto.setTotalOrders(total);
+            dto.setRendered(rendered);
+            dto.setFailed(failed);
+            dto.setZipBytes(zipBytes);
+            dto.setCreatedAt(createdAt);
+            dto.setFinishedAt(finishedAt);
+            dto.setError(error);
+            dto.setFailures(new ArrayList<>(failures));
+            return dto;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final Job job;
+
+        CountingOutputStream(OutputStream out, Job job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.zipBytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            job.zipBytes += len;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.service;
+
+import com.dto.BulkOrderStatusResultDTO;
+import com.dto.OrderStatusNotificationDTO;
+import com.entity.OrderStatus;
+import com.entity.TrackingStatus;
+import com.payload.request.BulkOrderStatusRequest;
+import com.repository.OrderItemRepository;
+import com.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BulkOrderStatusService
+ * ======================
+ *
+ * Moves many orders to one status in a single transaction: one locking read,
+ * one UPDATE, batched tracking inserts, and notification emails handed to the
+ * {@link OrderNotificationCoalescer} after commit. Orders whose current status does not allow the
+ * transition are reported back instead of failing the whole request.
+ */
+@Service
+@Slf4j
+public class BulkOrderStatusService {
+
+    private static final int MAX_ORDERS = 500;
+    private static final int JDBC_BATCH_SIZE = 100;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ModeratorOrderIndexService moderatorOrderIndexService;
+
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private OrderNotificationCoalescer orderNotificationCoalescer;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private DashboardCounterService dashboardCounterService;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Transactional
+    public BulkOrderStatusResultDTO updateStatus(BulkOrderStatusRequest request) {
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+            throw new RuntimeException("No orders given");
+        }
+        if (request.getStatus() == null) {
+            throw new RuntimeException("Target status is required");
+        }
+        Set<Long> orderIds = new LinkedHashSet<>(request.getOrderIds());
+        if (orderIds.size() > MAX_ORDERS) {
+            throw new RuntimeException("At most " + MAX_ORDERS + " orders can be updated at once");
+        }
+
+        OrderStatus target = OrderStatus.valueOf(request.getStatus().toUpperCase());
+        String location = request.getLocation() != null && !request.getLocation().isBlank()
+                ? request.getLocation().trim()
+                : null;
+
+        BulkOrderStatusResultDTO result = new BulkOrderStatusResultDTO();
+        result.setStatus(target.name());
+
+        List<Long> accepted = new ArrayList<>();
+        // Accepted orders that actually change status (not tracking-only updates)
+        List<Long> transitioned = new ArrayList<>();
+        Set<Long> userIds = new HashSet<>();
+        List<OrderStatusNotificationDTO> notifications = new ArrayList<>();
+        Set<Long> found = new HashSet<>();
+        Map<OrderStatus, Long> moved = new EnumMap<>(OrderStatus.class);
+
+        for (Object[] row : orderRepository.lockStatusRowsByIds(orderIds)) {
+            Long orderId = (Long) row[0];
+            OrderStatus current = (OrderStatus) row[1];
+            found.add(orderId);
+
+            // Same status is allowed only as a location-only tracking update
+            boolean trackingOnly = current == target && location != null;
+            if (!trackingOnly && !current.canTransitionTo(target)) {
+                result.getRejected().put(orderId, "Cannot move from " + current + " to " + target);
+                continue;
+            }
+
+            accepted.add(orderId);
+            if (!trackingOnly) {
+                moved.merge(current, 1L, Long::sum);
+                transitioned.add(orderId);
+            }
+            userIds.add((Long) row[2]);
+            notifications.add(new OrderStatusNotificationDTO((String) row[3], (String) row[4], orderId.toString(),
+                    target.name(), location));
+        }
+        for (Long orderId : orderIds) {
+            if (!found.contains(orderId)) {
+                result.getRejected().put(orderId, "Order not found");
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            return result;
+        }
+
+        orderRepository.bulkUpdateStatus(accepted, target, location);
+        // The JPQL update bypasses the entity listeners
+        dashboardCounterService.moveOrdersAfterCommit(moved, target);
+        orderRollupService.refreshAfterCommit(accepted);
+        if (target == OrderStatus.CANCELLED) {
+            restoreStock(accepted);
+            stockReservationService.release(accepted, false);
+            trendingService.recordCancellation(transitioned);
+        }
+        insertTracking(accepted, target, location, request.getDescription());
+        moderatorOrderIndexService.updateStatus(accepted, target);
+        userIds.forEach(orderHistoryService::evict);
+        orderNotificationCoalescer.publishAfterCommit(notifications);
+
+        result.getUpdated().addAll(accepted);
+        log.info("Bulk status update to {}: {} updated, {} rejected", target, accepted.size(),
+                result.getRejected().size());
+        return result;
+    }
+
+    private void restoreStock(List<Long> orderIds) {
+        List<Object[]> quantities = orderItemRepository.sumQuantityByVariant(orderIds);
+        stockReservationService.invalidateStock(quantities.stream().map(row -> (Long) row[0]).toList());
+        jdbcTemplate.batchUpdate("UPDATE product_variant SET quantity = quantity + ? WHERE id = ?", quantities,
+                JDBC_BATCH_SIZE, (ps, row) -> {
+                    ps.setLong(1, ((Number) row[1]).longValue());
+                    ps.setLong(2, (Long) row[0]);
+                });
+    }
+
+    private void insertTracking(List<Long> orderIds, OrderStatus status, String location, String description) {
+        TrackingStatus trackingStatus = OrderService.toTrackingStatus(status);
+        String city = location != null ? location : "";
+        String text = description != null && !description.isBlank() ? description : "Bulk update via Admin Portal";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_tracking (order_id, status, city, state, location, description, timestamp) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                orderIds, JDBC_BATCH_SIZE, (ps, orderId) -> {
+                    ps.setLong(1, orderId);
+                    ps.setString(2, trackingStatus.name());
+                    ps.setString(3, city);
+                    ps.setString(4, "");
+                    ps.setString(5, city + ", ");
+                    ps.setString(6, text);
+                    ps.setTimestamp(7, now);
+                });
+    }
+}
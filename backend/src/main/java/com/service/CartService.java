@@ -21,6 +21,9 @@ public class CartService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private TrendingService trendingService;
+
     // private com.repository.CartItemRepository cartItemRepository;
 
     @Transactional
@@ -121,6 +124,7 @@ public class CartService {
         }
 
         updateTotalAmount(cart);
+        trendingService.recordCartAdd(variant.getProduct());
         return CartMapper.toDTO(cartRepository.save(cart));
     }
 
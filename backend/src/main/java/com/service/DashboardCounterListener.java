@@ -0,0 +1,132 @@
+package com.service;
+
+import com.entity.Category;
+import com.entity.Order;
+import com.entity.OrderStatus;
+import com.entity.Product;
+import com.entity.Role;
+import com.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * DashboardCounterListener
+ * ========================
+ *
+ * Feeds committed JPA writes of users, products and orders into the
+ * {@link DashboardCounterService}. Hibernate calls it only after the
+ * transaction commits, so rolled-back writes never touch the counters.
+ * Updates compare the loaded state with the written one; an update without
+ * a loaded state is left to the next reconciliation.
+ */
+@Component
+public class DashboardCounterListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DashboardCounterService dashboardCounterService;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == User.class || type == Product.class || type == Order.class;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User user) {
+            dashboardCounterService.userChanged(null, user.getRole(), 1);
+        } else if (event.getEntity() instanceof Product product) {
+            dashboardCounterService.productChanged(null, product.getCategory(), 1);
+        } else if (event.getEntity() instanceof Order order) {
+            dashboardCounterService.orderChanged(null, order.getStatus(), order.getTotalAmount(), 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User user) {
+            dashboardCounterService.userChanged(user.getRole(), null, -1);
+        } else if (event.getEntity() instanceof Product product) {
+            dashboardCounterService.productChanged(product.getCategory(), null, -1);
+        } else if (event.getEntity() instanceof Order order) {
+            dashboardCounterService.orderChanged(order.getStatus(), null, -order.getTotalAmount(), -1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        if (event.getEntity() instanceof User user) {
+            Role oldRole = (Role) oldValue(persister, oldState, "role");
+            if (oldRole != user.getRole()) {
+                dashboardCounterService.userChanged(oldRole, user.getRole(), 0);
+            }
+        } else if (event.getEntity() instanceof Product product) {
+            Category oldCategory = (Category) oldValue(persister, oldState, "category");
+            if (oldCategory != product.getCategory()) {
+                dashboardCounterService.productChanged(oldCategory, product.getCategory(), 0);
+            }
+        } else if (event.getEntity() instanceof Order order) {
+            OrderStatus oldStatus = (OrderStatus) oldValue(persister, oldState, "status");
+            Double oldAmount = (Double) oldValue(persister, oldState, "totalAmount");
+            double revenueDelta = oldAmount != null ? order.getTotalAmount() - oldAmount : 0;
+            if (oldStatus != order.getStatus() || revenueDelta != 0) {
+                dashboardCounterService.orderChanged(oldStatus, order.getStatus(), revenueDelta, 0);
+            }
+        }
+    }
+
+    // Nothing was committed, so there is nothing to count
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private static Object oldValue(EntityPersister persister, Object[] oldState, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (Objects.equals(names[i], property)) {
+                return oldState[i];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,274 @@
+package com.service;
+
+import com.entity.Category;
+import com.entity.OrderStatus;
+import com.entity.Role;
+import com.repository.OrderRepository;
+import com.repository.ProductRepository;
+import com.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DashboardCounterService
+ * =======================
+ *
+ * In-memory counters behind the admin dashboards: users by role, products by
+ * category, orders by status (live and archived) and total revenue. Reads
+ * are plain field reads instead of table scans.
+ *
+ * <p>
+ * Counters are adjusted as writes commit: {@link DashboardCounterListener}
+ * sees every JPA insert, update and delete of a user, product or order, and
+ * bulk updates that bypass JPA (such as {@link BulkOrderStatusService}) report
+ * their changes through {@link #moveOrdersAfterCommit}. Every
+ * {@code app.counters.reconcile-interval-ms} the counters are recounted from
+ * the database with a few GROUP BY queries, which also corrects writes made
+ * by plain SQL or by another instance.
+ * </p>
+ */
+@Service
+@Slf4j
+public class DashboardCounterService {
+
+    // Recounts retried when writes land while the queries run
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    private final Map<Role, AtomicLong> usersByRole = counters(Role.class);
+    private final Map<Category, AtomicLong> productsByCategory = counters(Category.class);
+    private final Map<OrderStatus, AtomicLong> ordersByStatus = counters(OrderStatus.class);
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong totalProducts = new AtomicLong();
+    private final AtomicLong totalOrders = new AtomicLong();
+    private final AtomicLong revenueCents = new AtomicLong();
+
+    // Bumped on every adjustment, so a recount can tell whether writes raced it
+    private final AtomicLong writes = new AtomicLong();
+
+    // ---- reads ----
+
+    public long countUsers(Role role) {
+        return usersByRole.get(role).get();
+    }
+
+    public long totalUsers() {
+        return totalUsers.get();
+    }
+
+    public long countProducts(Category category) {
+        return productsByCategory.get(category).get();
+    }
+
+    public long totalProducts() {
+        return totalProducts.get();
+    }
+
+    public long countOrders(OrderStatus status) {
+        return ordersByStatus.get(status).get();
+    }
+
+    public long totalOrders() {
+        return totalOrders.get();
+    }
+
+    /** Status -> count for every status with orders, live and archived. */
+    public Map<String, Long> orderStatusDistribution() {
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        ordersByStatus.forEach((status, count) -> {
+            if (count.get() > 0) {
+                distribution.put(status.name(), count.get());
+            }
+        });
+        return distribution;
+    }
+
+    public double totalRevenue() {
+        return revenueCents.get() / 100.0;
+    }
+
+    // ---- writes (called once the change has committed) ----
+
+    public void userChanged(Role oldRole, Role newRole, int totalDelta) {
+        adjust(usersByRole, oldRole, -1);
+        adjust(usersByRole, newRole, 1);
+        totalUsers.addAndGet(totalDelta);
+        writes.incrementAndGet();
+    }
+
+    public void productChanged(Category oldCategory, Category newCategory, int totalDelta) {
+        adjust(productsByCategory, oldCategory, -1);
+        adjust(productsByCategory, newCategory, 1);
+        totalProducts.addAndGet(totalDelta);
+        writes.incrementAndGet();
+    }
+
+    public void orderChanged(OrderStatus oldStatus, OrderStatus newStatus, double revenueDelta, int totalDelta) {
+        adjust(ordersByStatus, oldStatus, -1);
+        adjust(ordersByStatus, newStatus, 1);
+        totalOrders.addAndGet(totalDelta);
+        revenueCents.addAndGet(Math.round(revenueDelta * 100));
+        writes.incrementAndGet();
+    }
+
+    /**
+     * For bulk status updates that bypass JPA: {@code moved} is the number of
+     * orders that left each status for {@code target}. Applied after the
+     * current transaction commits.
+     */
+    public void moveOrdersAfterCommit(Map<OrderStatus, Long> moved, OrderStatus target) {
+        Runnable apply = () -> {
+            moved.forEach((from, count) -> {
+                adjust(ordersByStatus, from, -count);
+                adjust(ordersByStatus, target, count);
+            });
+            writes.incrementAndGet();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // ---- reconciliation ----
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile(false);
+        log.info("Dashboard counters loaded: {} users, {} products, {} orders", totalUsers(), totalProducts(),
+                totalOrders());
+    }
+
+    /**
+     * Recounts everything from the database and replaces the counters.
+     * Drift found on a scheduled run is logged, since it points at a write
+     * path the counters do not see.
+     */
+    @Scheduled(initialDelayString = "${app.counters.reconcile-interval-ms:600000}",
+            fixedDelayString = "${app.counters.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        reconcile(true);
+    }
+
+    private void reconcile(boolean reportDrift) {
+        long start = System.currentTimeMillis();
+        for (int attempt = 1; attempt <= RECONCILE_ATTEMPTS; attempt++) {
+            long writesBefore = writes.get();
+            Snapshot snapshot = recount();
+            // A write that committed during the recount may or may not be in it; try again
+            if (writes.get() != writesBefore && attempt < RECONCILE_ATTEMPTS) {
+                continue;
+            }
+            apply(snapshot, reportDrift);
+            log.debug("Dashboard counters reconciled in {} ms", System.currentTimeMillis() - start);
+            return;
+        }
+    }
+
+    private Snapshot recount() {
+        Snapshot snapshot = new Snapshot();
+        // Rows without a role/category count towards the totals only
+        for (Object[] row : userRepository.countGroupByRole()) {
+            long count = ((Number) row[1]).longValue();
+            if (row[0] != null) {
+                snapshot.users.put((Role) row[0], count);
+            }
+            snapshot.totalUsers += count;
+        }
+        for (Object[] row : productRepository.countGroupByCategory()) {
+            long count = ((Number) row[1]).longValue();
+            if (row[0] != null) {
+                snapshot.products.put((Category) row[0], count);
+            }
+            snapshot.totalProducts += count;
+        }
+
+        Map<String, Long> statuses = orderArchiveService.statusDistribution();
+        for (Object[] row : orderRepository.getStatusDistribution()) {
+            statuses.merge(row[0].toString(), ((Number) row[1]).longValue(), Long::sum);
+        }
+        statuses.forEach((status, count) -> {
+            snapshot.orders.merge(OrderStatus.valueOf(status), count, Long::sum);
+            snapshot.totalOrders += count;
+        });
+
+        Double revenue = orderRepository.getTotalRevenue();
+        snapshot.revenueCents = Math.round(((revenue != null ? revenue : 0.0) + orderArchiveService.sumRevenue()) * 100);
+        return snapshot;
+    }
+
+    private void apply(Snapshot snapshot, boolean reportDrift) {
+        long drift = replace(usersByRole, snapshot.users)
+                + replace(productsByCategory, snapshot.products)
+                + replace(ordersByStatus, snapshot.orders)
+                + Math.abs(totalUsers.getAndSet(snapshot.totalUsers) - snapshot.totalUsers)
+                + Math.abs(totalProducts.getAndSet(snapshot.totalProducts) - snapshot.totalProducts)
+                + Math.abs(totalOrders.getAndSet(snapshot.totalOrders) - snapshot.totalOrders);
+        long revenueDrift = Math.abs(revenueCents.getAndSet(snapshot.revenueCents) - snapshot.revenueCents);
+        if (reportDrift && (drift > 0 || revenueDrift > 0)) {
+            log.info("Dashboard counters corrected: {} counts off, revenue off by {} cents", drift, revenueDrift);
+        }
+    }
+
+    private static <K extends Enum<K>> long replace(Map<K, AtomicLong> counters, Map<K, Long> actual) {
+        long drift = 0;
+        for (Map.Entry<K, AtomicLong> entry : counters.entrySet()) {
+            long value = actual.getOrDefault(entry.getKey(), 0L);
+            drift += Math.abs(entry.getValue().getAndSet(value) - value);
+        }
+        return drift;
+    }
+
+    private static <K> void adjust(Map<K, AtomicLong> counters, K key, long delta) {
+        if (key != null) {
+            counters.get(key).addAndGet(delta);
+        }
+    }
+
+    private static <K extends Enum<K>> Map<K, AtomicLong> counters(Class<K> type) {
+        // Filled once and never changed structurally, so safe to read from any thread
+        Map<K, AtomicLong> counters = new EnumMap<>(type);
+        for (K key : type.getEnumConstants()) {
+            counters.put(key, new AtomicLong());
+        }
+        return counters;
+    }
+
+    private static class Snapshot {
+        final Map<Role, Long> users = new EnumMap<>(Role.class);
+        final Map<Category, Long> products = new EnumMap<>(Category.class);
+        final Map<OrderStatus, Long> orders = new EnumMap<>(OrderStatus.class);
+        long totalUsers;
+        long totalProducts;
+        long totalOrders;
+        long revenueCents;
+    }
+}
@@ -0,0 +1,102 @@
+package com.service;
+
+import com.util.EmailTemplate;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EmailTemplateService
+ * ====================
+ *
+ * Email bodies from {@code resources/templates/email}: {@code <name>.html}
+ * and its plain-text alternative {@code <name>.txt}. All templates are read
+ * and compiled at startup, already merged into {@code layout.html} /
+ * {@code layout.txt} (at their {@code {{{body}}}} placeholder), so sending an
+ * email renders each part in one pass into a reused per-thread buffer.
+ *
+ * <p>
+ * Every template can use {@code frontendUrl} and {@code year} besides its own
+ * values.
+ * </p>
+ */
+@Service
+@Slf4j
+public class EmailTemplateService {
+
+    private static final String LOCATION = "classpath:templates/email/";
+    private static final String LAYOUT = "layout";
+    // Buffers that grew past this (a huge email) are not kept for reuse
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    @Value("${app.frontend.url}")
+    private String frontendUrl;
+
+    private final Map<String, EmailTemplate> htmlTemplates = new HashMap<>();
+    private final Map<String, EmailTemplate> textTemplates = new HashMap<>();
+
+    public record RenderedEmail(String html, String text) {
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            EmailTemplate htmlLayout = compile(resolver.getResource(LOCATION + LAYOUT + ".html"), true);
+            EmailTemplate textLayout = compile(resolver.getResource(LOCATION + LAYOUT + ".txt"), false);
+
+            for (Resource resource : resolver.getResources(LOCATION + "*.html")) {
+                String name = resource.getFilename().substring(0, resource.getFilename().length() - 5);
+                if (name.equals(LAYOUT)) {
+                    continue;
+                }
+                Resource text = resolver.getResource(LOCATION + name + ".txt");
+                if (!text.exists()) {
+                    throw new IllegalStateException("Email template " + name + " has no plain-text version");
+                }
+                htmlTemplates.put(name, htmlLayout.inline("body", compile(resource, true)));
+                textTemplates.put(name, textLayout.inline("body", compile(text, false)));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load email templates", e);
+        }
+        log.info("Loaded {} email templates", htmlTemplates.size());
+    }
+
+    public RenderedEmail render(String name, Map<String, ?> values) {
+        EmailTemplate html = htmlTemplates.get(name);
+        if (html == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        Map<String, Object> all = new HashMap<>(values);
+        all.putIfAbsent("frontendUrl", frontendUrl);
+        all.putIfAbsent("year", Year.now().getValue());
+        return new RenderedEmail(render(html, all), render(textTemplates.get(name), all));
+    }
+
+    private static String render(EmailTemplate template, Map<String, ?> values) {
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        template.render(values, buffer);
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_POOLED_CAPACITY) {
+            BUFFERS.remove();
+        }
+        return result;
+    }
+
+    private static EmailTemplate compile(Resource resource, boolean html) throws IOException {
+        return EmailTemplate.compile(resource.getContentAsString(StandardCharsets.UTF_8), html);
+    }
+}
@@ -0,0 +1,229 @@
+package com.service;
+
+import com.entity.IdempotencyRecord;
+import com.exception.IdempotencyConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * IdempotencyService
+ * ==================
+ *
+ * Executes an operation at most once per {@code Idempotency-Key}.
+ *
+ * <ul>
+ * <li>Repeats of a completed key replay the stored JSON response.</li>
+ * <li>Concurrent duplicates on this node wait for the in-flight execution and
+ * share its result; a different request under the same key gets a 409.</li>
+ * <li>Duplicates racing on another node lose the primary-key claim and get a
+ * 409 until the first request finishes.</li>
+ * </ul>
+ *
+ * Failed executions release their claim so the client can retry.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // An IN_PROGRESS claim older than this is treated as abandoned (crashed node)
+    @Value("${app.idempotency.lock-timeout-seconds:120}")
+    private long lockTimeoutSeconds;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run {@code action} once for the given key, or return the response recorded
+     * for an earlier request with the same key. A blank key disables
+     * idempotency and simply runs the action.
+     *
+     * @param key          client supplied Idempotency-Key header (may be null)
+     * @param userId       caller, keys are scoped per user
+     * @param scope        operation name, keys are scoped per operation
+     * @param request      request payload, used to detect key reuse
+     * @param responseType type used to deserialize a replayed response
+     * @param action       the operation to protect
+     */
+    public <T> T execute(String key, Long userId, String scope, Object request, Class<T> responseType,
+            Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String recordKey = scope + ":" + userId + ":" + key.trim();
+        String requestHash = hash(request);
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        InFlight claimed = new InFlight(requestHash, mine);
+        InFlight running = inFlight.putIfAbsent(recordKey, claimed);
+        if (running != null) {
+            if (!running.requestHash.equals(requestHash)) {
+                throw new IdempotencyConflictException("Idempotency-Key was already used for a different request");
+            }
+            // Coalesce: same key is already executing on this node
+            return deserialize(await(running.response), responseType);
+        }
+
+        try {
+            String replay = claim(recordKey, requestHash);
+            if (replay != null) {
+                mine.complete(replay);
+                return deserialize(replay, responseType);
+            }
+
+            T result;
+            try {
+                result = action.get();
+            } catch (RuntimeException e) {
+                idempotencyRecordRepository.release(recordKey);
+                throw e;
+            }
+
+            String body = serialize(result);
+            idempotencyRecordRepository.complete(recordKey, body, LocalDateTime.now().plusHours(ttlHours));
+            mine.complete(body);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(recordKey, claimed);
+        }
+    }
+
+    /**
+     * Claims the key for this request. Returns the stored response body when the
+     * key was already completed, or null when the caller now owns the key.
+     */
+    private String claim(String recordKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord existing = idempotencyRecordRepository.findById(recordKey).orElse(null);
+
+        if (existing != null) {
+            boolean expired = existing.getExpiresAt().isBefore(now);
+            boolean abandoned = existing.getStatus() == IdempotencyRecord.Status.IN_PROGRESS
+                    && existing.getCreatedAt().plusSeconds(lockTimeoutSeconds).isBefore(now);
+
+            if (!expired && !abandoned) {
+                return replayOrConflict(existing, requestHash);
+            }
+            // Conditional on the row we read, so a claim another node just made is never overwritten
+            int taken = idempotencyRecordRepository.takeOver(recordKey, requestHash, now, now.plusHours(ttlHours),
+                    existing.getStatus(), existing.getCreatedAt(), existing.getExpiresAt());
+            if (taken == 1) {
+                return null;
+            }
+            IdempotencyRecord winner = idempotencyRecordRepository.findById(recordKey).orElse(null);
+            if (winner != null) {
+                return replayOrConflict(winner, requestHash);
+            }
+            // The old row was purged in the meantime; claim with a plain insert
+        }
+
+        try {
+            idempotencyRecordRepository.claim(recordKey, requestHash, now, now.plusHours(ttlHours));
+            return null;
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race to another node
+            IdempotencyRecord winner = idempotencyRecordRepository.findById(recordKey)
+                    .orElseThrow(() -> new IdempotencyConflictException("Request with this key is being processed"));
+            return replayOrConflict(winner, requestHash);
+        }
+    }
+
+    private String replayOrConflict(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("Idempotency-Key was already used for a different request");
+        }
+        if (record.getStatus() == IdempotencyRecord.Status.IN_PROGRESS) {
+            throw new IdempotencyConflictException("Request with this key is being processed");
+        }
+        return record.getResponseBody();
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<String> response) {
+    }
+
+    private String await(CompletableFuture<String> running) {
+        try {
+            return running.get(lockTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("Request with this key is being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted while waiting for duplicate request");
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to store idempotent response", e);
+        }
+    }
+
+    private <T> T deserialize(String body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to replay idempotent response", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(serialize(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:900000}")
+    public void purgeExpired() {
+        int removed = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("Purged {} expired idempotency keys", removed);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * InvoiceArtifactStore
+ * ====================
+ *
+ * File store for rendered invoice PDFs, addressed by order id and the
+ * fingerprint of the invoice content ({@code <dir>/<orderId>/<fingerprint>.pdf}).
+ * A file is written once (atomically, via a temp file) and never modified;
+ * a changed order gets a new fingerprint and a new file. A superseded version
+ * is kept for {@code app.invoices.superseded-grace-minutes} after its
+ * replacement was written, so downloads that already resolved its path can
+ * finish, and is removed by the next store for that order or the periodic
+ * sweep.
+ */
+@Service
+@Slf4j
+public class InvoiceArtifactStore {
+
+    private final Path root;
+    private final long graceMinutes;
+
+    public InvoiceArtifactStore(@Value("${app.invoices.dir:invoices}") String dir,
+            @Value("${app.invoices.superseded-grace-minutes:10}") long graceMinutes) {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.graceMinutes = graceMinutes;
+    }
+
+    /**
+     * The stored file for this version, or null if it was never written.
+     */
+    public Path find(Long orderId, String fingerprint) {
+        Path file = pathOf(orderId, fingerprint);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * Stores a new version; {@code content} writes the PDF straight into the
+     * (temporary) file.
+     */
+    public Path store(Long orderId, String fingerprint, Consumer<OutputStream> content) {
+        Path target = pathOf(orderId, fingerprint);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), fingerprint, ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 16 * 1024)) {
+                content.accept(out);
+            } catch (RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store invoice for order " + orderId, e);
+        }
+        removeSupersededVersions(target.getParent(), graceCutoff());
+        return target;
+    }
+
+    /**
+     * Deletes versions whose grace period has passed, across all orders.
+     */
+    @Scheduled(fixedDelayString = "${app.invoices.cleanup-ms:3600000}")
+    public void removeSupersededVersions() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = graceCutoff();
+        try (DirectoryStream<Path> orderDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path orderDir : orderDirs) {
+                removeSupersededVersions(orderDir, cutoff);
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep old invoices in {}: {}", root, e.getMessage());
+        }
+    }
+
+    /**
+     * Each version was superseded when the next newer one was written; versions
+     * superseded before {@code cutoff} are deleted, the newest is always kept.
+     */
+    private void removeSupersededVersions(Path orderDir, Instant cutoff) {
+        try {
+            List<Map.Entry<Path, FileTime>> versions = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(orderDir, "*.pdf")) {
+                for (Path file : files) {
+                    versions.add(Map.entry(file, Files.getLastModifiedTime(file)));
+                }
+            }
+            versions.sort(Map.Entry.<Path, FileTime>comparingByValue(Comparator.reverseOrder()));
+            for (int i = 1; i < versions.size(); i++) {
+                if (versions.get(i - 1).getValue().toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(versions.get(i).getKey());
+                }
+            }
+        } catch (IOException e) {
+            // Stale versions only cost disk space
+            log.warn("Could not clean old invoices in {}: {}", orderDir, e.getMessage());
+        }
+    }
+
+    private Instant graceCutoff() {
+        return Instant.now().minus(graceMinutes, ChronoUnit.MINUTES);
+    }
+
+    private Path pathOf(Long orderId, String fingerprint) {
+        return root.resolve(String.valueOf(orderId)).resolve(fingerprint + ".pdf");
+    }
+}
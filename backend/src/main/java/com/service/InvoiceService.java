@@ -3,27 +3,73 @@ package com.service;
 import com.entity.Order;
 import com.entity.OrderItem;
 import com.lowagie.text.*;
+import com.lowagie.text.pdf.ColumnText;
+import com.lowagie.text.pdf.PdfContentByte;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfReader;
 import com.lowagie.text.pdf.PdfWriter;
+import com.exception.ServiceBusyException;
 import com.repository.OrderRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * InvoiceService
+ * ==============
+ *
+ * Renders order invoices as PDF. A rendered invoice is kept in the
+ * {@link InvoiceArtifactStore} under a fingerprint of everything printed on it
+ * (customer, address, items, amounts, payment details), so downloads and
+ * emails reuse the stored file and the PDF is laid out again only when the
+ * order actually changed.
+ *
+ * <p>
+ * In the default template mode the parts of the page that never change are
+ * rendered once into a cached one-page PDF; each invoice imports that page as
+ * a form XObject and only draws the buyer, item rows and totals on top.
+ * </p>
+ */
 @Service
 public class InvoiceService {
 
+    // Bump when the layout changes so stored invoices are rendered again
+    private static final String LAYOUT_VERSION = "1";
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private InvoiceArtifactStore invoiceArtifactStore;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    /**
+     * A stored invoice PDF; {@code fingerprint} doubles as its ETag.
+     */
+    public record InvoiceArtifact(Long orderId, String fingerprint, Path path, long size) {
+    }
+
     // Font Configuration
     private static final Font FONT_TITLE = FontFactory.getFont(FontFactory.HELVETICA, 14, Font.BOLD);
     private static final Font FONT_SUBTITLE = FontFactory.getFont(FontFactory.HELVETICA, 10, Font.BOLD);
@@ -32,17 +78,379 @@ public class InvoiceService {
     private static final Font FONT_SMALL = FontFactory.getFont(FontFactory.HELVETICA, 8, Font.NORMAL);
     private static final Font FONT_TABLE_HEADER = FontFactory.getFont(FontFactory.HELVETICA, 8, Font.BOLD);
 
+    // Products table: Sl, Desc, Unit Price, Qty, Net Amt, Tax Rate, Tax Type, Tax Amt, Total
+    private static final float[] ITEM_COLUMN_WIDTHS = { 0.5f, 4f, 1.2f, 0.6f, 1.2f, 0.8f, 0.8f, 1.2f, 1.5f };
+    private static final String[] ITEM_HEADERS = { "Sl. No", "Description", "Unit Price", "Qty", "Net Amount",
+            "Tax Rate", "Tax Type", "Tax Amount", "Total Amount" };
+
+    // Template mode page geometry (A4, 20pt margins), in PDF points from the bottom left
+    private static final float PAGE_LEFT = 20;
+    private static final float PAGE_RIGHT = 575;
+    private static final float CONTENT_WIDTH = PAGE_RIGHT - PAGE_LEFT;
+    private static final float RIGHT_COLUMN_X = 300;
+    private static final float ITEMS_TOP = 550;
+    private static final float ITEMS_BOTTOM = 245;
+    private static final float FOOTER_TOP = 235;
+    private static final float FOOTER_HEIGHT = 120;
+    private static final float WORDS_BOX_RIGHT = PAGE_LEFT + CONTENT_WIDTH * 0.6f;
+    private static final float BOTTOM_BAR_TOP = 85;
+    private static final float BOTTOM_BAR_HEIGHT = 35;
+    private static final float[] BOTTOM_BAR_WIDTHS = { CONTENT_WIDTH / 4, CONTENT_WIDTH / 4, CONTENT_WIDTH / 4,
+            CONTENT_WIDTH / 4 };
+
+    /**
+     * "template" stamps each order onto a pre-rendered page holding the static
+     * layout; "flow" lays the whole document out per order (and is what
+     * template mode falls back to when the items need more than one page).
+     */
+    @Value("${app.invoices.render-mode:template}")
+    private String renderMode;
+
+    private volatile StaticLayout staticLayout;
+
+    private final Semaphore renderPermits;
+
+    @Value("${app.invoices.render.wait-ms:10000}")
+    private long renderWaitMs;
+
+    public InvoiceService(@Value("${app.invoices.render.max-concurrent:8}") int maxConcurrentRenders) {
+        this.renderPermits = new Semaphore(maxConcurrentRenders);
+    }
+
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public byte[] generateInvoice(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        try {
+            return Files.readAllBytes(getInvoice(orderId).path());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read invoice for order " + orderId, e);
+        }
+    }
+
+    /**
+     * The stored invoice of the order, rendered first if the order changed
+     * since it was last stored (or it never was).
+     */
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public InvoiceArtifact getInvoice(Long orderId) {
+        return getInvoice(findOrder(orderId));
+    }
+
+    /** The live order, or its archived copy once it has been archived. */
+    private Order findOrder(Long orderId) {
+        return orderRepository.findById(orderId)
+                .or(() -> orderArchiveService.loadOrder(orderId))
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
-        return generateInvoiceFromOrder(order);
     }
 
-    private byte[] generateInvoiceFromOrder(Order order) {
+    InvoiceArtifact getInvoice(Order order) {
+        String fingerprint = fingerprint(order);
+        Path file = invoiceArtifactStore.find(order.getId(), fingerprint);
+        if (file == null) {
+            file = invoiceArtifactStore.store(order.getId(), fingerprint, out -> render(order, out));
+        }
+        try {
+            return new InvoiceArtifact(order.getId(), fingerprint, file, Files.size(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read invoice for order " + order.getId(), e);
+        }
+    }
+
+    /**
+     * Hash of every order field the invoice prints. Equal fingerprints mean an
+     * identical invoice, so the stored PDF can be reused.
+     */
+    private String fingerprint(Order order) {
+        StringBuilder content = new StringBuilder(256).append(LAYOUT_VERSION).append(renderMode)
+                .append('|').append(order.getId())
+                .append('|').append(order.getUser().getName())
+                .append('|').append(order.getShippingAddress())
+                .append('|').append(order.getOrderDate())
+                .append('|').append(order.getTotalAmount())
+                .append('|').append(order.getPaymentReference())
+                .append('|').append(order.getPaymentMethod());
+        for (OrderItem item : order.getItems()) {
+            content.append('|').append(item.getVariant().getProduct().getName())
+                    .append(',').append(item.getVariant().getColor())
+                    .append(',').append(item.getVariant().getSize())
+                    .append(',').append(item.getQuantity())
+                    .append(',').append(item.getPrice());
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the invoice PDF to {@code out} as it is laid out. At most
+     * {@code app.invoices.render.max-concurrent} invoices are rendered at once
+     * (each holds its document in memory); further callers wait up to
+     * {@code app.invoices.render.wait-ms} and are then turned away.
+     */
+    private void render(Order order, OutputStream out) {
+        try {
+            if (!renderPermits.tryAcquire(renderWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new ServiceBusyException("Too many invoices being generated, try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to render invoice", e);
+        }
+        try {
+            if ("template".equalsIgnoreCase(renderMode) && generateInvoiceFromTemplate(order, out)) {
+                return;
+            }
+            generateInvoiceFromOrder(order, out);
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    // ==================== TEMPLATE MODE ====================
+
+    /**
+     * Stamps the order onto the pre-rendered static page (see
+     * {@link #staticLayout()}): only the buyer block, order numbers, item rows,
+     * totals and payment details are laid out per invoice. Returns false,
+     * without writing anything, when the items do not fit on the single
+     * template page, or when the buyer block, amount in words or a bottom bar
+     * value overflow their fixed boxes, so the caller falls back to the flowing
+     * layout.
+     */
+    boolean generateInvoiceFromTemplate(Order order, OutputStream out) {
+        PdfPTable items = new PdfPTable(ITEM_COLUMN_WIDTHS);
+        items.setTotalWidth(CONTENT_WIDTH);
+        items.setLockedWidth(true);
+        double[] itemTotals = addItemRows(items, order);
+        addTotalRow(items, order);
+        if (items.getTotalHeight() > ITEMS_TOP - staticLayout().headerHeight - ITEMS_BOTTOM) {
+            return false;
+        }
+        String buyer = order.getUser().getName() + "\n" + formatAddress(order.getShippingAddress());
+        String amountInWords = convertAmountToWords((long) order.getTotalAmount()) + " only";
+        String[] barValues = {
+                order.getPaymentReference() != null ? order.getPaymentReference() : "N/A",
+                order.getOrderDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")),
+                "₹" + String.format("%.2f", order.getTotalAmount()),
+                order.getPaymentMethod() != null ? order.getPaymentMethod().toUpperCase() : "Prepaid" };
+        for (int i = 0; i < barValues.length; i++) {
+            if (!fitsLine(barValues[i], FONT_SMALL, BOTTOM_BAR_WIDTHS[i] - 10)) {
+                return false;
+            }
+        }
+        try {
+            if (!fitsBlock(buyer, Element.ALIGN_RIGHT, RIGHT_COLUMN_X, 702, PAGE_RIGHT, 756)
+                    || !fitsBlock(buyer, Element.ALIGN_RIGHT, RIGHT_COLUMN_X, 624, PAGE_RIGHT, 676)
+                    || !fitsBlock(amountInWords, Element.ALIGN_LEFT, PAGE_LEFT + 10, FOOTER_TOP - 52,
+                            WORDS_BOX_RIGHT - 10, FOOTER_TOP - 22)) {
+                return false;
+            }
+        } catch (DocumentException e) {
+            throw new RuntimeException("Error generating invoice PDF", e);
+        }
+
+        PdfReader reader = null;
+        try {
+            reader = new PdfReader(staticLayout().pdf);
+            Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            document.open();
+            PdfContentByte cb = writer.getDirectContent();
+            cb.addTemplate(writer.getImportedPage(reader, 1), 0, 0);
+
+            // Buyer
+            stampBlock(cb, buyer, Element.ALIGN_RIGHT, RIGHT_COLUMN_X, 702, PAGE_RIGHT, 756);
+            stampBlock(cb, buyer, Element.ALIGN_RIGHT, RIGHT_COLUMN_X, 624, PAGE_RIGHT, 676);
+
+            // Order and invoice numbers
+            String date = order.getOrderDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+            stamp(cb, "Order Number: " + order.getId(), FONT_BODY_BOLD, Element.ALIGN_LEFT, PAGE_LEFT, 575);
+            stamp(cb, "Order Date: " + date, FONT_BODY_BOLD, Element.ALIGN_LEFT, PAGE_LEFT, 563);
+            stamp(cb, "Invoice Number: INV-" + order.getId() + "-2026", FONT_BODY_BOLD, Element.ALIGN_RIGHT,
+                    PAGE_RIGHT, 575);
+            stamp(cb, "Invoice Date: " + date, FONT_BODY_BOLD, Element.ALIGN_RIGHT, PAGE_RIGHT, 563);
+
+            // Item rows directly below the pre-rendered header row
+            items.writeSelectedRows(0, -1, PAGE_LEFT, ITEMS_TOP - staticLayout().headerHeight, cb);
+
+            // Amount in words and tax summary
+            stampBlock(cb, amountInWords, Element.ALIGN_LEFT, PAGE_LEFT + 10, FOOTER_TOP - 52,
+                    WORDS_BOX_RIGHT - 10, FOOTER_TOP - 22);
+            float y = FOOTER_TOP - 74;
+            stamp(cb, String.format("Taxable Value: ₹%.2f", itemTotals[0]), FONT_SMALL, Element.ALIGN_LEFT,
+                    PAGE_LEFT + 10, y);
+            stamp(cb, String.format("CGST (9%%): ₹%.2f", itemTotals[1] / 2), FONT_SMALL, Element.ALIGN_LEFT,
+                    PAGE_LEFT + 10, y - 10);
+            stamp(cb, String.format("SGST (9%%): ₹%.2f", itemTotals[1] / 2), FONT_SMALL, Element.ALIGN_LEFT,
+                    PAGE_LEFT + 10, y - 20);
+            stamp(cb, String.format("Total Tax: ₹%.2f", itemTotals[1]), FONT_BODY_BOLD, Element.ALIGN_LEFT,
+                    PAGE_LEFT + 10, y - 31);
+
+            // Bottom info bar values
+            float x = PAGE_LEFT;
+            for (int i = 0; i < barValues.length; i++) {
+                stamp(cb, barValues[i], FONT_SMALL, Element.ALIGN_LEFT, x + 5, BOTTOM_BAR_TOP - 24);
+                x += BOTTOM_BAR_WIDTHS[i];
+            }
+
+            document.close();
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException("Error generating invoice PDF", e);
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Everything on the invoice page that is the same for every order, rendered
+     * once into a one-page PDF whose page is imported as a form XObject.
+     */
+    private StaticLayout staticLayout() {
+        StaticLayout layout = staticLayout;
+        if (layout == null) {
+            synchronized (this) {
+                if (staticLayout == null) {
+                    staticLayout = renderStaticLayout();
+                }
+                layout = staticLayout;
+            }
+        }
+        return layout;
+    }
+
+    private StaticLayout renderStaticLayout() {
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
             Document document = new Document(PageSize.A4, 20, 20, 20, 20);
-            PdfWriter.getInstance(document, out);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            document.open();
+            PdfContentByte cb = writer.getDirectContent();
+
+            // Header
+            stamp(cb, "SnapCart", FontFactory.getFont(FontFactory.HELVETICA, 24, Font.BOLD), Element.ALIGN_LEFT,
+                    PAGE_LEFT, 796);
+            stamp(cb, "Tax Invoice/Bill of Supply/Cash Memo", FONT_TITLE, Element.ALIGN_RIGHT, PAGE_RIGHT, 808);
+            stamp(cb, "(Original for Recipient)", FONT_TITLE, Element.ALIGN_RIGHT, PAGE_RIGHT, 792);
+
+            // Seller
+            stamp(cb, "Sold By:", FONT_SUBTITLE, Element.ALIGN_LEFT, PAGE_LEFT, 760);
+            stamp(cb, "SNAPCART RETAIL PRIVATE LIMITED", FONT_BODY_BOLD, Element.ALIGN_LEFT, PAGE_LEFT, 746);
+            stamp(cb, "Building 101, Tech Park, Electronic City", FONT_BODY, Element.ALIGN_LEFT, PAGE_LEFT, 734);
+            stamp(cb, "Bengaluru, Karnataka, 560100", FONT_BODY, Element.ALIGN_LEFT, PAGE_LEFT, 723);
+            stamp(cb, "IN", FONT_BODY, Element.ALIGN_LEFT, PAGE_LEFT, 712);
+            stamp(cb, "PAN No: ABCDE1234F", FONT_BODY_BOLD, Element.ALIGN_LEFT, PAGE_LEFT, 694);
+            stamp(cb, "GST Registration No: 29ABCDE1234F1Z5", FONT_BODY_BOLD, Element.ALIGN_LEFT, PAGE_LEFT, 682);
+
+            // Buyer labels (name and address are stamped per order)
+            stamp(cb, "Billing Address:", FONT_SUBTITLE, Element.ALIGN_RIGHT, PAGE_RIGHT, 760);
+            stamp(cb, "State/UT Code: 29", FONT_BODY_BOLD, Element.ALIGN_RIGHT, PAGE_RIGHT, 694);
+            stamp(cb, "Shipping Address:", FONT_SUBTITLE, Element.ALIGN_RIGHT, PAGE_RIGHT, 680);
+            stamp(cb, "State/UT Code: 29", FONT_BODY_BOLD, Element.ALIGN_RIGHT, PAGE_RIGHT, 616);
+            stamp(cb, "Place of supply: KARNATAKA", FONT_BODY_BOLD, Element.ALIGN_RIGHT, PAGE_RIGHT, 605);
+            stamp(cb, "Place of delivery: KARNATAKA", FONT_BODY_BOLD, Element.ALIGN_RIGHT, PAGE_RIGHT, 594);
+
+            // Item table header row
+            PdfPTable header = new PdfPTable(ITEM_COLUMN_WIDTHS);
+            header.setTotalWidth(CONTENT_WIDTH);
+            header.setLockedWidth(true);
+            for (String title : ITEM_HEADERS) {
+                addTableHeader(header, title);
+            }
+            float headerHeight = header.getTotalHeight();
+            header.writeSelectedRows(0, -1, PAGE_LEFT, ITEMS_TOP, cb);
+
+            // Footer boxes: amount in words / tax summary and signatory
+            cb.setLineWidth(0.5f);
+            cb.rectangle(PAGE_LEFT, FOOTER_TOP - FOOTER_HEIGHT, WORDS_BOX_RIGHT - PAGE_LEFT, FOOTER_HEIGHT);
+            cb.rectangle(WORDS_BOX_RIGHT, FOOTER_TOP - FOOTER_HEIGHT, PAGE_RIGHT - WORDS_BOX_RIGHT, FOOTER_HEIGHT);
+            float x = PAGE_LEFT;
+            for (float width : BOTTOM_BAR_WIDTHS) {
+                cb.rectangle(x, BOTTOM_BAR_TOP - BOTTOM_BAR_HEIGHT, width, BOTTOM_BAR_HEIGHT);
+                x += width;
+            }
+            cb.stroke();
+            stamp(cb, "Amount in Words:", FONT_BODY_BOLD, Element.ALIGN_LEFT, PAGE_LEFT + 10, FOOTER_TOP - 18);
+            stamp(cb, "Tax Summary:", FONT_SUBTITLE, Element.ALIGN_LEFT, PAGE_LEFT + 10, FOOTER_TOP - 62);
+            stamp(cb, "For SNAPCART RETAIL PRIVATE LIMITED:", FONT_BODY_BOLD, Element.ALIGN_RIGHT, PAGE_RIGHT - 10,
+                    FOOTER_TOP - 18);
+            stamp(cb, "Authorized Signatory", FONT_BODY, Element.ALIGN_RIGHT, PAGE_RIGHT - 10,
+                    FOOTER_TOP - FOOTER_HEIGHT + 12);
+            stamp(cb, "Whether tax is payable under reverse charge - No", FONT_BODY, Element.ALIGN_LEFT, PAGE_LEFT,
+                    FOOTER_TOP - FOOTER_HEIGHT - 14);
+
+            // Bottom info bar labels
+            String[] labels = { "Payment Transaction ID:", "Date & Time:", "Invoice Value:", "Mode of Payment:" };
+            x = PAGE_LEFT;
+            for (int i = 0; i < labels.length; i++) {
+                stamp(cb, labels[i], FONT_SMALL, Element.ALIGN_LEFT, x + 5, BOTTOM_BAR_TOP - 13);
+                x += BOTTOM_BAR_WIDTHS[i];
+            }
+
+            document.close();
+            return new StaticLayout(out.toByteArray(), headerHeight);
+        } catch (Exception e) {
+            throw new RuntimeException("Error rendering invoice template", e);
+        }
+    }
+
+    private static void stamp(PdfContentByte cb, String text, Font font, int align, float x, float y) {
+        ColumnText.showTextAligned(cb, align, new Phrase(text, font), x, y, 0);
+    }
+
+    /**
+     * Wrapped text in the box (llx, lly)-(urx, ury).
+     */
+    private static void stampBlock(PdfContentByte cb, String text, int align, float llx, float lly, float urx,
+            float ury) throws DocumentException {
+        block(cb, text, align, llx, lly, urx, ury).go();
+    }
+
+    /**
+     * Whether {@link #stampBlock} would fit all of {@code text} in the box; the
+     * column is laid out in simulation mode, so nothing is drawn.
+     */
+    private static boolean fitsBlock(String text, int align, float llx, float lly, float urx, float ury)
+            throws DocumentException {
+        return !ColumnText.hasMoreText(block(null, text, align, llx, lly, urx, ury).go(true));
+    }
+
+    /** Whether {@code text} on one line in {@code font} is at most {@code width} points wide. */
+    private static boolean fitsLine(String text, Font font, float width) {
+        return font.getCalculatedBaseFont(false).getWidthPoint(text, font.getCalculatedSize()) <= width;
+    }
+
+    private static ColumnText block(PdfContentByte cb, String text, int align, float llx, float lly, float urx,
+            float ury) {
+        ColumnText column = new ColumnText(cb);
+        column.setSimpleColumn(llx, lly, urx, ury);
+        column.setAlignment(align);
+        column.setLeading(11);
+        column.addText(new Phrase(text, FONT_BODY));
+        return column;
+    }
+
+    private static final class StaticLayout {
+        final byte[] pdf;
+        final float headerHeight;
+
+        StaticLayout(byte[] pdf, float headerHeight) {
+            this.pdf = pdf;
+            this.headerHeight = headerHeight;
+        }
+    }
+
+    // ==================== FLOW MODE ====================
+
+    private void generateInvoiceFromOrder(Order order, OutputStream out) {
+        try {
+            Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+            PdfWriter.getInstance(document, out).setCloseStream(false);
 
             document.open();
 
@@ -154,70 +562,20 @@ public class InvoiceService {
             // 4. Products Table
             // Columns: Sl(0.5), Desc(4), Unit Price(1), Qty(0.5), Net Amt(1), Tax
             // Rate(0.5), Tax Type(0.5), Tax Amt(1), Total(1)
-            float[] columnWidths = { 0.5f, 4f, 1.2f, 0.6f, 1.2f, 0.8f, 0.8f, 1.2f, 1.5f };
-            PdfPTable table = new PdfPTable(columnWidths);
+            PdfPTable table = new PdfPTable(ITEM_COLUMN_WIDTHS);
             table.setWidthPercentage(100);
             table.setHeaderRows(1);
 
             // Headers
-            addTableHeader(table, "Sl. No");
-            addTableHeader(table, "Description");
-            addTableHeader(table, "Unit Price");
-            addTableHeader(table, "Qty");
-            addTableHeader(table, "Net Amount");
-            addTableHeader(table, "Tax Rate");
-            addTableHeader(table, "Tax Type");
-            addTableHeader(table, "Tax Amount");
-            addTableHeader(table, "Total Amount");
-
-            AtomicInteger slNo = new AtomicInteger(1);
-            double totalTaxAmount = 0;
-            double totalBaseAmount = 0;
-
-            // Assumption: Prices are GST Inclusive (18%)
-            double gstRate = 0.18;
-
-            for (OrderItem item : order.getItems()) {
-                double totalItemPriceInclusive = item.getPrice() * item.getQuantity();
-
-                // Back-calculate Base Price and Tax
-                double baseAmount = totalItemPriceInclusive / (1 + gstRate);
-                double taxAmount = totalItemPriceInclusive - baseAmount;
-
-                double cgstAmount = taxAmount / 2;
-                double sgstAmount = taxAmount / 2;
-
-                double unitBasePrice = baseAmount / item.getQuantity();
-
-                totalBaseAmount += baseAmount;
-                totalTaxAmount += taxAmount;
-
-                addTableCell(table, String.valueOf(slNo.getAndIncrement()), Element.ALIGN_CENTER);
-
-                String description = item.getVariant().getProduct().getName() + "\n" +
-                        "Color: " + item.getVariant().getColor() + " | Size: " + item.getVariant().getSize() + "\n" +
-                        "HSN: 6404";
-                addTableCell(table, description, Element.ALIGN_LEFT);
-                addTableCell(table, String.format("₹%.2f", unitBasePrice), Element.ALIGN_RIGHT);
-                addTableCell(table, String.valueOf(item.getQuantity()), Element.ALIGN_CENTER);
-                addTableCell(table, String.format("₹%.2f", baseAmount), Element.ALIGN_RIGHT);
-                addTableCell(table, "9%\n9%", Element.ALIGN_CENTER);
-                addTableCell(table, "CGST\nSGST", Element.ALIGN_CENTER);
-                addTableCell(table, String.format("₹%.2f\n₹%.2f", cgstAmount, sgstAmount), Element.ALIGN_RIGHT);
-                addTableCell(table, String.format("₹%.2f", totalItemPriceInclusive), Element.ALIGN_RIGHT);
+            for (String header : ITEM_HEADERS) {
+                addTableHeader(table, header);
             }
 
-            // Total Row
-            PdfPCell totalLabelCell = new PdfPCell(new Phrase("TOTAL:", FONT_BODY_BOLD));
-            totalLabelCell.setColspan(8);
-            totalLabelCell.setBorderWidth(1);
-            table.addCell(totalLabelCell);
+            double[] itemTotals = addItemRows(table, order);
+            double totalBaseAmount = itemTotals[0];
+            double totalTaxAmount = itemTotals[1];
 
-            PdfPCell totalValueCell = new PdfPCell(
-                    new Phrase("₹" + String.format("%.2f", order.getTotalAmount()), FONT_BODY_BOLD));
-            totalValueCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            totalValueCell.setBorderWidth(1);
-            table.addCell(totalValueCell);
+            addTotalRow(table, order);
 
             document.add(table);
 
@@ -275,7 +633,6 @@ public class InvoiceService {
             document.add(bottomTable);
 
             document.close();
-            return out.toByteArray();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -283,6 +640,62 @@ public class InvoiceService {
         }
     }
 
+    /**
+     * Adds one row per order item. Returns {taxable value, tax}.
+     */
+    private double[] addItemRows(PdfPTable table, Order order) {
+        AtomicInteger slNo = new AtomicInteger(1);
+        double totalTaxAmount = 0;
+        double totalBaseAmount = 0;
+
+        // Assumption: Prices are GST Inclusive (18%)
+        double gstRate = 0.18;
+
+        for (OrderItem item : order.getItems()) {
+            double totalItemPriceInclusive = item.getPrice() * item.getQuantity();
+
+            // Back-calculate Base Price and Tax
+            double baseAmount = totalItemPriceInclusive / (1 + gstRate);
+            double taxAmount = totalItemPriceInclusive - baseAmount;
+
+            double cgstAmount = taxAmount / 2;
+            double sgstAmount = taxAmount / 2;
+
+            double unitBasePrice = baseAmount / item.getQuantity();
+
+            totalBaseAmount += baseAmount;
+            totalTaxAmount += taxAmount;
+
+            addTableCell(table, String.valueOf(slNo.getAndIncrement()), Element.ALIGN_CENTER);
+
+            String description = item.getVariant().getProduct().getName() + "\n" +
+                    "Color: " + item.getVariant().getColor() + " | Size: " + item.getVariant().getSize() + "\n" +
+                    "HSN: 6404";
+            addTableCell(table, description, Element.ALIGN_LEFT);
+            addTableCell(table, String.format("₹%.2f", unitBasePrice), Element.ALIGN_RIGHT);
+            addTableCell(table, String.valueOf(item.getQuantity()), Element.ALIGN_CENTER);
+            addTableCell(table, String.format("₹%.2f", baseAmount), Element.ALIGN_RIGHT);
+            addTableCell(table, "9%\n9%", Element.ALIGN_CENTER);
+            addTableCell(table, "CGST\nSGST", Element.ALIGN_CENTER);
+            addTableCell(table, String.format("₹%.2f\n₹%.2f", cgstAmount, sgstAmount), Element.ALIGN_RIGHT);
+            addTableCell(table, String.format("₹%.2f", totalItemPriceInclusive), Element.ALIGN_RIGHT);
+        }
+        return new double[] { totalBaseAmount, totalTaxAmount };
+    }
+
+    private void addTotalRow(PdfPTable table, Order order) {
+        PdfPCell totalLabelCell = new PdfPCell(new Phrase("TOTAL:", FONT_BODY_BOLD));
+        totalLabelCell.setColspan(8);
+        totalLabelCell.setBorderWidth(1);
+        table.addCell(totalLabelCell);
+
+        PdfPCell totalValueCell = new PdfPCell(
+                new Phrase("₹" + String.format("%.2f", order.getTotalAmount()), FONT_BODY_BOLD));
+        totalValueCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        totalValueCell.setBorderWidth(1);
+        table.addCell(totalValueCell);
+    }
+
     private void addTableHeader(PdfPTable table, String header) {
         PdfPCell cell = new PdfPCell(new Phrase(header, FONT_TABLE_HEADER));
         cell.setBackgroundColor(new Color(220, 220, 220));
@@ -365,10 +778,9 @@ public class InvoiceService {
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public void sendInvoiceEmail(Long orderId) {
         try {
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+            Order order = findOrder(orderId);
 
-            byte[] invoicePdf = generateInvoice(orderId);
+            byte[] invoicePdf = Files.readAllBytes(getInvoice(order).path());
             emailService.sendOrderConfirmation(
                     order.getUser().getEmail(),
                     order.getId().toString(),
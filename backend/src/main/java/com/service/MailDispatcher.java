@@ -0,0 +1,316 @@
+package com.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MailDispatcher
+ * ==============
+ *
+ * Sends outgoing mail from a bounded queue on a few sender threads. Each
+ * sender keeps one SMTP connection open and sends every queued message over
+ * it, reconnecting after {@code app.mail.max-per-connection} messages and
+ * closing it once idle for {@code app.mail.idle-close-ms}. Opening a TLS
+ * session per email (what {@code JavaMailSender.send} does) is the slow part
+ * of sending mail.
+ *
+ * <p>
+ * All senders share a rate limit of {@code app.mail.rate-per-second}.
+ * Transient failures (connection errors, 4xx replies) are retried with
+ * exponential backoff up to {@code app.mail.max-attempts}; rejected
+ * recipients are not retried.
+ * </p>
+ */
+@Service
+@Slf4j
+public class MailDispatcher {
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.mail.senders:2}")
+    private int senders;
+
+    @Value("${app.mail.queue-capacity:2000}")
+    private int queueCapacity;
+
+    // How long submit() waits for room in a full queue before dropping the mail
+    @Value("${app.mail.enqueue-timeout-ms:200}")
+    private long enqueueTimeoutMs;
+
+    @Value("${app.mail.max-per-connection:100}")
+    private int maxPerConnection;
+
+    @Value("${app.mail.idle-close-ms:30000}")
+    private long idleCloseMs;
+
+    @Value("${app.mail.rate-per-second:10}")
+    private double ratePerSecond;
+
+    @Value("${app.mail.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.mail.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    private BlockingQueue<OutgoingMail> queue;
+    private final DelayQueue<OutgoingMail> retries = new DelayQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    // Earliest time (nanoTime) the next message may go out
+    private long nextSendAt;
+
+    private Counter sent;
+    private Counter failed;
+    private Counter dropped;
+    private Counter connections;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        sent = meterRegistry.counter("mail.sent");
+        failed = meterRegistry.counter("mail.failed");
+        dropped = meterRegistry.counter("mail.dropped");
+        connections = meterRegistry.counter("mail.connections");
+        Gauge.builder("mail.queue.depth", this, d -> d.queue.size() + d.retries.size()).register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < senders; i++) {
+            Thread worker = new Thread(this::sendLoop, "mail-sender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        if (!queue.isEmpty() || !retries.isEmpty()) {
+            log.warn("Mail dispatcher stopped with {} unsent messages", queue.size() + retries.size());
+        }
+    }
+
+    /**
+     * Queues a message. Returns false (and logs) when the queue stayed full
+     * for enqueue-timeout-ms.
+     */
+    public boolean submit(MimeMessage message) {
+        try {
+            if (queue.offer(new OutgoingMail(message), enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.increment();
+        log.error("Mail queue full, dropping message to {}", recipients(message));
+        return false;
+    }
+
+    /**
+     * Messages waiting to be sent, including those waiting for a retry.
+     */
+    public int pending() {
+        return queue.size() + retries.size();
+    }
+
+    public long connectionsOpened() {
+        return (long) connections.count();
+    }
+
+    private void sendLoop() {
+        Transport transport = null;
+        int sentOnConnection = 0;
+        while (running) {
+            OutgoingMail mail;
+            try {
+                mail = retries.poll();
+                if (mail == null) {
+                    // Wake up for due retries, and to close an idle connection
+                    mail = queue.poll(transport != null ? idleCloseMs : 500, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (mail == null) {
+                if (transport != null && retries.isEmpty()) {
+                    close(transport);
+                    transport = null;
+                }
+                continue;
+            }
+
+            boolean reused = false;
+            try {
+                if (transport != null && sentOnConnection >= maxPerConnection) {
+                    close(transport);
+                    transport = null;
+                }
+                if (transport == null) {
+                    transport = connect();
+                    sentOnConnection = 0;
+                }
+                reused = sentOnConnection > 0;
+                awaitRateLimit();
+                mail.message.saveChanges();
+                transport.sendMessage(mail.message, mail.message.getAllRecipients());
+                sentOnConnection++;
+                sent.increment();
+            } catch (InterruptedException e) {
+                requeue(mail);
+                break;
+            } catch (MessagingException e) {
+                if (!isTransient(e)) {
+                    failed.increment();
+                    log.error("Mail to {} rejected: {}", recipients(mail.message), e.getMessage());
+                    continue;
+                }
+                // The connection may be broken; start a fresh one for the next message
+                close(transport);
+                transport = null;
+                if (reused) {
+                    // Most likely the server dropped our idle connection: try again right away
+                    requeue(mail);
+                } else {
+                    retry(mail, e);
+                }
+            }
+        }
+        close(transport);
+    }
+
+    private Transport connect() throws MessagingException {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            throw new IllegalStateException("Mail dispatch needs a JavaMailSenderImpl");
+        }
+        String protocol = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+        Transport transport = sender.getSession().getTransport(protocol);
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        connections.increment();
+        return transport;
+    }
+
+    private void awaitRateLimit() throws InterruptedException {
+        long waitNanos = reserveSendSlot();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Claims the next send slot and returns how long to wait for it.
+     */
+    private synchronized long reserveSendSlot() {
+        long now = System.nanoTime();
+        long slot = Math.max(now, nextSendAt);
+        nextSendAt = slot + (long) (1_000_000_000L / ratePerSecond);
+        return slot - now;
+    }
+
+    private void retry(OutgoingMail mail, MessagingException cause) {
+        mail.attempts++;
+        if (mail.attempts >= maxAttempts) {
+            failed.increment();
+            log.error("Giving up on mail to {} after {} attempts", recipients(mail.message), mail.attempts, cause);
+            return;
+        }
+        long backoff = retryBackoffMs << (mail.attempts - 1);
+        log.warn("Mail to {} failed (attempt {}), retrying in {} ms: {}", recipients(mail.message), mail.attempts,
+                backoff, cause.getMessage());
+        mail.dueAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        retries.add(mail);
+    }
+
+    private void requeue(OutgoingMail mail) {
+        mail.dueAt = System.nanoTime();
+        retries.add(mail);
+    }
+
+    /**
+     * A 5xx reply (rejected sender, recipient or message) is permanent;
+     * anything else - connection failures, timeouts, 4xx "try again later" -
+     * is worth another attempt.
+     */
+    private static boolean isTransient(MessagingException e) {
+        for (Exception cause = e; cause != null; cause = cause instanceof MessagingException me
+                ? me.getNextException() : null) {
+            int code = cause instanceof SMTPSendFailedException f ? f.getReturnCode()
+                    : cause instanceof SMTPAddressFailedException f ? f.getReturnCode()
+                    : cause instanceof SMTPSenderFailedException f ? f.getReturnCode()
+                    : 0;
+            if (code >= 500) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void close(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private static String recipients(MimeMessage message) {
+        try {
+            return Arrays.toString(message.getAllRecipients());
+        } catch (MessagingException e) {
+            return "?";
+        }
+    }
+
+    private static class OutgoingMail implements Delayed {
+        final MimeMessage message;
+        int attempts;
+        long dueAt;
+
+        OutgoingMail(MimeMessage message) {
+            this.message = message;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((OutgoingMail) other).dueAt);
+        }
+    }
+}
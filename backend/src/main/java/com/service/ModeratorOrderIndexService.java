@@ -0,0 +1,123 @@
+package com.service;
+
+import com.entity.Moderator;
+import com.entity.ModeratorOrder;
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.OrderStatus;
+import com.repository.ModeratorOrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ModeratorOrderIndexService
+ * ==========================
+ *
+ * Maintains the {@code moderator_order} link table: one row per (moderator,
+ * order) written when the order is placed, with the order status mirrored on
+ * every change.
+ */
+@Service
+@Slf4j
+public class ModeratorOrderIndexService {
+
+    @Autowired
+    private ModeratorOrderRepository moderatorOrderRepository;
+
+    /**
+     * Index a newly placed order under every moderator whose products it
+     * contains. Platform-owned products (no moderator) are not indexed.
+     */
+    @Transactional
+    public void indexOrder(Order order) {
+        Map<Long, ModeratorOrder> byModerator = new LinkedHashMap<>();
+
+        for (OrderItem item : order.getItems()) {
+            Moderator moderator = item.getVariant().getProduct().getModerator();
+            if (moderator == null) {
+                continue;
+            }
+            ModeratorOrder link = byModerator.computeIfAbsent(moderator.getId(), id -> {
+                ModeratorOrder row = new ModeratorOrder();
+                row.setModeratorId(id);
+                row.setOrderId(order.getId());
+                row.setStatus(order.getStatus());
+                row.setOrderDate(order.getOrderDate());
+                return row;
+            });
+            link.setModeratorSubtotal(link.getModeratorSubtotal() + item.getPrice() * item.getQuantity());
+            link.setItemCount(link.getItemCount() + item.getQuantity());
+        }
+
+        if (!byModerator.isEmpty()) {
+            moderatorOrderRepository.saveAll(byModerator.values());
+        }
+    }
+
+    @Transactional
+    public void updateStatus(Long orderId, OrderStatus status) {
+        moderatorOrderRepository.updateStatus(orderId, status);
+    }
+
+    @Transactional
+    public void updateStatus(Collection<Long> orderIds, OrderStatus status) {
+        if (!orderIds.isEmpty()) {
+            moderatorOrderRepository.updateStatus(orderIds, status);
+        }
+    }
+
+    @Transactional
+    public void removeOrder(Long orderId) {
+        moderatorOrderRepository.deleteByOrderId(orderId);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ModeratorOrder> findOrders(Long moderatorId, OrderStatus status, Pageable pageable) {
+        if (status != null) {
+            return moderatorOrderRepository.findByModeratorIdAndStatusOrderByOrderDateDesc(moderatorId, status,
+                    pageable);
+        }
+        return moderatorOrderRepository.findByModeratorIdOrderByOrderDateDesc(moderatorId, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> countByStatus(Long moderatorId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long total = 0;
+        List<Object[]> rows = moderatorOrderRepository.countByStatus(moderatorId);
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            counts.put(row[0].toString(), count);
+            total += count;
+        }
+        counts.put("TOTAL", total);
+        return counts;
+    }
+
+    /**
+     * Populate the index for orders placed before it existed. Runs once at
+     * startup while the table is still empty; also callable on demand.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (moderatorOrderRepository.count() == 0) {
+                int rows = moderatorOrderRepository.backfill();
+                log.info("Backfilled moderator_order index with {} rows", rows);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill moderator_order index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.service;
+
+import com.entity.JobCheckpoint;
+import com.entity.Moderator;
+import com.entity.ModeratorSettlement;
+import com.entity.Transaction;
+import com.repository.JobCheckpointRepository;
+import com.repository.ModeratorRepository;
+import com.repository.ModeratorSettlementRepository;
+import com.repository.UserRepository;
+import com.repository.WalletRepository;
+import com.util.LongDoubleHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ModeratorPayoutService
+ * ======================
+ *
+ * Nightly settlement of moderator earnings. For a given day it streams the
+ * ORDER_PAYMENT ledger credits of moderator wallets, sums them per moderator,
+ * and for each moderator writes one {@link ModeratorSettlement} and one PAYOUT
+ * debit. A CSV payout file for finance is written at the end.
+ *
+ * <p>
+ * The run is tracked by a {@link JobCheckpoint} keyed by the date. Moderators
+ * are settled in user id order, each in its own transaction together with the
+ * checkpoint, so a restarted run skips everyone already paid. The aggregation
+ * itself is read-only and is simply recomputed on restart.
+ * </p>
+ */
+@Service
+@Slf4j
+public class ModeratorPayoutService {
+
+    public static final String JOB_NAME = "moderator-settlement";
+
+    private static final String[] FILE_COLUMNS = { "settlement_id", "settlement_date", "moderator_id", "brand_name",
+            "user_id", "name", "email", "bank_account_number", "ifsc_code", "kyc_status", "entries", "gross_amount",
+            "payout_amount", "transaction_id" };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private ModeratorSettlementRepository moderatorSettlementRepository;
+
+    @Autowired
+    private ModeratorRepository moderatorRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Value("${app.payouts.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.payouts.dir:payouts}")
+    private String payoutDir;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Scheduled(cron = "${app.payouts.cron:0 15 1 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            settleDay(LocalDate.now().minusDays(1));
+        }
+    }
+
+    /**
+     * Settle (or resume settling) {@code date}. Returns a summary of the run,
+     * or null when another run is in progress.
+     */
+    public Map<String, Object> settleDay(LocalDate date) {
+        if (!date.isBefore(LocalDate.now())) {
+            throw new RuntimeException("Only past days can be settled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            JobCheckpoint checkpoint = loadCheckpoint(date);
+
+            if (checkpoint.getStatus() != JobCheckpoint.Status.COMPLETED) {
+                long started = System.currentTimeMillis();
+                LongDoubleHashMap earned = new LongDoubleHashMap(256);
+                LongDoubleHashMap entries = new LongDoubleHashMap(256);
+                long rows = aggregate(date, earned, entries);
+
+                long resumeAfter = checkpoint.getPosition() != null ? checkpoint.getPosition() : Long.MIN_VALUE;
+                Long checkpointId = checkpoint.getId();
+                int settled = 0;
+                for (long userId : earned.sortedKeys()) {
+                    if (userId <= resumeAfter) {
+                        continue;
+                    }
+                    double gross = earned.get(userId);
+                    int count = (int) entries.get(userId);
+                    tx.executeWithoutResult(status -> settleModerator(checkpointId, date, userId, gross, count));
+                    settled++;
+                }
+
+                writePayoutFile(date);
+                checkpoint = tx.execute(status -> {
+                    JobCheckpoint cp = jobCheckpointRepository.findById(checkpointId).orElseThrow();
+                    cp.setStatus(JobCheckpoint.Status.COMPLETED);
+                    cp.setUpdatedAt(LocalDateTime.now());
+                    cp.setCompletedAt(cp.getUpdatedAt());
+                    return jobCheckpointRepository.save(cp);
+                });
+                log.info("Settled {} of {} moderators for {} from {} ledger entries in {} ms", settled,
+                        earned.size(), date, rows, System.currentTimeMillis() - started);
+            }
+            return summary(date, checkpoint);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public List<ModeratorSettlement> getSettlements(LocalDate date) {
+        return moderatorSettlementRepository.findBySettlementDateOrderByUserIdAsc(date);
+    }
+
+    /**
+     * The payout file of a completed run, or null if there is none.
+     */
+    public Path getPayoutFile(LocalDate date) {
+        Path file = payoutFile(date);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private JobCheckpoint loadCheckpoint(LocalDate date) {
+        String runKey = date.toString();
+        return jobCheckpointRepository.findByJobNameAndRunKey(JOB_NAME, runKey).orElseGet(() -> {
+            try {
+                return jobCheckpointRepository.save(new JobCheckpoint(JOB_NAME, runKey));
+            } catch (DataIntegrityViolationException e) {
+                // Created concurrently by another instance
+                return jobCheckpointRepository.findByJobNameAndRunKey(JOB_NAME, runKey).orElseThrow(() -> e);
+            }
+        });
+    }
+
+    /**
+     * Streams the day's moderator order shares and sums them per user. Returns
+     * the number of ledger rows read.
+     */
+    private long aggregate(LocalDate date, LongDoubleHashMap earned, LongDoubleHashMap entries) {
+        String sql = "SELECT w.user_id, t.amount FROM transactions t "
+                + "JOIN wallets w ON w.id = t.wallet_id "
+                + "JOIN moderators m ON m.user_id = w.user_id "
+                + "WHERE t.type = 'CREDIT' AND t.source = 'ORDER_PAYMENT' AND t.timestamp >= ? AND t.timestamp < ?";
+        long[] rows = new long[1];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL Connector/J streams row by row only with this fetch size
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setTimestamp(1, Timestamp.valueOf(date.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+            return ps;
+        }, rs -> {
+            long userId = rs.getLong(1);
+            earned.addTo(userId, rs.getDouble(2));
+            entries.addTo(userId, 1);
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private void settleModerator(Long checkpointId, LocalDate date, long userId, double gross, int count) {
+        Moderator moderator = moderatorRepository.findByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Moderator profile not found for user " + userId));
+
+        // Never pay out more than the wallet holds; amounts are paid in whole paise
+        double balance = walletRepository.findIdByUserId(userId)
+                .map(walletId -> ((Number) walletRepository.findLedgerState(walletId).get(0)[1]).doubleValue())
+                .orElse(0.0);
+        double payout = Math.floor(Math.min(gross, balance) * 100) / 100;
+
+        ModeratorSettlement settlement = new ModeratorSettlement();
+        settlement.setSettlementDate(date);
+        settlement.setModeratorId(moderator.getId());
+        settlement.setUserId(userId);
+        settlement.setEntries(count);
+        settlement.setGrossAmount(gross);
+        settlement.setPayoutAmount(payout);
+        settlement.setCreatedAt(LocalDateTime.now());
+
+        if (payout > 0) {
+            Transaction debit = walletService.debitWallet(userRepository.getReferenceById(userId), payout,
+                    Transaction.TransactionSource.PAYOUT, "PAYOUT-" + date, "Payout for earnings of " + date);
+            settlement.setTransactionId(debit.getId());
+        }
+        moderatorSettlementRepository.save(settlement);
+
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(checkpointId).orElseThrow();
+        checkpoint.setPosition(userId);
+        checkpoint.setProcessed(checkpoint.getProcessed() + 1);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        jobCheckpointRepository.save(checkpoint);
+    }
+
+    /**
+     * Writes the day's payout file from the settlement rows (so a resumed run
+     * still lists everyone). The file is replaced atomically.
+     */
+    private void writePayoutFile(LocalDate date) {
+        Path target = payoutFile(date);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "payouts-", ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                out.write(String.join(",", FILE_COLUMNS));
+                out.write('\n');
+                jdbcTemplate.query("SELECT s.id, s.settlement_date, s.moderator_id, m.brand_name, s.user_id, u.name, "
+                        + "u.email, m.bank_account_number, m.ifsc_code, m.kyc_status, s.entries, s.gross_amount, "
+                        + "s.payout_amount, s.transaction_id FROM moderator_settlements s "
+                        + "JOIN moderators m ON m.id = s.moderator_id JOIN users u ON u.id = s.user_id "
+                        + "WHERE s.settlement_date = ? ORDER BY s.user_id", rs -> {
+                            try {
+                                for (int i = 1; i <= FILE_COLUMNS.length; i++) {
+                                    if (i > 1) {
+                                        out.write(',');
+                                    }
+                                    out.write(csv(rs.getString(i)));
+                                }
+                                out.write('\n');
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }, java.sql.Date.valueOf(date));
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Could not write payout file for " + date + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Path payoutFile(LocalDate date) {
+        return Paths.get(payoutDir).toAbsolutePath().normalize().resolve("payouts-" + date + ".csv");
+    }
+
+    private Map<String, Object> summary(LocalDate date, JobCheckpoint checkpoint) {
+        double total = 0;
+        int paid = 0;
+        for (ModeratorSettlement s : getSettlements(date)) {
+            total += s.getPayoutAmount();
+            if (s.getTransactionId() != null) {
+                paid++;
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("date", date.toString());
+        summary.put("status", checkpoint.getStatus());
+        summary.put("moderators", checkpoint.getProcessed());
+        summary.put("paid", paid);
+        summary.put("totalPayout", Math.round(total * 100) / 100.0);
+        summary.put("completedAt", checkpoint.getCompletedAt());
+        return summary;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,466 @@
+package com.service;
+
+import com.dto.AdminOrderItemDTO;
+import com.dto.OrderHistoryDTO;
+import com.dto.OrderResponseDTO;
+import com.dto.OrderTrackingDTO;
+import com.dto.ProductSummaryDTO;
+import com.dto.UserDTO;
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.OrderStatus;
+import com.entity.PaymentStatus;
+import com.entity.ProductVariant;
+import com.repository.ProductVariantRepository;
+import com.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * OrderArchiveService
+ * ===================
+ *
+ * Moves closed orders older than {@code app.archive.min-age-days} out of the
+ * hot tables into {@code *_archive} copies, together with their items,
+ * tracking rows and payments. Wallet ledger rows stay where they are: the
+ * ledger is append-only and each wallet's sequence must stay complete. The
+ * {@code moderator_order} index rows stay too, so moderator lists and counts
+ * still include archived orders; finished stock reservations are deleted.
+ *
+ * <p>
+ * Each batch is copied and deleted in its own transaction, so a run can stop at
+ * any point and the next run simply picks up the orders that are still in the
+ * hot tables. Copies use {@code INSERT IGNORE}, so repeating a batch is safe.
+ * </p>
+ *
+ * <p>
+ * The read methods serve archived orders to the order views (details, user
+ * order lists, history, moderator lists, invoices, dashboard totals) so
+ * callers do not need to know where an order lives. Admin lists over every
+ * order page over live orders only; archived orders have their own paged
+ * list ({@code GET /api/admin/orders/archived}).
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrderArchiveService {
+
+    // Children first: they are deleted before the order rows they reference
+    private static final String[] ARCHIVED_TABLES = { "order_tracking", "order_item", "payments", "orders" };
+
+    private static final String CLOSED_STATUSES = "'DELIVERED', 'CANCELLED', 'REFUNDED'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.archive.min-age-days:180}")
+    private int minAgeDays;
+
+    @Value("${app.archive.batch-size:200}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // table -> column list shared by the hot and archive copy
+    private final Map<String, String> copyColumns = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareArchiveTables() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            syncArchiveSchema();
+        } catch (Exception e) {
+            log.error("Failed to prepare archive tables: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            archiveClosedOrders();
+        }
+    }
+
+    /**
+     * Archive every eligible order in batches. Returns the number of orders
+     * moved, or -1 when a run is already in progress.
+     */
+    public long archiveClosedOrders() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            syncArchiveSchema();
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(minAgeDays));
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+            long moved = 0;
+            long lastId = 0;
+            long started = System.currentTimeMillis();
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(
+                        "SELECT id FROM orders WHERE id > ? AND status IN (" + CLOSED_STATUSES + ") "
+                                + "AND order_date < ? ORDER BY id LIMIT ?",
+                        Long.class, lastId, cutoff, batchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                tx.executeWithoutResult(status -> archiveBatch(ids));
+                moved += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+
+            log.info("Archived {} orders older than {} days in {} ms", moved, minAgeDays,
+                    System.currentTimeMillis() - started);
+            return moved;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void archiveBatch(List<Long> orderIds) {
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        for (String table : ARCHIVED_TABLES) {
+            String where = table.equals("orders") ? "id IN (" + ids + ")" : "order_id IN (" + ids + ")";
+            String columns = copyColumns.get(table);
+            jdbcTemplate.update("INSERT IGNORE INTO " + table + "_archive (" + columns + ") SELECT " + columns
+                    + " FROM " + table + " WHERE " + where);
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE " + where);
+        }
+        // Only pending holds matter; a closed order's reservation is history
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE order_id IN (" + ids + ") AND status <> 'HELD'");
+    }
+
+    /**
+     * Create missing archive tables and add columns that the hot tables gained
+     * since (schema is managed by Hibernate's ddl-auto=update).
+     */
+    private void syncArchiveSchema() {
+        for (String table : ARCHIVED_TABLES) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + "_archive LIKE " + table);
+
+            List<String> archived = columnsOf(table + "_archive");
+            List<Map<String, Object>> hot = jdbcTemplate.queryForList(
+                    "SELECT COLUMN_NAME, COLUMN_TYPE FROM information_schema.COLUMNS "
+                            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION",
+                    table);
+            for (Map<String, Object> column : hot) {
+                String name = (String) column.get("COLUMN_NAME");
+                if (!archived.contains(name)) {
+                    jdbcTemplate.execute("ALTER TABLE " + table + "_archive ADD COLUMN " + name + " "
+                            + column.get("COLUMN_TYPE") + " NULL");
+                    log.info("Added column {} to {}_archive", name, table);
+                }
+            }
+            copyColumns.put(table, hot.stream().map(c -> (String) c.get("COLUMN_NAME"))
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private List<String> columnsOf(String table) {
+        return jdbcTemplate.queryForList("SELECT COLUMN_NAME FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION", String.class, table);
+    }
+
+    // ==================== READS ====================
+
+    public Optional<OrderResponseDTO> findOrder(Long orderId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return findOrders("o.id = ?", orderId).stream().findFirst();
+    }
+
+    /** Archived orders among {@code orderIds}, by id. */
+    public Map<Long, OrderResponseDTO> findOrders(Collection<Long> orderIds) {
+        if (!enabled || orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return findOrders("o.id IN (" + ids + ")").stream()
+                .collect(Collectors.toMap(OrderResponseDTO::getId, order -> order));
+    }
+
+    /** All archived orders of a user, oldest first like the live list. */
+    public List<OrderResponseDTO> findOrdersByUser(Long userId) {
+        return enabled ? findOrders("o.user_id = ?", userId) : Collections.emptyList();
+    }
+
+    /** One page of archived orders, newest first (admin archive list). */
+    public List<OrderResponseDTO> findOrdersPage(int page, int size) {
+        if (!enabled || size <= 0) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM orders_archive ORDER BY id DESC LIMIT ? OFFSET ?",
+                Long.class, size, (long) page * size);
+        Map<Long, OrderResponseDTO> ordersById = findOrders(ids);
+        return ids.stream().map(ordersById::get).filter(Objects::nonNull).toList();
+    }
+
+    public boolean isOwnedBy(Long orderId, Long userId) {
+        if (!enabled) {
+            return false;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive WHERE id = ? AND user_id = ?",
+                Long.class, orderId, userId);
+        return count != null && count > 0;
+    }
+
+    /**
+     * An archived order rebuilt as a detached {@link Order} with its user and
+     * items (variants and products are live rows), for rendering its invoice.
+     * Never persist the result.
+     */
+    public Optional<Order> loadOrder(Long orderId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Map<Long, Long> userIds = new LinkedHashMap<>();
+        List<Order> found = jdbcTemplate.query(
+                "SELECT id, user_id, total_amount, discount, order_date, status, shipping_address, payment_method, "
+                        + "payment_status, payment_reference, current_location FROM orders_archive WHERE id = ?",
+                (rs, i) -> {
+                    Order order = new Order();
+                    order.setId(rs.getLong("id"));
+                    order.setTotalAmount(rs.getDouble("total_amount"));
+                    order.setDiscount(rs.getDouble("discount"));
+                    order.setOrderDate(toLocalDateTime(rs.getTimestamp("order_date")));
+                    order.setStatus(OrderStatus.valueOf(rs.getString("status")));
+                    order.setShippingAddress(rs.getString("shipping_address"));
+                    order.setPaymentMethod(rs.getString("payment_method"));
+                    order.setPaymentStatus(rs.getString("payment_status") != null
+                            ? PaymentStatus.valueOf(rs.getString("payment_status"))
+                            : null);
+                    order.setPaymentReference(rs.getString("payment_reference"));
+                    order.setCurrentLocation(rs.getString("current_location"));
+                    userIds.put(order.getId(), rs.getLong("user_id"));
+                    return order;
+                },
+                orderId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Order order = found.get(0);
+        order.setUser(userRepository.findById(userIds.get(orderId))
+                .orElseThrow(() -> new RuntimeException("User of archived order " + orderId + " not found")));
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT variant_id, quantity, price FROM order_item_archive WHERE order_id = ? ORDER BY id",
+                (rs, i) -> new Object[] { rs.getLong("variant_id"), rs.getInt("quantity"), rs.getDouble("price") },
+                orderId);
+        Map<Long, ProductVariant> variants = productVariantRepository
+                .findAllById(rows.stream().map(row -> (Long) row[0]).distinct().toList()).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+        for (Object[] row : rows) {
+            ProductVariant variant = variants.get((Long) row[0]);
+            if (variant == null) {
+                throw new RuntimeException("Product variant " + row[0] + " of archived order " + orderId
+                        + " no longer exists");
+            }
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setVariant(variant);
+            item.setQuantity((Integer) row[1]);
+            item.setPrice((Double) row[2]);
+            order.getItems().add(item);
+        }
+        return Optional.of(order);
+    }
+
+    /**
+     * Archived orders matching {@code where} (on alias {@code o}), ordered by
+     * id, with items and tracking attached in one query each.
+     */
+    private List<OrderResponseDTO> findOrders(String where, Object... args) {
+        List<OrderResponseDTO> orders = jdbcTemplate.query(
+                "SELECT o.id, o.total_amount, o.discount, o.status, o.current_location, o.order_date, "
+                        + "u.id AS user_id, u.name, u.email, u.profile_picture_type "
+                        + "FROM orders_archive o JOIN users u ON u.id = o.user_id WHERE " + where + " ORDER BY o.id",
+                (rs, i) -> new OrderResponseDTO(
+                        rs.getLong("id"),
+                        new UserDTO(rs.getLong("user_id"), rs.getString("name"), rs.getString("email"),
+                                rs.getString("profile_picture_type")),
+                        new ArrayList<>(),
+                        rs.getDouble("total_amount"),
+                        rs.getDouble("discount"),
+                        rs.getString("status"),
+                        rs.getString("current_location"),
+                        new ArrayList<>(),
+                        toLocalDateTime(rs.getTimestamp("order_date"))),
+                args);
+        if (orders.isEmpty()) {
+            return orders;
+        }
+
+        // Children are loaded in chunks to keep the IN lists short
+        for (int i = 0; i < orders.size(); i += batchSize) {
+            attachChildren(orders.subList(i, Math.min(i + batchSize, orders.size())));
+        }
+        return orders;
+    }
+
+    private void attachChildren(List<OrderResponseDTO> orders) {
+        List<Long> orderIds = orders.stream().map(OrderResponseDTO::getId).toList();
+        Map<Long, List<AdminOrderItemDTO>> items = findItems(orderIds);
+        Map<Long, List<OrderTrackingDTO>> tracking = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT order_id, status, city, state, description, timestamp FROM order_tracking_archive "
+                + "WHERE order_id IN (" + orderIds.stream().map(String::valueOf).collect(Collectors.joining(","))
+                + ") ORDER BY order_id, timestamp, id", rs -> {
+                    tracking.computeIfAbsent(rs.getLong("order_id"), id -> new ArrayList<>())
+                            .add(new OrderTrackingDTO(rs.getString("status"), rs.getString("city"),
+                                    rs.getString("state"), rs.getString("description"),
+                                    toLocalDateTime(rs.getTimestamp("timestamp"))));
+                });
+        for (OrderResponseDTO order : orders) {
+            order.setItems(items.getOrDefault(order.getId(), new ArrayList<>()));
+            order.setTrackingHistory(tracking.getOrDefault(order.getId(), new ArrayList<>()));
+        }
+    }
+
+    public long countOrdersByUser(Long userId) {
+        if (!enabled) {
+            return 0;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive WHERE user_id = ?", Long.class,
+                userId);
+        return count != null ? count : 0;
+    }
+
+    public long countOrdersByUserExcludingStatus(Long userId, OrderStatus status) {
+        if (!enabled) {
+            return 0;
+        }
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders_archive WHERE user_id = ? AND status <> ?", Long.class, userId,
+                status.name());
+        return count != null ? count : 0;
+    }
+
+    /**
+     * A slice of a user's archived history, newest first, with items attached.
+     */
+    public List<OrderHistoryDTO> findHistory(Long userId, long offset, int limit) {
+        if (!enabled || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<OrderHistoryDTO> orders = jdbcTemplate.query(
+                "SELECT id, total_amount, discount, status, payment_status, payment_method, current_location, "
+                        + "order_date FROM orders_archive WHERE user_id = ? "
+                        + "ORDER BY order_date DESC, id DESC LIMIT ? OFFSET ?",
+                (rs, i) -> new OrderHistoryDTO(
+                        rs.getLong("id"),
+                        rs.getDouble("total_amount"),
+                        rs.getDouble("discount"),
+                        OrderStatus.valueOf(rs.getString("status")),
+                        rs.getString("payment_status") != null ? PaymentStatus.valueOf(rs.getString("payment_status"))
+                                : null,
+                        rs.getString("payment_method"),
+                        rs.getString("current_location"),
+                        toLocalDateTime(rs.getTimestamp("order_date"))),
+                userId, limit, offset);
+
+        if (!orders.isEmpty()) {
+            Map<Long, List<AdminOrderItemDTO>> items = findItems(orders.stream().map(OrderHistoryDTO::getId).toList());
+            for (OrderHistoryDTO order : orders) {
+                order.getItems().addAll(items.getOrDefault(order.getId(), Collections.emptyList()));
+            }
+        }
+        return orders;
+    }
+
+    public long countOrders() {
+        return enabled ? queryLong("SELECT COUNT(*) FROM orders_archive") : 0;
+    }
+
+    public double sumRevenue() {
+        if (!enabled) {
+            return 0;
+        }
+        Double sum = jdbcTemplate.queryForObject("SELECT SUM(total_amount) FROM orders_archive", Double.class);
+        return sum != null ? sum : 0;
+    }
+
+    /** Status -> count, same shape as {@code OrderRepository.getStatusDistribution}. */
+    public Map<String, Long> statusDistribution() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (enabled) {
+            jdbcTemplate.query("SELECT status, COUNT(*) FROM orders_archive GROUP BY status",
+                    rs -> {
+                        counts.put(rs.getString(1), rs.getLong(2));
+                    });
+        }
+        return counts;
+    }
+
+    private Map<Long, List<AdminOrderItemDTO>> findItems(List<Long> orderIds) {
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        Map<Long, List<AdminOrderItemDTO>> byOrder = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT i.order_id, i.price, i.quantity, v.size, v.color, v.color_hex, "
+                + "p.model_no, p.name, p.is_returnable, p.is_replaceable, p.is_single_brand "
+                + "FROM order_item_archive i JOIN product_variant v ON v.id = i.variant_id "
+                + "JOIN product p ON p.model_no = v.model_no "
+                + "WHERE i.order_id IN (" + ids + ") ORDER BY i.order_id, i.id", rs -> {
+                    long modelNo = rs.getLong("model_no");
+                    ProductSummaryDTO product = new ProductSummaryDTO(modelNo, rs.getString("name"),
+                            "/api/images/product/" + modelNo + "/1", rs.getBoolean("is_returnable"),
+                            rs.getBoolean("is_replaceable"), rs.getBoolean("is_single_brand"));
+                    double price = rs.getDouble("price");
+                    int quantity = rs.getInt("quantity");
+                    byOrder.computeIfAbsent(rs.getLong("order_id"), id -> new ArrayList<>())
+                            .add(new AdminOrderItemDTO(product, price, quantity, price * quantity,
+                                    rs.getString("size"), rs.getString("color"), rs.getString("color_hex")));
+                });
+        return byOrder;
+    }
+
+    private long queryLong(String sql) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class);
+        return value != null ? value : 0;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
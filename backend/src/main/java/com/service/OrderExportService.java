@@ -0,0 +1,360 @@
+package com.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payload.request.OrderExportFilter;
+import com.repository.ModeratorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OrderExportService
+ * ==================
+ *
+ * Streams order reports as CSV or NDJSON straight from a forward-only JDBC
+ * cursor. Rows are written as they are read, so memory use does not depend on
+ * the number of orders exported.
+ *
+ * <p>
+ * With {@code includeItems} the cursor returns one row per order item, sorted
+ * by order id. CSV emits those rows as-is; NDJSON nests the items of each
+ * order, holding only the current order in memory.
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+
+    private static final String[] ORDER_COLUMNS = { "order_id", "order_date", "status", "payment_status",
+            "payment_method", "total_amount", "discount", "current_location", "user_id", "user_name", "user_email" };
+
+    private static final String[] ITEM_COLUMNS = { "item_id", "variant_id", "model_no", "product_name", "moderator_id",
+            "size", "color", "quantity", "price", "line_total" };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ModeratorRepository moderatorRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Moderators may only export their own orders; admins may pick any
+     * moderator (or none).
+     */
+    public void applyScope(OrderExportFilter filter, UserDetailsImpl currentUser) {
+        boolean isAdmin = currentUser.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || a.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        if (!isAdmin) {
+            Long moderatorId = moderatorRepository.findByUserId(currentUser.getId())
+                    .orElseThrow(() -> new RuntimeException("Moderator profile not found"))
+                    .getId();
+            filter.setModeratorId(moderatorId);
+        }
+    }
+
+    public String fileName(OrderExportFilter filter) {
+        String ext = filter.getFormat() == OrderExportFilter.Format.NDJSON ? ".ndjson" : ".csv";
+        return "orders-export" + ext + (filter.isGzip() ? ".gz" : "");
+    }
+
+    public void export(OrderExportFilter filter, OutputStream target) throws IOException {
+        OutputStream out = filter.isGzip() ? new GZIPOutputStream(target, 64 * 1024) : target;
+        List<Object> params = new ArrayList<>();
+        String sql = buildQuery(filter, params);
+
+        long started = System.currentTimeMillis();
+        RowWriter writer = filter.getFormat() == OrderExportFilter.Format.NDJSON
+                ? new NdjsonWriter(out, filter.isIncludeItems())
+                : new CsvWriter(out, filter.isIncludeItems());
+
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                // MySQL Connector/J streams row by row only with this fetch size
+                ps.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }, writer);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            // Client went away mid-download
+            throw e.getCause();
+        }
+
+        if (out instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+        out.flush();
+        log.info("Order export finished: {} orders in {} ms", writer.orders, System.currentTimeMillis() - started);
+    }
+
+    private String buildQuery(OrderExportFilter filter, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT o.id, o.order_date, o.status, o.payment_status, ")
+                .append("o.payment_method, o.total_amount, o.discount, o.current_location, ")
+                .append("u.id AS user_id, u.name AS user_name, u.email AS user_email");
+
+        if (filter.isIncludeItems()) {
+            sql.append(", oi.id AS item_id, oi.variant_id, p.model_no, p.name AS product_name, ")
+                    .append("p.moderator_id, pv.size, pv.color, oi.quantity, oi.price");
+        }
+
+        sql.append(" FROM orders o JOIN users u ON u.id = o.user_id");
+
+        if (filter.isIncludeItems()) {
+            sql.append(" JOIN order_item oi ON oi.order_id = o.id")
+                    .append(" JOIN product_variant pv ON pv.id = oi.variant_id")
+                    .append(" JOIN product p ON p.model_no = pv.model_no");
+        }
+
+        sql.append(" WHERE 1 = 1");
+        if (filter.getFrom() != null) {
+            sql.append(" AND o.order_date >= ?");
+            params.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND o.order_date < ?");
+            params.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" AND o.status = ?");
+            params.add(filter.getStatus().name());
+        }
+        if (filter.getModeratorId() != null) {
+            if (filter.isIncludeItems()) {
+                // Only the moderator's own lines of each order
+                sql.append(" AND p.moderator_id = ?");
+            } else {
+                sql.append(" AND EXISTS (SELECT 1 FROM moderator_order mo")
+                        .append(" WHERE mo.order_id = o.id AND mo.moderator_id = ?)");
+            }
+            params.add(filter.getModeratorId());
+        }
+
+        sql.append(filter.isIncludeItems() ? " ORDER BY o.id, oi.id" : " ORDER BY o.id");
+        return sql.toString();
+    }
+
+    private abstract static class RowWriter implements RowCallbackHandler {
+        final boolean includeItems;
+        long orders;
+        long currentOrderId = -1;
+
+        RowWriter(boolean includeItems) {
+            this.includeItems = includeItems;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long orderId = rs.getLong("id");
+                if (orderId != currentOrderId) {
+                    if (currentOrderId != -1) {
+                        endOrder();
+                    }
+                    currentOrderId = orderId;
+                    orders++;
+                    startOrder(rs);
+                }
+                if (includeItems) {
+                    item(rs);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (currentOrderId != -1) {
+                endOrder();
+            }
+            close();
+        }
+
+        abstract void startOrder(ResultSet rs) throws SQLException, IOException;
+
+        abstract void item(ResultSet rs) throws SQLException, IOException;
+
+        abstract void endOrder() throws IOException;
+
+        abstract void close() throws IOException;
+    }
+
+    private static class CsvWriter extends RowWriter {
+        private final Writer writer;
+        private final String[] orderValues = new String[ORDER_COLUMNS.length];
+
+        CsvWriter(OutputStream out, boolean includeItems) throws IOException {
+            super(includeItems);
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writeRow(ORDER_COLUMNS, includeItems ? ITEM_COLUMNS : null);
+        }
+
+        @Override
+        void startOrder(ResultSet rs) throws SQLException, IOException {
+            orderValues[0] = rs.getString("id");
+            orderValues[1] = String.valueOf(rs.getTimestamp("order_date"));
+            orderValues[2] = rs.getString("status");
+            orderValues[3] = rs.getString("payment_status");
+            orderValues[4] = rs.getString("payment_method");
+            orderValues[5] = rs.getString("total_amount");
+            orderValues[6] = rs.getString("discount");
+            orderValues[7] = rs.getString("current_location");
+            orderValues[8] = rs.getString("user_id");
+            orderValues[9] = rs.getString("user_name");
+            orderValues[10] = rs.getString("user_email");
+            if (!includeItems) {
+                writeRow(orderValues, null);
+            }
+        }
+
+        @Override
+        void item(ResultSet rs) throws SQLException, IOException {
+            int quantity = rs.getInt("quantity");
+            double price = rs.getDouble("price");
+            writeRow(orderValues, new String[] {
+                    rs.getString("item_id"),
+                    rs.getString("variant_id"),
+                    rs.getString("model_no"),
+                    rs.getString("product_name"),
+                    rs.getString("moderator_id"),
+                    rs.getString("size"),
+                    rs.getString("color"),
+                    String.valueOf(quantity),
+                    String.valueOf(price),
+                    String.valueOf(price * quantity) });
+        }
+
+        @Override
+        void endOrder() {
+        }
+
+        @Override
+        void close() throws IOException {
+            writer.flush();
+        }
+
+        private void writeRow(String[] first, String[] second) throws IOException {
+            writeValues(first);
+            if (second != null) {
+                writer.write(',');
+                writeValues(second);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeValues(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeEscaped(values[i]);
+            }
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private class NdjsonWriter extends RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonWriter(OutputStream out, boolean includeItems) throws IOException {
+            super(includeItems);
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        void startOrder(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("orderId", rs.getLong("id"));
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            json.writeStringField("orderDate", orderDate != null ? orderDate.toLocalDateTime().toString() : null);
+            json.writeStringField("status", rs.getString("status"));
+            json.writeStringField("paymentStatus", rs.getString("payment_status"));
+            json.writeStringField("paymentMethod", rs.getString("payment_method"));
+            json.writeNumberField("totalAmount", rs.getDouble("total_amount"));
+            json.writeNumberField("discount", rs.getDouble("discount"));
+            json.writeStringField("currentLocation", rs.getString("current_location"));
+            json.writeNumberField("userId", rs.getLong("user_id"));
+            json.writeStringField("userName", rs.getString("user_name"));
+            json.writeStringField("userEmail", rs.getString("user_email"));
+            if (includeItems) {
+                json.writeArrayFieldStart("items");
+            }
+        }
+
+        @Override
+        void item(ResultSet rs) throws SQLException, IOException {
+            int quantity = rs.getInt("quantity");
+            double price = rs.getDouble("price");
+            json.writeStartObject();
+            json.writeNumberField("itemId", rs.getLong("item_id"));
+            json.writeNumberField("variantId", rs.getLong("variant_id"));
+            json.writeNumberField("modelNo", rs.getLong("model_no"));
+            json.writeStringField("productName", rs.getString("product_name"));
+            long moderatorId = rs.getLong("moderator_id");
+            if (rs.wasNull()) {
+                json.writeNullField("moderatorId");
+            } else {
+                json.writeNumberField("moderatorId", moderatorId);
+            }
+            json.writeStringField("size", rs.getString("size"));
+            json.writeStringField("color", rs.getString("color"));
+            json.writeNumberField("quantity", quantity);
+            json.writeNumberField("price", price);
+            json.writeNumberField("lineTotal", price * quantity);
+            json.writeEndObject();
+        }
+
+        @Override
+        void endOrder() throws IOException {
+            if (includeItems) {
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        void close() throws IOException {
+            json.flush();
+        }
+    }
+}
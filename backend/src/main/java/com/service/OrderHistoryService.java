@@ -0,0 +1,188 @@
+package com.service;
+
+import com.dto.AdminOrderItemDTO;
+import com.dto.OrderHistoryDTO;
+import com.dto.OrderItemRowDTO;
+import com.dto.ProductSummaryDTO;
+import com.repository.OrderItemRepository;
+import com.repository.OrderRepository;
+import com.repository.ProductImageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * OrderHistoryService
+ * ===================
+ *
+ * Paged order history for a user. Each page costs three queries regardless of
+ * its size: a projection for the order headers (plus its count), one batched
+ * query for the items of every order on the page, and one for their images.
+ *
+ * The first page is cached per user and evicted whenever one of the user's
+ * orders changes. The cache keeps the {@code app.orders.history.cache-size}
+ * most recently read users; expired pages are dropped when next read.
+ */
+@Service
+public class OrderHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 50;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Value("${app.orders.history.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private final Map<Long, CachedPage> firstPageCache;
+
+    public OrderHistoryService(@Value("${app.orders.history.cache-size:10000}") int cacheSize) {
+        this.firstPageCache = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPage> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Page<OrderHistoryDTO> getHistory(Long userId, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        boolean cacheable = page == 0 && pageSize == DEFAULT_PAGE_SIZE;
+
+        if (cacheable) {
+            CachedPage cached = firstPageCache.get(userId);
+            if (cached != null) {
+                if (System.currentTimeMillis() < cached.expiryTime) {
+                    return cached.page;
+                }
+                firstPageCache.remove(userId, cached);
+            }
+        }
+
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), pageSize);
+        Page<OrderHistoryDTO> result = orderRepository.findHistoryByUserId(userId, pageable);
+        attachItems(result.getContent());
+
+        if (orderArchiveService.isEnabled()) {
+            result = appendArchived(userId, pageable, result);
+        }
+
+        if (cacheable) {
+            firstPageCache.put(userId, new CachedPage(result, System.currentTimeMillis() + cacheTtlSeconds * 1000));
+        }
+        return result;
+    }
+
+    /**
+     * Drop the cached first page of a user. When called inside a transaction the
+     * eviction runs after commit so a concurrent read cannot re-cache stale data.
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    firstPageCache.remove(userId);
+                }
+            });
+        }
+        firstPageCache.remove(userId);
+    }
+
+    /**
+     * Archived orders are all older than the hot ones, so they continue the
+     * history after the last hot order.
+     */
+    private Page<OrderHistoryDTO> appendArchived(Long userId, PageRequest pageable, Page<OrderHistoryDTO> hot) {
+        long archivedTotal = orderArchiveService.countOrdersByUser(userId);
+        if (archivedTotal == 0) {
+            return hot;
+        }
+
+        List<OrderHistoryDTO> content = new ArrayList<>(hot.getContent());
+        int missing = pageable.getPageSize() - content.size();
+        if (missing > 0) {
+            long archiveOffset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+            content.addAll(orderArchiveService.findHistory(userId, archiveOffset, missing));
+        }
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + archivedTotal);
+    }
+
+    private void attachItems(List<OrderHistoryDTO> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        Map<Long, OrderHistoryDTO> byId = orders.stream()
+                .collect(Collectors.toMap(OrderHistoryDTO::getId, Function.identity()));
+        List<OrderItemRowDTO> rows = orderItemRepository.findRowsByOrderIds(byId.keySet());
+
+        Set<Long> variantIds = rows.stream().map(OrderItemRowDTO::getVariantId).collect(Collectors.toSet());
+        Map<Long, String> firstImageByVariant = new HashMap<>();
+        if (!variantIds.isEmpty()) {
+            for (Object[] row : productImageRepository.findImageUrlsByVariantIds(variantIds)) {
+                firstImageByVariant.putIfAbsent((Long) row[0], (String) row[1]);
+            }
+        }
+
+        for (OrderItemRowDTO row : rows) {
+            byId.get(row.getOrderId()).getItems().add(toItemDTO(row, firstImageByVariant.get(row.getVariantId())));
+        }
+    }
+
+    private AdminOrderItemDTO toItemDTO(OrderItemRowDTO row, String imageUrl) {
+        String img = imageUrl != null ? imageUrl : "/api/images/product/" + row.getModelNo() + "/1";
+        ProductSummaryDTO product = new ProductSummaryDTO(
+                row.getModelNo(),
+                row.getProductName(),
+                img,
+                Boolean.TRUE.equals(row.getReturnable()),
+                Boolean.TRUE.equals(row.getReplaceable()),
+                Boolean.TRUE.equals(row.getSingleBrand()));
+
+        double price = row.getPrice() != null ? row.getPrice() : 0.0;
+        int quantity = row.getQuantity() != null ? row.getQuantity() : 0;
+        return new AdminOrderItemDTO(product, price, quantity, price * quantity, row.getSize(), row.getColor(),
+                row.getColorHex());
+    }
+
+    private static class CachedPage {
+        final Page<OrderHistoryDTO> page;
+        final long expiryTime;
+
+        CachedPage(Page<OrderHistoryDTO> page, long expiryTime) {
+            this.page = page;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
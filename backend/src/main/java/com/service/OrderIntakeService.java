@@ -0,0 +1,407 @@
+package com.service;
+
+import com.dto.OrderIntakeStatusDTO;
+import com.dto.OrderResponseDTO;
+import com.entity.ProductVariant;
+import com.entity.User;
+import com.exception.ServiceBusyException;
+import com.payload.request.OrderRequest;
+import com.repository.CartRepository;
+import com.repository.ProductVariantRepository;
+import com.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderIntakeService
+ * ==================
+ *
+ * Optional queued checkout for flash sales ({@code app.orders.intake.enabled}).
+ * Requests are accepted into bounded per-shard queues and answered with a
+ * ticket; one writer thread per shard places the queued orders in
+ * micro-batches, one transaction per batch.
+ *
+ * <p>
+ * Orders are sharded by the lowest variant id in the cart. Carts whose lowest
+ * variant is the same SKU queue behind one writer; a cart that also holds a
+ * lower-id variant goes to another shard, so writers of different shards can
+ * still wait on the same hot row (the id-ordered locking keeps that from
+ * deadlocking). Each batch locks its variants once (in id order),
+ * pre-validates stock for every order in the batch, then places the valid
+ * ones through {@link OrderService#placeOrder}. If the batch transaction still
+ * fails it is replayed one order per transaction so a single bad order cannot
+ * sink the others.
+ * </p>
+ *
+ * <p>
+ * A repeated {@code Idempotency-Key} goes through {@link IdempotencyService}
+ * (scope {@code order-intake}) and gets the ticket of the first request, in
+ * its current state while the ticket is still kept.
+ * </p>
+ *
+ * <p>
+ * Latency is recorded in the {@code orders.placement} timer with
+ * {@code mode=intake}; the synchronous endpoint records {@code mode=sync}, so
+ * both paths can be compared on the metrics endpoint.
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrderIntakeService {
+
+    public static final String PLACEMENT_TIMER = "orders.placement";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${app.orders.intake.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.orders.intake.shards:4}")
+    private int shardCount;
+
+    @Value("${app.orders.intake.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.orders.intake.batch-size:25}")
+    private int batchSize;
+
+    // How long a writer waits for more requests before committing a partial batch
+    @Value("${app.orders.intake.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${app.orders.intake.ticket-ttl-seconds:600}")
+    private long ticketTtlSeconds;
+
+    // How long shutdown waits for the writers to place what is already queued
+    @Value("${app.orders.intake.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    private final List<BlockingQueue<IntakeRequest>> queues = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    private Timer intakeTimer;
+    private Timer batchTimer;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        intakeTimer = Timer.builder(PLACEMENT_TIMER).tag("mode", "intake")
+                .description("Checkout latency from request to placed order").register(meterRegistry);
+        batchTimer = Timer.builder("orders.intake.batch").description("Commit time of one intake batch")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("orders.intake.batch.size").register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < shardCount; i++) {
+            BlockingQueue<IntakeRequest> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Gauge.builder("orders.intake.queue.depth", queue, BlockingQueue::size).tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+
+            Thread writer = new Thread(() -> writeLoop(queue), "order-intake-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Order intake enabled: {} shards, batch size {}", shardCount, batchSize);
+    }
+
+    /**
+     * Stops accepting requests and lets the writers place everything already
+     * queued, waiting up to {@code app.orders.intake.drain-timeout-ms}. Requests
+     * still queued after that are failed on their tickets instead of being left
+     * QUEUED.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        for (Thread writer : writers) {
+            try {
+                writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        List<IntakeRequest> abandoned = new ArrayList<>();
+        queues.forEach(queue -> queue.drainTo(abandoned));
+        abandoned.forEach(request -> request.ticket.complete(null,
+                "Checkout shut down before the order was placed, please retry"));
+        if (!abandoned.isEmpty()) {
+            log.warn("Order intake stopped with {} queued requests not placed", abandoned.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a checkout of the user's current cart. The order is built from the
+     * cart as it is when the writer reaches the request.
+     *
+     * @throws ServiceBusyException when the shard queue is full
+     */
+    public OrderIntakeStatusDTO submit(User user, OrderRequest request, String idempotencyKey) {
+        if (!enabled) {
+            throw new RuntimeException("Order intake queue is disabled");
+        }
+
+        OrderIntakeStatusDTO queued = idempotencyService.execute(idempotencyKey, user.getId(), "order-intake",
+                request, OrderIntakeStatusDTO.class, () -> enqueue(user, request));
+        // A replay returns the ticket as first queued; report its current state
+        return findTicket(queued.getTicketId(), user.getId()).map(Ticket::toDTO).orElse(queued);
+    }
+
+    private OrderIntakeStatusDTO enqueue(User user, OrderRequest request) {
+        if (!running) {
+            throw new ServiceBusyException("Checkout is shutting down, please retry in a moment");
+        }
+        long shardKey = cartRepository.findCartLinesByUserIds(List.of(user.getId())).stream()
+                .mapToLong(row -> (Long) row[1])
+                .min()
+                .orElseThrow(() -> new RuntimeException("Cannot place order with an empty cart"));
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), user.getId());
+        IntakeRequest intake = new IntakeRequest(ticket, user.getId(), request);
+        if (!queues.get((int) (shardKey % queues.size())).offer(intake)) {
+            throw new ServiceBusyException("Checkout is busy, please retry in a moment");
+        }
+
+        tickets.put(ticket.id, ticket);
+        return ticket.toDTO();
+    }
+
+    public Optional<OrderIntakeStatusDTO> getStatus(String ticketId, Long userId) {
+        return findTicket(ticketId, userId).map(Ticket::toDTO);
+    }
+
+    /**
+     * Completes when the ticket is resolved (or immediately if it already is).
+     */
+    public Optional<CompletableFuture<OrderIntakeStatusDTO>> awaitStatus(String ticketId, Long userId) {
+        return findTicket(ticketId, userId).map(ticket -> ticket.done.thenApply(ignored -> ticket.toDTO()));
+    }
+
+    private Optional<Ticket> findTicket(String ticketId, Long userId) {
+        return Optional.ofNullable(tickets.get(ticketId)).filter(t -> t.userId.equals(userId));
+    }
+
+    // ==================== WRITER ====================
+
+    private void writeLoop(BlockingQueue<IntakeRequest> queue) {
+        // After stop() the writer keeps going until its queue is empty
+        while (running || !queue.isEmpty()) {
+            try {
+                IntakeRequest first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<IntakeRequest> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    IntakeRequest next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Never let the writer die; failures are reported on the tickets
+                log.error("Order intake writer error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void processBatch(List<IntakeRequest> batch) {
+        batchSizes.record(batch.size());
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Map<IntakeRequest, OrderResponseDTO> placed = new LinkedHashMap<>();
+        Map<IntakeRequest, String> rejected = new LinkedHashMap<>();
+
+        try {
+            batchTimer.record(() -> tx.executeWithoutResult(status -> placeBatch(batch, placed, rejected)));
+        } catch (Exception e) {
+            log.warn("Intake batch of {} failed ({}), replaying one by one", batch.size(), e.getMessage());
+            placed.clear();
+            rejected.clear();
+            for (IntakeRequest request : batch) {
+                try {
+                    placed.put(request, tx.execute(status -> place(request)));
+                } catch (Exception single) {
+                    rejected.put(request, single.getMessage());
+                }
+            }
+        }
+
+        placed.forEach((request, order) -> request.ticket.complete(order, null));
+        rejected.forEach((request, error) -> request.ticket.complete(null, error));
+        for (IntakeRequest request : batch) {
+            intakeTimer.record(System.nanoTime() - request.queuedAtNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void placeBatch(List<IntakeRequest> batch, Map<IntakeRequest, OrderResponseDTO> placed,
+            Map<IntakeRequest, String> rejected) {
+        // Cart lines of every buyer in the batch: userId -> (variantId -> quantity)
+        Map<Long, Map<Long, Integer>> lines = new HashMap<>();
+        List<Long> userIds = batch.stream().map(r -> r.userId).distinct().toList();
+        for (Object[] row : cartRepository.findCartLinesByUserIds(userIds)) {
+            lines.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .merge((Long) row[1], ((Number) row[2]).intValue(), Integer::sum);
+        }
+
+        // One locking read for every variant in the batch, before anything else loads them
+        Map<Long, Integer> remaining = new HashMap<>();
+        List<Long> variantIds = lines.values().stream().flatMap(m -> m.keySet().stream()).distinct().toList();
+        if (!variantIds.isEmpty()) {
+            for (ProductVariant variant : productVariantRepository.lockByIds(variantIds)) {
+                remaining.put(variant.getId(), variant.getQuantity());
+            }
+        }
+
+        List<IntakeRequest> accepted = new ArrayList<>();
+        for (IntakeRequest request : batch) {
+            String problem = reserve(lines.get(request.userId), remaining);
+            if (problem != null) {
+                rejected.put(request, problem);
+            } else {
+                accepted.add(request);
+                // A second queued checkout of the same cart finds it empty
+                lines.remove(request.userId);
+            }
+        }
+
+        for (IntakeRequest request : accepted) {
+            placed.put(request, place(request));
+        }
+    }
+
+    /**
+     * Takes the cart's quantities from {@code remaining}, or returns why the
+     * order cannot be placed (nothing is taken in that case).
+     */
+    private String reserve(Map<Long, Integer> cart, Map<Long, Integer> remaining) {
+        if (cart == null || cart.isEmpty()) {
+            return "Cannot place order with an empty cart";
+        }
+        for (Map.Entry<Long, Integer> line : cart.entrySet()) {
+            if (remaining.getOrDefault(line.getKey(), 0) < line.getValue()) {
+                return "Insufficient stock for variant " + line.getKey();
+            }
+        }
+        cart.forEach((variantId, qty) -> remaining.merge(variantId, -qty, Integer::sum));
+        return null;
+    }
+
+    private OrderResponseDTO place(IntakeRequest request) {
+        User user = userRepository.findById(request.userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return orderService.placeOrder(user, request.request);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeTickets() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(ticketTtlSeconds);
+        tickets.values().removeIf(t -> t.completedAt != null && t.completedAt.isBefore(cutoff));
+    }
+
+    private static class IntakeRequest {
+        final Ticket ticket;
+        final Long userId;
+        final OrderRequest request;
+        final long queuedAtNanos = System.nanoTime();
+
+        IntakeRequest(Ticket ticket, Long userId, OrderRequest request) {
+            this.ticket = ticket;
+            this.userId = userId;
+            this.request = request;
+        }
+    }
+
+    private static class Ticket {
+        final String id;
+        final Long userId;
+        final LocalDateTime queuedAt = LocalDateTime.now();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        volatile OrderResponseDTO order;
+        volatile String error;
+        volatile LocalDateTime completedAt;
+
+        Ticket(String id, Long userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        void complete(OrderResponseDTO order, String error) {
+            this.order = order;
+            this.error = error;
+            this.completedAt = LocalDateTime.now();
+            done.complete(null);
+        }
+
+        OrderIntakeStatusDTO toDTO() {
+            String status = completedAt == null ? "QUEUED" : order != null ? "PLACED" : "FAILED";
+            return new OrderIntakeStatusDTO(id, status, order, error, queuedAt, completedAt);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.service;
+
+import com.dto.OrderStatusNotificationDTO;
+import com.util.TimingWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OrderNotificationCoalescer
+ * ==========================
+ *
+ * Holds order status/tracking emails back for a short quiet period and sends
+ * only the latest state of each order. An order moved PENDING -> CONFIRMED ->
+ * SHIPPED within a couple of minutes produces one "Shipped" email instead of
+ * three.
+ *
+ * <p>
+ * Every new event for an order restarts its {@code app.notifications.coalesce-window-ms}
+ * quiet period, but no email waits longer than {@code max-delay-ms} after the
+ * first event. Final states (DELIVERED, CANCELLED) are sent at once. Events
+ * are taken only after their transaction commits. Pending emails live in
+ * memory, so a restart flushes what it can on shutdown.
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrderNotificationCoalescer {
+
+    private static final Set<String> FINAL_STATUSES = Set.of("DELIVERED", "CANCELLED");
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${app.notifications.coalesce-window-ms:60000}")
+    private long windowMs;
+
+    @Value("${app.notifications.max-delay-ms:300000}")
+    private long maxDelayMs;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final TimingWheel<String> wheel = new TimingWheel<>(1000, 512, System.currentTimeMillis());
+
+    /**
+     * Queue a notification once the current transaction commits (at once
+     * without a transaction).
+     */
+    public void publishAfterCommit(OrderStatusNotificationDTO notification) {
+        publishAfterCommit(List.of(notification));
+    }
+
+    public void publishAfterCommit(List<OrderStatusNotificationDTO> notifications) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(notifications);
+                }
+            });
+        } else {
+            publish(notifications);
+        }
+    }
+
+    private void publish(List<OrderStatusNotificationDTO> notifications) {
+        List<OrderStatusNotificationDTO> sendNow = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (OrderStatusNotificationDTO n : notifications) {
+            if (n.getEmail() == null) {
+                continue;
+            }
+            boolean isFinal = n.getStatus() != null && FINAL_STATUSES.contains(n.getStatus().toUpperCase());
+            if (windowMs <= 0 || isFinal) {
+                // Anything still held back for this order is superseded
+                if (pending.remove(n.getOrderId()) != null) {
+                    wheel.cancel(n.getOrderId());
+                }
+                sendNow.add(n);
+                continue;
+            }
+
+            Pending entry = pending.compute(n.getOrderId(), (id, existing) -> {
+                Pending p = existing != null ? existing : new Pending(now);
+                p.latest = n;
+                p.events++;
+                return p;
+            });
+            wheel.schedule(n.getOrderId(), Math.min(now + windowMs, entry.firstAt + maxDelayMs));
+        }
+
+        if (!sendNow.isEmpty()) {
+            emailService.sendOrderStatusUpdates(sendNow);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.flush-interval-ms:1000}")
+    public void flushDue() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        if (!due.isEmpty()) {
+            send(due);
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        send(new ArrayList<>(pending.keySet()));
+    }
+
+    private void send(List<String> orderIds) {
+        List<OrderStatusNotificationDTO> batch = new ArrayList<>(orderIds.size());
+        int events = 0;
+        for (String orderId : orderIds) {
+            Pending p = pending.remove(orderId);
+            if (p != null) {
+                batch.add(p.latest);
+                events += p.events;
+            }
+        }
+        if (!batch.isEmpty()) {
+            log.debug("Sending {} order notifications for {} status events", batch.size(), events);
+            emailService.sendOrderStatusUpdates(batch);
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private static class Pending {
+        final long firstAt;
+        OrderStatusNotificationDTO latest;
+        int events;
+
+        Pending(long firstAt) {
+            this.firstAt = firstAt;
+        }
+    }
+}
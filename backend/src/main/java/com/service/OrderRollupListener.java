@@ -0,0 +1,89 @@
+package com.service;
+
+import com.entity.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * OrderRollupListener
+ * ===================
+ *
+ * Queues committed order inserts, and updates that touch a field the
+ * {@link OrderRollupService} aggregates, for a rollup refresh. Deletes are
+ * handled by {@link OrderRollupService#removeOrder} before the rows go away.
+ */
+@Component
+public class OrderRollupListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener {
+
+    private static final Set<String> ROLLUP_FIELDS = Set.of("status", "paymentStatus", "discount", "orderDate");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == Order.class;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Order order) {
+            orderRollupService.refresh(List.of(order.getId()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Order order && touchesRollup(event)) {
+            orderRollupService.refresh(List.of(order.getId()));
+        }
+    }
+
+    // Without dirty tracking information every update is refreshed
+    private static boolean touchesRollup(PostUpdateEvent event) {
+        int[] dirty = event.getDirtyProperties();
+        if (dirty == null) {
+            return true;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        for (int index : dirty) {
+            if (ROLLUP_FIELDS.contains(names[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Nothing was committed, so there is nothing to refresh
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+}
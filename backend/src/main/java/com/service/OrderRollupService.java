@@ -0,0 +1,649 @@
+package com.service;
+
+import com.config.WorkloadExecutors;
+import com.dto.SalesRollupDTO;
+import com.entity.JobCheckpoint;
+import com.entity.SalesRollup;
+import com.repository.JobCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * OrderRollupService
+ * ==================
+ *
+ * Keeps the hourly {@link SalesRollup} rows (shop-wide, per category and per
+ * moderator) in step with the orders, and answers range queries over them at
+ * hour, day or month granularity without touching the order tables.
+ *
+ * <p>
+ * An order is counted while it is neither cancelled, returned nor refunded
+ * and its payment has not failed or been refunded. Refreshing an order
+ * compares that with its {@code OrderRollupState} row (locked for the
+ * update), which records the hour bucket, discount and lines (with their
+ * category and moderator at the time) the order was added with. The order's
+ * lines are added or subtracted only when it starts or stops counting, or
+ * moved (old figures out, new ones in) when a counted order's date or
+ * discount changed, so refreshes are idempotent. Old figures always come from
+ * the state row, so a product recategorised or handed to another moderator
+ * since does not leave them in the wrong rows. Committed
+ * order writes are queued by
+ * {@link OrderRollupListener} (and by bulk updates that bypass JPA) and
+ * applied in batches on the analytics pool, each batch in a transaction of
+ * its own.
+ * </p>
+ *
+ * <p>
+ * The backfill refreshes every order, live and archived, in id order under a
+ * {@link JobCheckpoint}, so an interrupted run resumes where it stopped. Run
+ * it again with {@code restart} to re-check everything, e.g. after a crash
+ * lost queued refreshes. It starts by itself at startup until it has
+ * completed once.
+ * </p>
+ */
+@Service
+@Slf4j
+public class OrderRollupService {
+
+    public static final String BACKFILL_JOB = "order-rollup-backfill";
+
+    private static final String BACKFILL_RUN = "all";
+    private static final String ALL_KEY = "all";
+    private static final String PLATFORM_KEY = "platform";
+    private static final Set<String> UNCOUNTED_STATUSES = Set.of("CANCELLED", "RETURNED", "REFUNDED");
+    private static final Set<String> UNCOUNTED_PAYMENTS = Set.of("FAILED", "REFUNDED");
+    private static final long MAX_HOURLY_BUCKETS = 31 * 24;
+
+    public enum Granularity {
+        HOUR("%Y-%m-%d %H:00"), DAY("%Y-%m-%d"), MONTH("%Y-%m");
+
+        private final String format;
+
+        Granularity(String format) {
+            this.format = format;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private WorkloadExecutors workloadExecutors;
+
+    @Value("${app.rollups.batch-size:200}")
+    private int batchSize;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean backfilling = new AtomicBoolean(false);
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Totals per period in [from, to) for one scope key ({@code all} for the
+     * ALL scope, a category name or a moderator id). Periods without orders
+     * are left out.
+     */
+    public List<SalesRollupDTO> query(SalesRollup.Scope scope, String key, LocalDateTime from, LocalDateTime to,
+            Granularity granularity) {
+        checkRange(from, to);
+        if (granularity == Granularity.HOUR && Duration.between(from, to).toHours() > MAX_HOURLY_BUCKETS) {
+            throw new RuntimeException("Hourly figures are limited to 31 days; use DAY or MONTH");
+        }
+        return jdbcTemplate.query("SELECT DATE_FORMAT(bucket_hour, ?) AS period, SUM(orders), SUM(units), "
+                + "SUM(gross), SUM(discount), SUM(net), SUM(commission) FROM sales_rollup "
+                + "WHERE scope = ? AND scope_key = ? AND bucket_hour >= ? AND bucket_hour < ? "
+                + "GROUP BY period ORDER BY period",
+                (rs, i) -> row(rs.getString(1), rs), granularity.format, scope.name(),
+                scope == SalesRollup.Scope.ALL ? ALL_KEY : key, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /** Totals per key of a scope over [from, to), highest net first. */
+    public Map<String, SalesRollupDTO> breakdown(SalesRollup.Scope scope, LocalDateTime from, LocalDateTime to) {
+        checkRange(from, to);
+        Map<String, SalesRollupDTO> totals = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT scope_key, SUM(orders), SUM(units), SUM(gross), SUM(discount), SUM(net), "
+                + "SUM(commission) FROM sales_rollup WHERE scope = ? AND bucket_hour >= ? AND bucket_hour < ? "
+                + "GROUP BY scope_key ORDER BY SUM(net) DESC", rs -> {
+                    totals.put(rs.getString(1), row(null, rs));
+                }, scope.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return totals;
+    }
+
+    private static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+    }
+
+    private static SalesRollupDTO row(String period, ResultSet rs) throws SQLException {
+        return new SalesRollupDTO(period, rs.getLong(2), rs.getLong(3), money(rs.getDouble(4)),
+                money(rs.getDouble(5)), money(rs.getDouble(6)), money(rs.getDouble(7)));
+    }
+
+    private static double money(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    // ==================== INCREMENTAL UPDATES ====================
+
+    /**
+     * Queues orders whose changes have already committed. They are applied in
+     * batches by a single drain task on the analytics pool, so concurrent
+     * orders do not fight over the same hourly rows.
+     */
+    public void refresh(Collection<Long> orderIds) {
+        pending.addAll(orderIds);
+        scheduleDrain();
+    }
+
+    /** {@link #refresh} once the current transaction commits. */
+    public void refreshAfterCommit(Collection<Long> orderIds) {
+        List<Long> ids = List.copyOf(orderIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(ids);
+                }
+            });
+        } else {
+            refresh(ids);
+        }
+    }
+
+    /**
+     * Takes an order out of the rollups in the caller's transaction. Must run
+     * before the order is deleted, while its lines can still be read.
+     */
+    @Transactional
+    public void removeOrder(Long orderId) {
+        apply(List.of(orderId), true);
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            workloadExecutors.get(WorkloadExecutors.Workload.ANALYTICS).execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            log.warn("Rollup refresh of {} orders postponed: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    private void drain() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        // The pool runs tasks on the caller when saturated, possibly from afterCommit of a finished transaction
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            List<Long> batch;
+            while (!(batch = takePending()).isEmpty()) {
+                List<Long> ids = batch;
+                try {
+                    tx.executeWithoutResult(status -> apply(ids, false));
+                } catch (RuntimeException e) {
+                    // Left to the next backfill rather than retried forever
+                    log.error("Rollup refresh failed for orders {}", ids, e);
+                }
+            }
+        } finally {
+            draining.set(false);
+            // Orders queued after the last take but before the flag was cleared
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private List<Long> takePending() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        Iterator<Long> it = pending.iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+
+    /**
+     * Brings the given orders' contribution in line with their current state.
+     * Runs inside the caller's transaction.
+     */
+    private void apply(List<Long> orderIds, boolean removing) {
+        // Sorted so concurrent refreshes lock state rows in the same order
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(orderIds));
+        String ids = sorted.stream().map(String::valueOf).collect(Collectors.joining(","));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO order_rollup_state (order_id, counted, updated_at) "
+                + "VALUES (?, false, ?)", sorted, sorted.size(), (ps, id) -> {
+                    ps.setLong(1, id);
+                    ps.setTimestamp(2, now);
+                });
+        Map<Long, Header> counted = new HashMap<>();
+        Set<Long> countedUnknown = new HashSet<>();
+        jdbcTemplate.query("SELECT order_id, counted, bucket_hour, discount, counted_lines FROM order_rollup_state "
+                + "WHERE order_id IN (" + ids + ") FOR UPDATE", rs -> {
+                    Timestamp bucket = rs.getTimestamp(3);
+                    if (!rs.getBoolean(2)) {
+                        return;
+                    }
+                    if (bucket != null) {
+                        Header previous = new Header(rs.getLong(1), bucket.toLocalDateTime(), null, null,
+                                rs.getDouble(4));
+                        previous.lines = decodeLines(rs.getString(5));
+                        counted.put(rs.getLong(1), previous);
+                    } else {
+                        countedUnknown.add(rs.getLong(1));
+                    }
+                });
+
+        Map<Long, Header> headers = loadHeaders(ids);
+        // Contributions to add (sign 1) or take out (sign -1), and the orders whose state row changes
+        List<Header> changed = new ArrayList<>();
+        Map<Long, Header> updated = new LinkedHashMap<>();
+        for (Long id : sorted) {
+            Header header = headers.get(id);
+            // Gone without removeOrder(): nothing left to subtract, the next recount shows it
+            if (header == null) {
+                continue;
+            }
+            Header current = !removing && header.countable() ? header : null;
+            Header previous = counted.get(id);
+            if (countedUnknown.contains(id)) {
+                // Counted before buckets were recorded: assume the order's current figures
+                previous = header.copy();
+            }
+            if (previous != null && current != null && previous.sameBucketAndDiscount(current)) {
+                if (previous.lines == null) {
+                    // Nothing to move, only record what it is counted with
+                    updated.put(id, current);
+                }
+                continue;
+            }
+            if (previous == null && current == null) {
+                continue;
+            }
+            if (previous != null) {
+                previous.sign = -1;
+                changed.add(previous);
+            }
+            if (current != null) {
+                current.sign = 1;
+                changed.add(current);
+            }
+            updated.put(id, current);
+        }
+        if (updated.isEmpty()) {
+            return;
+        }
+
+        // Old figures come from the state row; rows written before lines were recorded fall back to the order's
+        Map<RollupKey, double[]> deltas = new LinkedHashMap<>();
+        Map<Long, List<Line>> lines = loadLines(
+                updated.keySet().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        for (Header header : updated.values()) {
+            if (header != null) {
+                header.lines = lines.getOrDefault(header.orderId, List.of());
+            }
+        }
+        for (Header header : changed) {
+            accumulate(header, header.lines != null ? header.lines : lines.getOrDefault(header.orderId, List.of()),
+                    deltas);
+        }
+
+        List<Map.Entry<RollupKey, double[]>> rows = new ArrayList<>(deltas.entrySet());
+        if (!rows.isEmpty()) {
+            upsertRollups(rows);
+        }
+        List<Map.Entry<Long, Header>> states = new ArrayList<>(updated.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE order_rollup_state SET counted = ?, bucket_hour = ?, discount = ?, "
+                + "counted_lines = ?, updated_at = ? WHERE order_id = ?", states, states.size(), (ps, state) -> {
+                    Header header = state.getValue();
+                    ps.setBoolean(1, header != null);
+                    ps.setTimestamp(2, header != null ? Timestamp.valueOf(header.bucket()) : null);
+                    ps.setObject(3, header != null ? header.discount : null);
+                    ps.setString(4, header != null ? encodeLines(header.lines) : null);
+                    ps.setTimestamp(5, now);
+                    ps.setLong(6, state.getKey());
+                });
+    }
+
+    private static String encodeLines(List<Line> lines) {
+        return lines.stream()
+                .map(l -> (l.category != null ? l.category : "") + "," + (l.moderatorId != null ? l.moderatorId : "")
+                        + "," + l.quantity + "," + l.price)
+                .collect(Collectors.joining(";"));
+    }
+
+    private static List<Line> decodeLines(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        List<Line> lines = new ArrayList<>();
+        for (String entry : encoded.split(";")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] fields = entry.split(",", -1);
+            lines.add(new Line(Double.parseDouble(fields[3]), Integer.parseInt(fields[2]),
+                    fields[0].isEmpty() ? null : fields[0], fields[1].isEmpty() ? null : Long.valueOf(fields[1])));
+        }
+        return lines;
+    }
+
+    private void upsertRollups(List<Map.Entry<RollupKey, double[]>> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO sales_rollup (scope, scope_key, bucket_hour, orders, units, gross, "
+                + "discount, net, commission) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                + "orders = orders + VALUES(orders), units = units + VALUES(units), gross = gross + VALUES(gross), "
+                + "discount = discount + VALUES(discount), net = net + VALUES(net), "
+                + "commission = commission + VALUES(commission)", rows, rows.size(), (ps, row) -> {
+                    RollupKey key = row.getKey();
+                    double[] d = row.getValue();
+                    ps.setString(1, key.scope().name());
+                    ps.setString(2, key.key());
+                    ps.setTimestamp(3, Timestamp.valueOf(key.bucket()));
+                    ps.setLong(4, (long) d[0]);
+                    ps.setLong(5, (long) d[1]);
+                    ps.setDouble(6, d[2]);
+                    ps.setDouble(7, d[3]);
+                    ps.setDouble(8, d[4]);
+                    ps.setDouble(9, d[5]);
+                });
+    }
+
+    /**
+     * Adds one order's lines (times its sign) to every shop, category and
+     * moderator row it touches. Discount and commission are split per line
+     * the way {@link SettlementService} splits the payment.
+     */
+    private static void accumulate(Header header, List<Line> lines, Map<RollupKey, double[]> deltas) {
+        LocalDateTime bucket = header.bucket();
+        double subtotal = lines.stream().mapToDouble(l -> l.price * l.quantity).sum();
+        double discountRatio = subtotal > 0 ? header.discount / subtotal : 0;
+        // Single-brand orders pay commission on the whole order, platform items included
+        boolean singleBrand = lines.stream().map(l -> l.moderatorId).filter(Objects::nonNull)
+                .distinct().count() == 1;
+        double rate = SettlementService.PLATFORM_COMMISSION_PERCENT / 100.0;
+
+        Set<RollupKey> seen = new HashSet<>();
+        RollupKey all = new RollupKey(SalesRollup.Scope.ALL, ALL_KEY, bucket);
+        add(deltas, seen, all, header.sign, 0, 0, 0, 0);
+        for (Line line : lines) {
+            double gross = line.price * line.quantity;
+            double discount = gross * discountRatio;
+            double net = gross - discount;
+            double commission = line.moderatorId != null || singleBrand ? net * rate : 0;
+            String category = line.category != null ? line.category : "NONE";
+            String moderator = line.moderatorId != null ? line.moderatorId.toString() : PLATFORM_KEY;
+
+            for (RollupKey key : List.of(all, new RollupKey(SalesRollup.Scope.CATEGORY, category, bucket),
+                    new RollupKey(SalesRollup.Scope.MODERATOR, moderator, bucket))) {
+                add(deltas, seen, key, header.sign, line.quantity, gross, discount, commission);
+            }
+        }
+    }
+
+    private static void add(Map<RollupKey, double[]> deltas, Set<RollupKey> seen, RollupKey key, int sign,
+            int units, double gross, double discount, double commission) {
+        double[] d = deltas.computeIfAbsent(key, k -> new double[6]);
+        // Each order counts once per row however many of its lines land there
+        if (seen.add(key)) {
+            d[0] += sign;
+        }
+        d[1] += sign * units;
+        d[2] += sign * gross;
+        d[3] += sign * discount;
+        d[4] += sign * (gross - discount);
+        d[5] += sign * commission;
+    }
+
+    private Map<Long, Header> loadHeaders(String ids) {
+        Map<Long, Header> headers = new HashMap<>();
+        for (String table : tables("orders")) {
+            jdbcTemplate.query("SELECT id, order_date, status, payment_status, discount FROM " + table
+                    + " WHERE id IN (" + ids + ")", rs -> {
+                        headers.putIfAbsent(rs.getLong(1), new Header(rs.getLong(1),
+                                rs.getTimestamp(2).toLocalDateTime(), rs.getString(3), rs.getString(4),
+                                rs.getDouble(5)));
+                    });
+        }
+        return headers;
+    }
+
+    private Map<Long, List<Line>> loadLines(String ids) {
+        Map<Long, List<Line>> lines = new HashMap<>();
+        for (String table : tables("order_item")) {
+            jdbcTemplate.query("SELECT i.order_id, i.price, i.quantity, p.category, p.moderator_id FROM " + table
+                    + " i JOIN product_variant v ON v.id = i.variant_id JOIN product p ON p.model_no = v.model_no "
+                    + "WHERE i.order_id IN (" + ids + ")", rs -> {
+                        long moderatorId = rs.getLong(5);
+                        Long moderator = rs.wasNull() ? null : moderatorId;
+                        lines.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>())
+                                .add(new Line(rs.getDouble(2), rs.getInt(3), rs.getString(4), moderator));
+                    });
+        }
+        return lines;
+    }
+
+    // The live table, plus its archive copy when archival is on
+    private List<String> tables(String table) {
+        return orderArchiveService.isEnabled() ? List.of(table, table + "_archive") : List.of(table);
+    }
+
+    // ==================== BACKFILL ====================
+
+    @Scheduled(cron = "${app.rollups.backfill-cron:0 45 2 * * *}")
+    public void scheduledBackfill() {
+        runBackfill(false);
+    }
+
+    /**
+     * On a fresh deploy (or after an interrupted first run) the rollups are
+     * empty or partial, so the backfill starts right away instead of waiting
+     * for the nightly run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfIncomplete() {
+        boolean completed = jobCheckpointRepository.findByJobNameAndRunKey(BACKFILL_JOB, BACKFILL_RUN)
+                .map(checkpoint -> checkpoint.getStatus() == JobCheckpoint.Status.COMPLETED)
+                .orElse(false);
+        if (completed) {
+            return;
+        }
+        try {
+            workloadExecutors.get(WorkloadExecutors.Workload.ANALYTICS).execute(() -> {
+                try {
+                    runBackfill(false);
+                } catch (RuntimeException e) {
+                    log.error("Startup rollup backfill failed; the nightly run resumes it", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Startup rollup backfill not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs (or resumes) the backfill and returns its progress, or null when a
+     * run is already in progress. {@code restart} starts a completed backfill
+     * over.
+     */
+    public Map<String, Object> runBackfill(boolean restart) {
+        if (!backfilling.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            JobCheckpoint checkpoint = loadCheckpoint();
+            Long checkpointId = checkpoint.getId();
+
+            if (restart && checkpoint.getStatus() == JobCheckpoint.Status.COMPLETED) {
+                checkpoint = tx.execute(status -> {
+                    JobCheckpoint cp = jobCheckpointRepository.findById(checkpointId).orElseThrow();
+                    cp.setStatus(JobCheckpoint.Status.RUNNING);
+                    cp.setPosition(null);
+                    cp.setProcessed(0);
+                    cp.setStartedAt(LocalDateTime.now());
+                    cp.setUpdatedAt(cp.getStartedAt());
+                    cp.setCompletedAt(null);
+                    return jobCheckpointRepository.save(cp);
+                });
+            }
+
+            if (checkpoint.getStatus() != JobCheckpoint.Status.COMPLETED) {
+                long started = System.currentTimeMillis();
+                long position = checkpoint.getPosition() != null ? checkpoint.getPosition() : 0;
+                long refreshed = 0;
+                List<Long> ids;
+                while (!(ids = nextOrderIds(position)).isEmpty()) {
+                    List<Long> batch = ids;
+                    tx.executeWithoutResult(status -> {
+                        apply(batch, false);
+                        JobCheckpoint cp = jobCheckpointRepository.findById(checkpointId).orElseThrow();
+                        cp.setPosition(batch.get(batch.size() - 1));
+                        cp.setProcessed(cp.getProcessed() + batch.size());
+                        cp.setUpdatedAt(LocalDateTime.now());
+                        jobCheckpointRepository.save(cp);
+                    });
+                    position = batch.get(batch.size() - 1);
+                    refreshed += batch.size();
+                }
+                checkpoint = tx.execute(status -> {
+                    JobCheckpoint cp = jobCheckpointRepository.findById(checkpointId).orElseThrow();
+                    cp.setStatus(JobCheckpoint.Status.COMPLETED);
+                    cp.setUpdatedAt(LocalDateTime.now());
+                    cp.setCompletedAt(cp.getUpdatedAt());
+                    return jobCheckpointRepository.save(cp);
+                });
+                log.info("Rollup backfill checked {} orders in {} ms", refreshed, System.currentTimeMillis() - started);
+            }
+            return summary(checkpoint);
+        } finally {
+            backfilling.set(false);
+        }
+    }
+
+    public Map<String, Object> getBackfillStatus() {
+        return jobCheckpointRepository.findByJobNameAndRunKey(BACKFILL_JOB, BACKFILL_RUN).map(this::summary)
+                .orElseGet(() -> Map.of("status", "NOT_STARTED"));
+    }
+
+    private List<Long> nextOrderIds(long after) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (String table : tables("orders")) {
+            ids.addAll(jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?",
+                    Long.class, after, batchSize));
+        }
+        return ids.stream().limit(batchSize).toList();
+    }
+
+    private JobCheckpoint loadCheckpoint() {
+        return jobCheckpointRepository.findByJobNameAndRunKey(BACKFILL_JOB, BACKFILL_RUN).orElseGet(() -> {
+            try {
+                return jobCheckpointRepository.save(new JobCheckpoint(BACKFILL_JOB, BACKFILL_RUN));
+            } catch (DataIntegrityViolationException e) {
+                // Created concurrently by another instance
+                return jobCheckpointRepository.findByJobNameAndRunKey(BACKFILL_JOB, BACKFILL_RUN)
+                        .orElseThrow(() -> e);
+            }
+        });
+    }
+
+    private Map<String, Object> summary(JobCheckpoint checkpoint) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("status", checkpoint.getStatus());
+        summary.put("orders", checkpoint.getProcessed());
+        summary.put("lastOrderId", checkpoint.getPosition());
+        summary.put("startedAt", checkpoint.getStartedAt());
+        summary.put("completedAt", checkpoint.getCompletedAt());
+        return summary;
+    }
+
+    private record RollupKey(SalesRollup.Scope scope, String key, LocalDateTime bucket) {
+    }
+
+    private record Line(double price, int quantity, String category, Long moderatorId) {
+    }
+
+    private static class Header {
+        final long orderId;
+        final LocalDateTime orderDate;
+        final String status;
+        final String paymentStatus;
+        final double discount;
+        int sign;
+        // What the order is (or was) counted with; null for state rows that predate recording them
+        List<Line> lines;
+
+        Header(long orderId, LocalDateTime orderDate, String status, String paymentStatus, double discount) {
+            this.orderId = orderId;
+            this.orderDate = orderDate;
+            this.status = status;
+            this.paymentStatus = paymentStatus;
+            this.discount = discount;
+        }
+
+        boolean countable() {
+            return !UNCOUNTED_STATUSES.contains(status) && !UNCOUNTED_PAYMENTS.contains(paymentStatus);
+        }
+
+        LocalDateTime bucket() {
+            return orderDate.truncatedTo(ChronoUnit.HOURS);
+        }
+
+        Header copy() {
+            return new Header(orderId, orderDate, status, paymentStatus, discount);
+        }
+
+        boolean sameBucketAndDiscount(Header other) {
+            return bucket().equals(other.bucket()) && Math.abs(discount - other.discount) < 0.005;
+        }
+    }
+}
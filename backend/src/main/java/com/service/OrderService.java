@@ -2,20 +2,30 @@ package com.service;
 
 import com.dto.AdminOrderDTO;
 import com.dto.OrderResponseDTO;
+import com.dto.OrderStatusNotificationDTO;
 import com.entity.*;
 import com.mapper.OrderMapper;
 import com.repository.CartRepository;
 import com.repository.OrderRepository;
-import com.repository.UserRepository;
+import com.repository.ProductVariantRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class OrderService {
 
     @Autowired
@@ -30,21 +40,40 @@ public class OrderService {
     private CouponService couponService;
 
     @Autowired
-    private EmailService emailService;
+    private OrderNotificationCoalescer orderNotificationCoalescer;
 
     @Autowired
     private InvoiceService invoiceService;
 
     @Autowired
-    private UserRepository userRepository;
+    private OrderTrackingService orderTrackingService;
 
     @Autowired
-    private WalletService walletService;
+    private OrderHistoryService orderHistoryService;
 
     @Autowired
-    private OrderTrackingService orderTrackingService;
+    private ModeratorOrderIndexService moderatorOrderIndexService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private DashboardCounterService dashboardCounterService;
 
-    private static final double PLATFORM_COMMISSION_PERCENT = 10.0;
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
 
     @Transactional
     public OrderResponseDTO placeOrder(User user, com.payload.request.OrderRequest request) {
@@ -115,6 +144,16 @@ public class OrderService {
 
         // Save the order
         Order savedOrder = orderRepository.save(order);
+        moderatorOrderIndexService.indexOrder(savedOrder);
+        orderHistoryService.evict(user.getId());
+        trendingService.recordOrder(savedOrder);
+
+        // Online payments get a limited window before the stock is released
+        if (stockReservationService.requiresHold(request.getPaymentMethod())) {
+            stockReservationService.hold(savedOrder);
+        } else {
+            stockReservationService.invalidateStock(variantIdsOf(savedOrder));
+        }
 
         // Clear the cart directly to avoid cross-transactional rollback issues
         try {
@@ -125,9 +164,9 @@ public class OrderService {
             System.err.println("Warning: Failed to clear cart after successful order: " + e.getMessage());
         }
 
-        // Generate Invoice for record keeping (but send email only after payment)
+        // Store the invoice for record keeping (but send email only after payment)
         try {
-            invoiceService.generateInvoice(savedOrder.getId());
+            invoiceService.getInvoice(savedOrder.getId());
         } catch (Exception e) {
             System.err.println("Failed to generate invoice: " + e.getMessage());
         }
@@ -160,69 +199,7 @@ public class OrderService {
         if (order.getPaymentStatus() != PaymentStatus.COMPLETED) {
             return;
         }
-
-        User superAdmin = findSuperAdmin();
-        List<OrderItem> items = order.getItems();
-
-        // Identify unique brands
-        java.util.Set<Long> brandModeratorIds = items.stream()
-                .map(item -> item.getVariant().getProduct().getModerator()).filter(Objects::nonNull)
-                .map(Moderator::getId).collect(Collectors.toSet());
-
-        boolean isSingleBrand = brandModeratorIds.size() == 1;
-        double totalDiscount = order.getDiscount();
-        double subtotal = items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum();
-
-        // Ratio of actual price paid vs subtotal (to handle flat discounts
-        // proportionally)
-        double priceRatio = subtotal > 0 ? (subtotal - totalDiscount) / subtotal : 1.0;
-
-        if (isSingleBrand) {
-            // Case 1: Single Brand - Automatic Split
-            Moderator moderator = items.get(0).getVariant().getProduct().getModerator();
-            double netOrderAmount = (subtotal - totalDiscount);
-            double commission = netOrderAmount * (PLATFORM_COMMISSION_PERCENT / 100.0);
-            double moderatorShare = netOrderAmount - commission;
-
-            walletService.creditWallet(moderator.getUser(), moderatorShare, Transaction.TransactionSource.ORDER_PAYMENT,
-                    order.getId().toString(), "Share for Single Brand Order #" + order.getId());
-
-            walletService.creditWallet(superAdmin, commission, Transaction.TransactionSource.COMMISSION,
-                    order.getId().toString(), "Commission for Single Brand Order #" + order.getId());
-        } else {
-            // Case 2: Multiple Brands - Admin receives full amount first, then distributes
-            // Logic: Calculate each brand's share and credit them. Balance stays with
-            // Admin.
-            double totalModeratorPayouts = 0;
-
-            for (OrderItem item : items) {
-                Moderator mod = item.getVariant().getProduct().getModerator();
-                if (mod == null) {
-                    // Platform product - admin keeps full amount
-                    continue;
-                }
-
-                double itemTotal = item.getPrice() * item.getQuantity() * priceRatio;
-                double commission = itemTotal * (PLATFORM_COMMISSION_PERCENT / 100.0);
-                double modShare = itemTotal - commission;
-
-                totalModeratorPayouts += modShare;
-
-                walletService.creditWallet(mod.getUser(), modShare, Transaction.TransactionSource.ORDER_PAYMENT,
-                        order.getId().toString(), "Prorated share for Multi-Brand Order #" + order.getId());
-            }
-
-            double adminTotal = (subtotal - totalDiscount) - totalModeratorPayouts;
-            walletService.creditWallet(superAdmin, adminTotal, Transaction.TransactionSource.COMMISSION,
-                    order.getId().toString(),
-                    "Platform share (Commission + Internal items) for Multi-Brand Order #" + order.getId());
-        }
-    }
-
-    private User findSuperAdmin() {
-        return userRepository.findByRole(Role.SUPER_ADMIN).stream().findFirst()
-                .orElseGet(() -> userRepository.findByRole(Role.ADMIN).stream().findFirst()
-                        .orElseThrow(() -> new RuntimeException("No Admin/SuperAdmin found for commission routing")));
+        settlementService.settle(order);
     }
 
     @Transactional
@@ -237,7 +214,8 @@ public class OrderService {
 
     @Transactional(readOnly = true)
     public long countUserOrders(User user) {
-        return orderRepository.countByUserIdAndStatusNot(user.getId(), OrderStatus.CANCELLED);
+        return orderRepository.countByUserIdAndStatusNot(user.getId(), OrderStatus.CANCELLED)
+                + orderArchiveService.countOrdersByUserExcludingStatus(user.getId(), OrderStatus.CANCELLED);
     }
 
     @Transactional
@@ -246,11 +224,14 @@ public class OrderService {
         OrderStatus oldStatus = order.getStatus();
         order.setStatus(status);
         Order savedOrder = orderRepository.save(order);
+        moderatorOrderIndexService.updateStatus(orderId, status);
+        orderHistoryService.evict(order.getUser().getId());
 
         // Send status update email if status actually changed
         if (oldStatus != status) {
             User user = order.getUser();
-            emailService.sendOrderStatusUpdate(user.getEmail(), orderId.toString(), status.name(), user.getName());
+            orderNotificationCoalescer.publishAfterCommit(new OrderStatusNotificationDTO(user.getEmail(),
+                    user.getName(), orderId.toString(), status.name(), null));
         }
 
         return savedOrder;
@@ -268,34 +249,125 @@ public class OrderService {
             }
         }
 
+        stockReservationService.release(List.of(orderId), false);
+        stockReservationService.invalidateStock(variantIdsOf(order));
+
+        if (order.getStatus() != OrderStatus.CANCELLED) {
+            trendingService.recordCancellation(List.of(orderId));
+        }
         order.setStatus(OrderStatus.CANCELLED);
         Order savedOrder = orderRepository.save(order);
+        moderatorOrderIndexService.updateStatus(orderId, OrderStatus.CANCELLED);
+        orderHistoryService.evict(order.getUser().getId());
 
         User user = order.getUser();
-        emailService.sendOrderStatusUpdate(user.getEmail(), orderId.toString(), OrderStatus.CANCELLED.name(),
-                user.getName());
+        orderNotificationCoalescer.publishAfterCommit(new OrderStatusNotificationDTO(user.getEmail(), user.getName(),
+                orderId.toString(), OrderStatus.CANCELLED.name(), null));
 
         return savedOrder;
     }
 
+    /**
+     * Every live order; archived orders are listed page by page through
+     * {@link #getArchivedOrdersPage}.
+     */
     @Transactional(readOnly = true)
     public List<AdminOrderDTO> getAllOrdersDTO() {
         return orderRepository.findAll().stream().map(OrderMapper::toAdminDTO).toList();
     }
 
+    /** One page of archived orders, newest first. */
+    public Page<AdminOrderDTO> getArchivedOrdersPage(Pageable pageable) {
+        List<AdminOrderDTO> orders = orderArchiveService
+                .findOrdersPage(pageable.getPageNumber(), pageable.getPageSize()).stream()
+                .map(OrderMapper::toAdminDTO)
+                .toList();
+        return new PageImpl<>(orders, pageable, orderArchiveService.countOrders());
+    }
+
+    /**
+     * One page of the moderator order list, newest first: the orders containing
+     * the moderator's products (from the moderator_order index, archived orders
+     * included), or every live order when {@code moderatorId} is null.
+     */
+    @Transactional(readOnly = true)
+    public Page<AdminOrderDTO> getAdminOrdersPage(Long moderatorId, OrderStatus status, Pageable pageable) {
+        if (moderatorId == null) {
+            Page<Order> orders = status != null ? orderRepository.findByStatus(status, pageable)
+                    : orderRepository.findAll(pageable);
+            Map<Long, AdminOrderDTO> ordersById = findAdminOrders(orders.map(Order::getId).getContent());
+            return orders.map(order -> ordersById.get(order.getId()));
+        }
+
+        Page<ModeratorOrder> links = moderatorOrderIndexService.findOrders(moderatorId, status, pageable);
+        List<Long> orderIds = links.map(ModeratorOrder::getOrderId).getContent();
+        Map<Long, AdminOrderDTO> ordersById = findAdminOrders(orderIds);
+        // Index rows are kept when their orders are archived
+        List<Long> archived = orderIds.stream().filter(id -> !ordersById.containsKey(id)).toList();
+        orderArchiveService.findOrders(archived)
+                .forEach((id, order) -> ordersById.put(id, OrderMapper.toAdminDTO(order)));
+
+        List<AdminOrderDTO> content = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            AdminOrderDTO order = ordersById.get(orderId);
+            if (order == null) {
+                log.warn("moderator_order row for moderator {} points at missing order {}", moderatorId, orderId);
+                continue;
+            }
+            content.add(order);
+        }
+        return new PageImpl<>(content, pageable, links.getTotalElements());
+    }
+
+    /**
+     * Live orders mapped for the admin view, loaded with two queries (orders
+     * with items and products, then variant images) instead of lazily per item.
+     */
+    private Map<Long, AdminOrderDTO> findAdminOrders(Collection<Long> orderIds) {
+        Map<Long, AdminOrderDTO> ordersById = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return ordersById;
+        }
+        List<Order> orders = orderRepository.findWithItemsByIdIn(orderIds);
+        List<Long> variantIds = orders.stream()
+                .flatMap(order -> order.getItems().stream())
+                .map(item -> item.getVariant().getId())
+                .distinct()
+                .toList();
+        if (!variantIds.isEmpty()) {
+            productVariantRepository.fetchImagesByIds(variantIds);
+        }
+        orders.forEach(order -> ordersById.put(order.getId(), OrderMapper.toAdminDTO(order)));
+        return ordersById;
+    }
+
     @Transactional(readOnly = true)
     public List<OrderResponseDTO> getUserOrdersDTO(User user) {
-        return orderRepository.findByUser(user).stream().map(OrderMapper::toResponseDTO).toList();
+        List<OrderResponseDTO> orders = new ArrayList<>(orderArchiveService.findOrdersByUser(user.getId()));
+        orderRepository.findByUser(user).forEach(order -> orders.add(OrderMapper.toResponseDTO(order)));
+        return orders;
+    }
+
+    @Transactional(readOnly = true)
+    public org.springframework.data.domain.Page<com.dto.OrderHistoryDTO> getUserOrderHistory(User user, int page,
+            int size) {
+        return orderHistoryService.getHistory(user.getId(), page, size);
     }
 
     @Transactional(readOnly = true)
     public OrderResponseDTO getOrderResponseDTO(Long orderId) {
-        Order order = getOrderById(orderId);
+        Order order = orderRepository.findById(Objects.requireNonNull(orderId, "Order ID is required")).orElse(null);
+        if (order == null) {
+            // Closed orders past the retention window live in the archive tables
+            return orderArchiveService.findOrder(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        }
         return OrderMapper.toResponseDTO(order);
     }
 
+    /** Live and archived orders. */
     public long getTotalOrderCount() {
-        return orderRepository.count();
+        return dashboardCounterService.totalOrders();
     }
 
     @Transactional
@@ -312,30 +384,42 @@ public class OrderService {
         order.setCurrentLocation(location);
 
         // Add to tracking history
-        TrackingStatus trackingStatus;
-        try {
-            trackingStatus = TrackingStatus.valueOf(status.name());
-        } catch (IllegalArgumentException e) {
-            // Fallback for statuses that don't match exactly
-            trackingStatus = switch (status) {
-                case PENDING -> TrackingStatus.ORDER_CONFIRMED;
-                default -> TrackingStatus.SHIPPED;
-            };
-        }
+        TrackingStatus trackingStatus = toTrackingStatus(status);
         OrderTracking tracking = new OrderTracking(order, trackingStatus, location, "", "Update via Admin Portal");
         order.getTrackingHistory().add(tracking); // Cascaded
                                                   // save
 
         Order savedOrder = orderRepository.save(order);
+        moderatorOrderIndexService.updateStatus(orderId, status);
+        orderHistoryService.evict(order.getUser().getId());
 
         // Send email
         User user = order.getUser();
-        emailService.sendOrderTrackingUpdate(user.getEmail(), orderId.toString(), status.name(), location,
-                user.getName());
+        orderNotificationCoalescer.publishAfterCommit(new OrderStatusNotificationDTO(user.getEmail(), user.getName(),
+                orderId.toString(), status.name(), location));
 
         return savedOrder;
     }
 
+    private static List<Long> variantIdsOf(Order order) {
+        return order.getItems().stream()
+                .filter(item -> item.getVariant() != null)
+                .map(item -> item.getVariant().getId())
+                .toList();
+    }
+
+    static TrackingStatus toTrackingStatus(OrderStatus status) {
+        try {
+            return TrackingStatus.valueOf(status.name());
+        } catch (IllegalArgumentException e) {
+            // Fallback for statuses that don't match exactly
+            return switch (status) {
+                case PENDING -> TrackingStatus.ORDER_CONFIRMED;
+                default -> TrackingStatus.SHIPPED;
+            };
+        }
+    }
+
     @Transactional
     public void deleteOrder(Long orderId) {
         Order order = getOrderById(orderId);
@@ -348,10 +432,16 @@ public class OrderService {
             }
         }
 
+        stockReservationService.release(List.of(orderId), false);
+        stockReservationService.invalidateStock(variantIdsOf(order));
+
+        orderRollupService.removeOrder(orderId);
         orderRepository.delete(order);
+        moderatorOrderIndexService.removeOrder(orderId);
+        orderHistoryService.evict(order.getUser().getId());
     }
 
-    public byte[] generateInvoice(Long orderId) {
-        return invoiceService.generateInvoice(orderId);
+    public InvoiceService.InvoiceArtifact getInvoice(Long orderId) {
+        return invoiceService.getInvoice(orderId);
     }
 }
@@ -1,11 +1,13 @@
 package com.service;
 
+import com.dto.PaymentStatusDTO;
 import com.entity.Order;
 import com.entity.Payment;
 import com.entity.PaymentStatus;
 import com.repository.OrderRepository;
 import com.repository.PaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +15,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 public class PaymentService {
@@ -33,9 +38,36 @@ public class PaymentService {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private PaymentStatusNotifier paymentStatusNotifier;
+
+    private final Map<Long, String> qrPayloads;
+
+    public PaymentService(@Value("${app.qr.cache-size:1000}") int cacheSize) {
+        this.qrPayloads = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
     public String generateUPIString(double amount, String orderId) {
+        Order order = orderRepository.findById(Long.parseLong(orderId)).orElse(null);
+        return generateUPIString(amount, orderId, order);
+    }
+
+    /**
+     * UPI string for an order that is already loaded (no second lookup).
+     */
+    private String generateUPIString(double amount, String orderId, Order order) {
         try {
-            Order order = orderRepository.findById(Long.parseLong(orderId)).orElse(null);
             String finalUpiId = UPI_ID;
             String finalMerchantName = MERCHANT_NAME;
 
@@ -66,6 +98,23 @@ public class PaymentService {
         }
     }
 
+    /**
+     * QR payload (UPI string) stored on the payment. It never changes once the
+     * payment exists, so it is cached per payment id instead of loading the
+     * payment on every QR request. Returns null when the payment has none.
+     */
+    public String getQrPayload(Long paymentId) {
+        String cached = qrPayloads.get(paymentId);
+        if (cached != null) {
+            return cached;
+        }
+        String payload = getPaymentById(paymentId).getStripePaymentIntentId();
+        if (payload != null && !payload.isEmpty()) {
+            qrPayloads.put(paymentId, payload);
+        }
+        return payload;
+    }
+
     /**
      * Initiate payment for an order
      * 
@@ -93,7 +142,7 @@ public class PaymentService {
         payment.setPaymentMethod("UPI");
 
         // Generate UPI string and store
-        String qrData = generateUPIString(order.getTotalAmount(), order.getId().toString());
+        String qrData = generateUPIString(order.getTotalAmount(), order.getId().toString(), order);
         payment.setStripePaymentIntentId(qrData); // Reusing field for UPI data
 
         return paymentRepository.save(payment);
@@ -111,6 +160,9 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found: " + paymentId));
 
+        // Turns the stock hold into a sale; fails if the hold already expired
+        stockReservationService.convert(payment.getOrder().getId());
+
         payment.setStatus(PaymentStatus.COMPLETED);
         payment.setPaymentDate(LocalDateTime.now());
         Payment savedPayment = paymentRepository.save(payment);
@@ -120,6 +172,8 @@ public class PaymentService {
         order.setPaymentStatus(PaymentStatus.COMPLETED);
         order.setPaymentReference(transactionId);
         orderRepository.save(order);
+        orderHistoryService.evict(order.getUser().getId());
+        paymentStatusNotifier.publishAfterCommit(toStatusDTO(savedPayment));
 
         // Distribute payments to Moderator and Admin wallets
         try {
@@ -167,6 +221,13 @@ public class PaymentService {
             payment.setPaymentDate(LocalDateTime.now());
         }
 
-        return paymentRepository.save(payment);
+        Payment saved = paymentRepository.save(payment);
+        paymentStatusNotifier.publishAfterCommit(toStatusDTO(saved));
+        return saved;
+    }
+
+    private static PaymentStatusDTO toStatusDTO(Payment payment) {
+        return new PaymentStatusDTO(payment.getOrder().getId(), payment.getId(), payment.getStatus(),
+                LocalDateTime.now());
     }
 }
@@ -0,0 +1,334 @@
+package com.service;
+
+import com.dto.PaymentStatusDTO;
+import com.entity.PaymentStatus;
+import com.exception.ResourceNotFoundException;
+import com.exception.ServiceBusyException;
+import com.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * PaymentStatusNotifier
+ * =====================
+ *
+ * In-memory registry of clients waiting for the payment of an order (long
+ * polls and SSE streams). Payment status changes are published here after
+ * their transaction commits and pushed to the waiters of that order.
+ *
+ * <p>
+ * The last known status of each watched order is kept in memory, so a client
+ * costs one database read when it starts watching an order; further polls
+ * and reconnects are answered from memory until the order has been idle for
+ * {@code app.payments.status.cache-seconds}.
+ * </p>
+ *
+ * <p>
+ * Changes made elsewhere (another instance, or a write that is not
+ * published) would never reach this memory, so a status older than
+ * {@code app.payments.status.max-age-ms} is read again: by the next request
+ * for it, when a long poll times out, and by the heartbeat for orders that
+ * have waiters. A change found that way is pushed like a published one.
+ * </p>
+ */
+@Service
+@Slf4j
+public class PaymentStatusNotifier {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Value("${app.payments.status.max-waiters:10000}")
+    private int maxWaiters;
+
+    @Value("${app.payments.status.cache-seconds:120}")
+    private long cacheSeconds;
+
+    @Value("${app.payments.status.max-age-ms:10000}")
+    private long maxAgeMs;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Current payment status of the user's order, from memory when the order
+     * is already watched and its status was confirmed recently.
+     */
+    public PaymentStatusDTO currentStatus(Long orderId, Long userId) {
+        Channel channel = channels.get(orderId);
+        long readAt = System.currentTimeMillis();
+        if (channel != null && userId.equals(channel.userId) && channel.latest != null
+                && readAt - channel.verifiedAt < maxAgeMs) {
+            channel.touch();
+            return channel.latest;
+        }
+
+        List<Object[]> rows = paymentRepository.findStatusByOrderId(orderId);
+        if (rows.isEmpty() || !userId.equals(rows.get(0)[3])) {
+            throw new ResourceNotFoundException("Payment not found for order: " + orderId);
+        }
+        Object[] row = rows.get(0);
+        PaymentStatusDTO loaded = new PaymentStatusDTO(orderId, (Long) row[0], (PaymentStatus) row[1],
+                (LocalDateTime) row[2]);
+
+        channel = channels.computeIfAbsent(orderId, id -> new Channel());
+        channel.userId = userId;
+        channel.touch();
+        return reconcile(channel, loaded, readAt);
+    }
+
+    /**
+     * Completes {@code result} as soon as the status differs from
+     * {@code since} (immediately if it already does).
+     */
+    public void awaitChange(Long orderId, Long userId, PaymentStatus since,
+            DeferredResult<ResponseEntity<PaymentStatusDTO>> result) {
+        PaymentStatusDTO current = currentStatus(orderId, userId);
+        if (current.getStatus() != since) {
+            result.setResult(ResponseEntity.ok(current));
+            return;
+        }
+        reserveWaiter();
+        Channel channel = attach(orderId, c -> c.polls.add(result));
+        result.onCompletion(() -> {
+            if (channel.polls.remove(result)) {
+                waiters.decrementAndGet();
+            }
+        });
+        // A change this instance was not told about still shows up when the poll times out
+        result.onTimeout(() -> result.setResult(
+                ResponseEntity.ok(statusOnTimeout(orderId, userId, channel, current))));
+
+        // Re-check: the status may have changed before we were registered
+        PaymentStatusDTO latest = channel.latest;
+        if (latest != null && latest.getStatus() != since) {
+            result.setResult(ResponseEntity.ok(latest));
+        }
+    }
+
+    /**
+     * Opens an SSE stream that sends the current status, then every change,
+     * and completes once the payment reaches a final status.
+     */
+    public SseEmitter subscribe(Long orderId, Long userId, long timeoutMs) {
+        PaymentStatusDTO current = currentStatus(orderId, userId);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        if (!send(emitter, current)) {
+            return emitter;
+        }
+        if (current.isFinal()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        reserveWaiter();
+        Channel channel = attach(orderId, c -> c.streams.add(emitter));
+        Runnable remove = () -> {
+            if (channel.streams.remove(emitter)) {
+                waiters.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        PaymentStatusDTO latest = channel.latest;
+        if (latest != null && latest.getStatus() != current.getStatus() && send(emitter, latest)
+                && latest.isFinal()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Publishes a status change once the surrounding transaction commits
+     * (immediately when there is none), so a rolled back change is never
+     * pushed.
+     */
+    public void publishAfterCommit(PaymentStatusDTO status) {
+        publishAfterCommit(List.of(status));
+    }
+
+    public void publishAfterCommit(List<PaymentStatusDTO> statuses) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    statuses.forEach(PaymentStatusNotifier.this::publish);
+                }
+            });
+        } else {
+            statuses.forEach(this::publish);
+        }
+    }
+
+    private void publish(PaymentStatusDTO status) {
+        Channel channel = channels.computeIfAbsent(status.getOrderId(), id -> new Channel());
+        synchronized (channel) {
+            if (status.getPaymentId() == null && channel.latest != null) {
+                status.setPaymentId(channel.latest.getPaymentId());
+            }
+            channel.latest = status;
+            channel.verifiedAt = System.currentTimeMillis();
+            channel.touch();
+        }
+        deliver(channel, status);
+    }
+
+    /**
+     * Takes a status read from the database at {@code readAt} unless one
+     * published since is newer, and pushes it to the waiters if it changed.
+     */
+    private PaymentStatusDTO reconcile(Channel channel, PaymentStatusDTO loaded, long readAt) {
+        boolean changed;
+        synchronized (channel) {
+            if (channel.latest != null && channel.verifiedAt > readAt) {
+                return channel.latest;
+            }
+            changed = channel.latest != null && channel.latest.getStatus() != loaded.getStatus();
+            channel.latest = loaded;
+            channel.verifiedAt = readAt;
+        }
+        if (changed) {
+            deliver(channel, loaded);
+        }
+        return loaded;
+    }
+
+    private PaymentStatusDTO statusOnTimeout(Long orderId, Long userId, Channel channel, PaymentStatusDTO current) {
+        try {
+            return currentStatus(orderId, userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not re-read payment status of order {}: {}", orderId, e.getMessage());
+            return channel.latest != null ? channel.latest : current;
+        }
+    }
+
+    private void deliver(Channel channel, PaymentStatusDTO status) {
+        for (DeferredResult<ResponseEntity<PaymentStatusDTO>> poll : channel.polls) {
+            poll.setResult(ResponseEntity.ok(status));
+        }
+        for (SseEmitter emitter : channel.streams) {
+            if (send(emitter, status) && status.isFinal()) {
+                emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Keeps idle SSE connections alive through proxies (and detects clients
+     * that went away), re-reads stale statuses of orders that have waiters,
+     * and forgets orders nobody has watched for a while.
+     */
+    @Scheduled(fixedDelayString = "${app.payments.status.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long readAt = System.currentTimeMillis();
+        long idleBefore = readAt - cacheSeconds * 1000;
+        List<Long> stale = new ArrayList<>();
+        channels.forEach((orderId, channel) -> {
+            if ((!channel.polls.isEmpty() || !channel.streams.isEmpty()) && readAt - channel.verifiedAt >= maxAgeMs) {
+                stale.add(orderId);
+            }
+            for (SseEmitter emitter : channel.streams) {
+                try {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+            synchronized (channel) {
+                if (channel.polls.isEmpty() && channel.streams.isEmpty() && channel.touched < idleBefore) {
+                    channels.remove(orderId, channel);
+                }
+            }
+        });
+
+        if (stale.isEmpty()) {
+            return;
+        }
+        try {
+            for (Object[] row : paymentRepository.findStatusesByOrderIds(stale)) {
+                Channel channel = channels.get((Long) row[0]);
+                if (channel != null) {
+                    reconcile(channel, new PaymentStatusDTO((Long) row[0], (Long) row[1], (PaymentStatus) row[2],
+                            (LocalDateTime) row[3]), readAt);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not re-read {} payment statuses: {}", stale.size(), e.getMessage());
+        }
+    }
+
+    public int getWaiterCount() {
+        return waiters.get();
+    }
+
+    /**
+     * Adds a waiter to the order's channel, making sure the channel is not
+     * being evicted at the same moment.
+     */
+    private Channel attach(Long orderId, Consumer<Channel> register) {
+        while (true) {
+            Channel channel = channels.computeIfAbsent(orderId, id -> new Channel());
+            synchronized (channel) {
+                if (channels.get(orderId) == channel) {
+                    register.accept(channel);
+                    channel.touch();
+                    return channel;
+                }
+            }
+        }
+    }
+
+    private void reserveWaiter() {
+        if (waiters.incrementAndGet() > maxWaiters) {
+            waiters.decrementAndGet();
+            throw new ServiceBusyException("Too many clients waiting for payment updates");
+        }
+    }
+
+    private boolean send(SseEmitter emitter, PaymentStatusDTO status) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private static class Channel {
+        volatile Long userId;
+        volatile PaymentStatusDTO latest;
+        // When latest was last read from the database or published
+        volatile long verifiedAt;
+        volatile long touched = System.currentTimeMillis();
+        final Set<DeferredResult<ResponseEntity<PaymentStatusDTO>>> polls = ConcurrentHashMap.newKeySet();
+        final Set<SseEmitter> streams = ConcurrentHashMap.newKeySet();
+
+        void touch() {
+            touched = System.currentTimeMillis();
+        }
+    }
+}
@@ -46,6 +46,9 @@ public class ProductService {
     @Autowired
     private ProductAttributeService attributeService;
 
+    @Autowired
+    private DashboardCounterService dashboardCounterService;
+
     public List<Product> getRecommendations(Long userId) {
         if (userId == null) {
             return productRepository.findAll();
@@ -199,13 +202,11 @@ public class ProductService {
     }
 
     public long getTotalProductCount() {
-        return productRepository.count();
+        return dashboardCounterService.totalProducts();
     }
 
     public long countProductsByCategory(Category category) {
-        return productRepository.findAll().stream()
-                .filter(p -> p.getCategory() == category)
-                .count();
+        return dashboardCounterService.countProducts(category);
     }
 
     public List<Product> searchProducts(String query) {
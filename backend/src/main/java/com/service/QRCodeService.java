@@ -3,13 +3,16 @@ package com.service;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.util.QrImageEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -18,6 +21,13 @@ import java.util.Map;
  * 
  * Service for generating QR codes for UPI payments.
  * Generates UPI payment strings and converts them to QR code images.
+ *
+ * <p>
+ * Images are encoded straight from the {@link BitMatrix} to PNG or SVG bytes
+ * (see {@link QrImageEncoder}) and the rendered bytes are kept in a small LRU
+ * cache, since the same payment QR is fetched repeatedly while the customer
+ * pays.
+ * </p>
  */
 @Service
 public class QRCodeService {
@@ -25,6 +35,28 @@ public class QRCodeService {
     private static final String UPI_ID = "merchant@upi"; // Replace with actual merchant UPI ID
     private static final String MERCHANT_NAME = "SnapCart";
 
+    public enum Format {
+        PNG, SVG
+    }
+
+    private static final Map<EncodeHintType, Object> HINTS = new EnumMap<>(EncodeHintType.class);
+
+    static {
+        HINTS.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
+        HINTS.put(EncodeHintType.MARGIN, 1);
+    }
+
+    private final Map<String, byte[]> imageCache;
+
+    public QRCodeService(@Value("${app.qr.cache-size:1000}") int cacheSize) {
+        this.imageCache = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
     /**
      * Generate UPI payment string for QR code
      * 
@@ -53,20 +85,37 @@ public class QRCodeService {
      * @throws Exception if QR code generation fails
      */
     public byte[] generateQRCodeImage(String upiString, int width, int height) throws Exception {
-        Map<EncodeHintType, Object> hints = new HashMap<>();
-        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
-        hints.put(EncodeHintType.MARGIN, 1);
-
         BitMatrix bitMatrix = new MultiFormatWriter().encode(
                 upiString,
                 BarcodeFormat.QR_CODE,
                 width,
                 height,
-                hints);
+                HINTS);
+        return QrImageEncoder.toPng(bitMatrix);
+    }
+
+    /**
+     * QR code of {@code payload} as a {@code size} x {@code size} PNG or SVG,
+     * served from the cache when it was rendered before.
+     */
+    public byte[] render(String payload, int size, Format format) throws WriterException {
+        String key = format + ":" + size + ":" + payload;
+        byte[] cached = imageCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-        return outputStream.toByteArray();
+        byte[] image;
+        if (format == Format.SVG) {
+            // One unit per module; the SVG scales itself to the requested size
+            BitMatrix modules = new MultiFormatWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0, HINTS);
+            image = QrImageEncoder.toSvg(modules, size);
+        } else {
+            image = QrImageEncoder.toPng(
+                    new MultiFormatWriter().encode(payload, BarcodeFormat.QR_CODE, size, size, HINTS));
+        }
+        imageCache.put(key, image);
+        return image;
     }
 
     /**
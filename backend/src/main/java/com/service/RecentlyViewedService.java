@@ -22,6 +22,9 @@ public class RecentlyViewedService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private TrendingService trendingService;
+
     @Transactional
     public void addRecentlyViewed(User user, Long productModelNo) {
         Product product = productRepository.findById(productModelNo)
@@ -33,6 +36,7 @@ public class RecentlyViewedService {
 
         viewed.setViewedAt(LocalDateTime.now());
         recentlyViewedRepository.save(viewed);
+        trendingService.recordView(product);
 
         // Limit to last 20 items per user? (Optional cleanup)
         // cleanUpOldViews(user);
@@ -0,0 +1,326 @@
+package com.service;
+
+import com.entity.ReconciliationMismatch;
+import com.entity.ReconciliationRun;
+import com.repository.ReconciliationMismatchRepository;
+import com.repository.ReconciliationRunRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ReconciliationService
+ * =====================
+ *
+ * Checks every COMPLETED payment against its order and the wallet credits of
+ * the order: the order must exist with paymentStatus COMPLETED and the same
+ * total, and its ORDER_PAYMENT + COMMISSION credits must add up to that total.
+ *
+ * <p>
+ * Payments, orders and ledger rows are read as three forward-only cursors,
+ * each sorted by order id and restricted to the payments completed in the
+ * run's window, and merge-joined in one pass. Memory use is constant no
+ * matter how many rows the window holds.
+ * </p>
+ *
+ * <p>
+ * Runs are incremental: each run starts at the {@code windowTo} of the last
+ * completed run (the watermark) and ends {@code app.reconciliation.lag-minutes}
+ * before now. A failed run does not move the watermark, so the next one covers
+ * its window again.
+ * </p>
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    private static final double TOLERANCE = 0.01;
+    private static final int MISMATCH_BATCH = 500;
+
+    // Every cursor is restricted to the same window of completed payments
+    private static final String WINDOW = " p.status = 'COMPLETED' AND p.payment_date > ? AND p.payment_date <= ? ";
+
+    private static final String PAYMENTS_SQL = "SELECT p.order_id, p.id, p.amount FROM payments p WHERE" + WINDOW
+            + "ORDER BY p.order_id";
+
+    private static final String ORDERS_SQL = "SELECT o.id, o.payment_status, o.total_amount FROM payments p "
+            + "JOIN orders o ON o.id = p.order_id WHERE" + WINDOW + "ORDER BY o.id";
+
+    private static final String LEDGER_SQL = "SELECT p.order_id, t.amount FROM payments p "
+            + "JOIN transactions t ON t.reference_id = CAST(p.order_id AS CHAR) "
+            + "AND t.type = 'CREDIT' AND t.source IN ('ORDER_PAYMENT', 'COMMISSION') WHERE" + WINDOW
+            + "ORDER BY p.order_id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Autowired
+    private ReconciliationMismatchRepository reconciliationMismatchRepository;
+
+    @Value("${app.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reconciliation.lag-minutes:5}")
+    private long lagMinutes;
+
+    @Value("${app.reconciliation.initial-lookback-hours:24}")
+    private long initialLookbackHours;
+
+    @Value("${app.reconciliation.max-window-hours:24}")
+    private long maxWindowHours;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Scheduled(cron = "${app.reconciliation.cron:0 5 * * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Reconcile the payments completed since the watermark. Returns the run,
+     * or null when another run is in progress or there is nothing new.
+     */
+    public ReconciliationRun reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            LocalDateTime to = LocalDateTime.now().minusMinutes(lagMinutes);
+            LocalDateTime from = reconciliationRunRepository
+                    .findTopByStatusOrderByWindowToDesc(ReconciliationRun.Status.COMPLETED)
+                    .map(ReconciliationRun::getWindowTo)
+                    .orElse(to.minusHours(initialLookbackHours));
+            if (!from.isBefore(to)) {
+                return null;
+            }
+            // Catch up in bounded steps after a long pause
+            if (to.isAfter(from.plusHours(maxWindowHours))) {
+                to = from.plusHours(maxWindowHours);
+            }
+            return reconcile(from, to);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationRun reconcile(LocalDateTime from, LocalDateTime to) {
+        ReconciliationRun run = new ReconciliationRun();
+        run.setWindowFrom(from);
+        run.setWindowTo(to);
+        run.setStatus(ReconciliationRun.Status.RUNNING);
+        run.setStartedAt(LocalDateTime.now());
+        run = reconciliationRunRepository.save(run);
+
+        MismatchWriter mismatches = new MismatchWriter(run.getId());
+        long checked = 0;
+        try (Connection pc = dataSource.getConnection();
+                Connection oc = dataSource.getConnection();
+                Connection tc = dataSource.getConnection();
+                Cursor payments = new Cursor(pc, PAYMENTS_SQL, from, to);
+                Cursor orders = new Cursor(oc, ORDERS_SQL, from, to);
+                Cursor ledger = new Cursor(tc, LEDGER_SQL, from, to)) {
+
+            while (payments.next()) {
+                long orderId = payments.key;
+                long paymentId = payments.rs.getLong(2);
+                double paid = payments.rs.getDouble(3);
+                checked++;
+
+                if (!orders.seek(orderId)) {
+                    mismatches.add(orderId, paymentId, ReconciliationMismatch.Type.ORDER_MISSING, paid, null, null);
+                    ledger.seek(orderId);
+                    ledger.sumAtKey(orderId);
+                    continue;
+                }
+                String orderPaymentStatus = orders.rs.getString(2);
+                double total = orders.rs.getDouble(3);
+                if (!"COMPLETED".equals(orderPaymentStatus)) {
+                    mismatches.add(orderId, paymentId, ReconciliationMismatch.Type.ORDER_NOT_PAID, null, null,
+                            "Order payment status is " + orderPaymentStatus);
+                }
+                if (Math.abs(paid - total) > TOLERANCE) {
+                    mismatches.add(orderId, paymentId, ReconciliationMismatch.Type.AMOUNT_MISMATCH, total, paid, null);
+                }
+
+                if (!ledger.seek(orderId)) {
+                    if (total > 0) {
+                        mismatches.add(orderId, paymentId, ReconciliationMismatch.Type.LEDGER_MISSING, total, 0.0,
+                                null);
+                    }
+                    continue;
+                }
+                double credited = ledger.sumAtKey(orderId);
+                if (Math.abs(credited - total) > TOLERANCE) {
+                    mismatches.add(orderId, paymentId, ReconciliationMismatch.Type.LEDGER_MISMATCH, total, credited,
+                            null);
+                }
+            }
+            mismatches.flush();
+
+            run.setStatus(ReconciliationRun.Status.COMPLETED);
+        } catch (Exception e) {
+            log.error("Reconciliation of {} - {} failed: {}", from, to, e.getMessage());
+            run.setStatus(ReconciliationRun.Status.FAILED);
+            String message = String.valueOf(e.getMessage());
+            run.setError(message.length() > 500 ? message.substring(0, 500) : message);
+        }
+
+        run.setPaymentsChecked(checked);
+        run.setMismatches(mismatches.total);
+        run.setFinishedAt(LocalDateTime.now());
+        run = reconciliationRunRepository.save(run);
+        if (mismatches.total > 0) {
+            log.warn("Reconciliation run {} found {} mismatches in {} payments", run.getId(), mismatches.total,
+                    checked);
+        }
+        return run;
+    }
+
+    public List<ReconciliationRun> getRecentRuns() {
+        return reconciliationRunRepository.findTop50ByOrderByIdDesc();
+    }
+
+    /**
+     * Run details with mismatch counts per type.
+     */
+    public Map<String, Object> getReport(Long runId) {
+        ReconciliationRun run = reconciliationRunRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Reconciliation run not found: " + runId));
+        Map<String, Long> byType = new LinkedHashMap<>();
+        for (Object[] row : reconciliationMismatchRepository.countByType(runId)) {
+            byType.put(String.valueOf(row[0]), (Long) row[1]);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("run", run);
+        report.put("mismatchesByType", byType);
+        return report;
+    }
+
+    public Page<ReconciliationMismatch> getMismatches(Long runId, Pageable pageable) {
+        return reconciliationMismatchRepository.findByRunIdOrderByOrderIdAsc(runId, pageable);
+    }
+
+    /**
+     * Forward-only cursor over rows sorted by the order id in column 1.
+     */
+    private static class Cursor implements AutoCloseable {
+        final PreparedStatement ps;
+        final ResultSet rs;
+        long key;
+        boolean positioned;
+        boolean exhausted;
+
+        Cursor(Connection con, String sql, LocalDateTime from, LocalDateTime to) throws SQLException {
+            con.setReadOnly(true);
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL Connector/J streams row by row only with this fetch size
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            rs = ps.executeQuery();
+        }
+
+        boolean next() throws SQLException {
+            if (exhausted) {
+                return false;
+            }
+            if (!rs.next()) {
+                exhausted = true;
+                positioned = false;
+                return false;
+            }
+            key = rs.getLong(1);
+            positioned = true;
+            return true;
+        }
+
+        /**
+         * Moves forward to the first row with {@code key >= target}; returns
+         * whether it is positioned on {@code target}.
+         */
+        boolean seek(long target) throws SQLException {
+            if (!positioned && !next()) {
+                return false;
+            }
+            while (key < target) {
+                if (!next()) {
+                    return false;
+                }
+            }
+            return key == target;
+        }
+
+        /**
+         * Sums column 2 over the rows of {@code target}, leaving the cursor on
+         * the first row after them.
+         */
+        double sumAtKey(long target) throws SQLException {
+            double sum = 0;
+            while (positioned && key == target) {
+                sum += rs.getDouble(2);
+                next();
+            }
+            return sum;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            ps.close();
+        }
+    }
+
+    private class MismatchWriter {
+        final Long runId;
+        final List<Object[]> pending = new ArrayList<>();
+        long total;
+
+        MismatchWriter(Long runId) {
+            this.runId = runId;
+        }
+
+        void add(long orderId, long paymentId, ReconciliationMismatch.Type type, Double expected, Double actual,
+                String detail) {
+            pending.add(new Object[] { runId, orderId, paymentId, type.name(), expected, actual, detail });
+            total++;
+            if (pending.size() >= MISMATCH_BATCH) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO reconciliation_mismatches "
+                    + "(run_id, order_id, payment_id, type, expected, actual, detail) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    pending);
+            pending.clear();
+        }
+    }
+}
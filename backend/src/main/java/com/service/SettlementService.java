@@ -0,0 +1,217 @@
+package com.service;
+
+import com.entity.Moderator;
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.Role;
+import com.entity.Transaction;
+import com.entity.User;
+import com.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * SettlementService
+ * =================
+ *
+ * Splits a paid order between the moderators whose products it contains and
+ * the platform account (commission plus platform-owned items).
+ *
+ * <p>
+ * Shares are aggregated to one credit per wallet before anything is written.
+ * Each wallet is then updated with a single atomic
+ * {@code INSERT ... ON DUPLICATE KEY UPDATE balance = balance + ?} (which also
+ * creates missing wallets and advances its ledger sequence), and the ledger
+ * rows are inserted in one JDBC batch.
+ * The platform account is resolved once and cached.
+ * </p>
+ */
+@Service
+@Slf4j
+public class SettlementService {
+
+    public static final double PLATFORM_COMMISSION_PERCENT = 10.0;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.settlement.platform-account-cache-seconds:600}")
+    private long platformAccountCacheSeconds;
+
+    private volatile Long platformUserId;
+    private volatile long platformUserExpiry;
+
+    @Transactional
+    public void settle(Order order) {
+        List<Credit> credits = computeCredits(order);
+        if (!credits.isEmpty()) {
+            applyCredits(credits);
+        }
+    }
+
+    /**
+     * One credit per wallet: single-brand orders pay the moderator their net
+     * share; multi-brand orders prorate the discount over the items and sum each
+     * moderator's lines. The platform gets the rest.
+     */
+    List<Credit> computeCredits(Order order) {
+        List<OrderItem> items = order.getItems();
+        String ref = order.getId().toString();
+
+        java.util.Set<Long> brandModeratorIds = items.stream()
+                .map(item -> item.getVariant().getProduct().getModerator()).filter(Objects::nonNull)
+                .map(Moderator::getId).collect(Collectors.toSet());
+
+        double totalDiscount = order.getDiscount();
+        double subtotal = items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum();
+        double netOrderAmount = subtotal - totalDiscount;
+        Long platform = platformUserId();
+
+        List<Credit> credits = new ArrayList<>();
+        if (brandModeratorIds.size() == 1) {
+            User moderatorUser = items.stream().map(i -> i.getVariant().getProduct().getModerator())
+                    .filter(Objects::nonNull).findFirst().orElseThrow().getUser();
+            double commission = netOrderAmount * (PLATFORM_COMMISSION_PERCENT / 100.0);
+
+            credits.add(new Credit(moderatorUser.getId(), netOrderAmount - commission,
+                    Transaction.TransactionSource.ORDER_PAYMENT, ref, "Share for Single Brand Order #" + ref));
+            credits.add(new Credit(platform, commission, Transaction.TransactionSource.COMMISSION, ref,
+                    "Commission for Single Brand Order #" + ref));
+            return positive(credits);
+        }
+
+        // Ratio of actual price paid vs subtotal (to handle flat discounts proportionally)
+        double priceRatio = subtotal > 0 ? netOrderAmount / subtotal : 1.0;
+        Map<Long, Double> shareByModeratorUser = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            Moderator mod = item.getVariant().getProduct().getModerator();
+            if (mod == null) {
+                // Platform product - admin keeps full amount
+                continue;
+            }
+            double itemTotal = item.getPrice() * item.getQuantity() * priceRatio;
+            double modShare = itemTotal - itemTotal * (PLATFORM_COMMISSION_PERCENT / 100.0);
+            shareByModeratorUser.merge(mod.getUser().getId(), modShare, Double::sum);
+        }
+
+        double totalModeratorPayouts = 0;
+        for (Map.Entry<Long, Double> share : shareByModeratorUser.entrySet()) {
+            totalModeratorPayouts += share.getValue();
+            credits.add(new Credit(share.getKey(), share.getValue(), Transaction.TransactionSource.ORDER_PAYMENT,
+                    ref, "Prorated share for Multi-Brand Order #" + ref));
+        }
+        credits.add(new Credit(platform, netOrderAmount - totalModeratorPayouts,
+                Transaction.TransactionSource.COMMISSION, ref,
+                "Platform share (Commission + Internal items) for Multi-Brand Order #" + ref));
+        return positive(credits);
+    }
+
+    private void applyCredits(List<Credit> credits) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        // Per wallet: total delta and number of ledger entries
+        Map<Long, double[]> perWallet = new LinkedHashMap<>();
+        for (Credit c : credits) {
+            double[] totals = perWallet.computeIfAbsent(c.userId, id -> new double[2]);
+            totals[0] += c.amount;
+            totals[1]++;
+        }
+
+        // Atomic increment per wallet (creates the wallet on first credit)
+        List<Map.Entry<Long, double[]>> wallets = new ArrayList<>(perWallet.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO wallets (user_id, balance, last_updated, ledger_seq) VALUES (?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), "
+                + "ledger_seq = ledger_seq + VALUES(ledger_seq), last_updated = VALUES(last_updated)",
+                wallets, wallets.size(), (ps, w) -> {
+                    ps.setLong(1, w.getKey());
+                    ps.setDouble(2, w.getValue()[0]);
+                    ps.setTimestamp(3, now);
+                    ps.setLong(4, (long) w.getValue()[1]);
+                });
+
+        // The wallet rows now hold the state after the last credit of each wallet;
+        // earlier credits of the same wallet step back by the entries that follow them.
+        Map<Long, double[]> following = new LinkedHashMap<>();
+        List<Object[]> entries = new ArrayList<>();
+        for (int i = credits.size() - 1; i >= 0; i--) {
+            Credit c = credits.get(i);
+            double[] after = following.computeIfAbsent(c.userId, id -> new double[2]);
+            entries.add(new Object[] { c, (long) after[1], after[0] });
+            after[0] += c.amount;
+            after[1]++;
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (wallet_id, amount, type, source, reference_id, "
+                + "description, timestamp, sequence_no, balance_after) "
+                + "SELECT w.id, ?, 'CREDIT', ?, ?, ?, ?, w.ledger_seq - ?, w.balance - ? FROM wallets w WHERE w.user_id = ?",
+                entries, entries.size(), (ps, e) -> {
+                    Credit c = (Credit) e[0];
+                    ps.setDouble(1, c.amount);
+                    ps.setString(2, c.source.name());
+                    ps.setString(3, c.referenceId);
+                    ps.setString(4, c.description);
+                    ps.setTimestamp(5, now);
+                    ps.setLong(6, (Long) e[1]);
+                    ps.setDouble(7, (Double) e[2]);
+                    ps.setLong(8, c.userId);
+                });
+    }
+
+    /**
+     * User id of the account that receives platform commission: the first
+     * SUPER_ADMIN, else the first ADMIN.
+     */
+    public Long platformUserId() {
+        Long cached = platformUserId;
+        if (cached != null && System.currentTimeMillis() < platformUserExpiry) {
+            return cached;
+        }
+        User account = userRepository.findFirstByRoleOrderByIdAsc(Role.SUPER_ADMIN)
+                .or(() -> userRepository.findFirstByRoleOrderByIdAsc(Role.ADMIN))
+                .orElseThrow(() -> new RuntimeException("No Admin/SuperAdmin found for commission routing"));
+        platformUserId = account.getId();
+        platformUserExpiry = System.currentTimeMillis() + platformAccountCacheSeconds * 1000;
+        return platformUserId;
+    }
+
+    public void evictPlatformAccount() {
+        platformUserId = null;
+    }
+
+    private static List<Credit> positive(List<Credit> credits) {
+        return credits.stream().filter(c -> c.amount > 0).toList();
+    }
+
+    static class Credit {
+        final Long userId;
+        final double amount;
+        final Transaction.TransactionSource source;
+        final String referenceId;
+        final String description;
+
+        Credit(Long userId, double amount, Transaction.TransactionSource source, String referenceId,
+                String description) {
+            this.userId = userId;
+            this.amount = amount;
+            this.source = source;
+            this.referenceId = referenceId;
+            this.description = description;
+        }
+    }
+}
@@ -18,7 +18,7 @@ import java.util.Random;
  * =================
  * 
  * Service for determining which product to show in smart popup.
- * Logic: Recently viewed > Trending (high rating) > Low stock
+ * Logic: Recently viewed > Trending (last 24h activity, else high rating) > Low stock
  */
 @Service
 public class SmartPopupService {
@@ -32,6 +32,9 @@ public class SmartPopupService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private TrendingService trendingService;
+
     private Random random = new Random();
 
     /**
@@ -55,8 +58,8 @@ public class SmartPopupService {
             }
         }
 
-        // Try trending products (high rating)
-        List<Product> trending = productRepository.findTop10ByOrderByAverageRatingDesc();
+        // Try trending products
+        List<Product> trending = getTrendingProducts();
         if (!trending.isEmpty()) {
             return trending.get(random.nextInt(Math.min(3, trending.size())));
         }
@@ -80,12 +83,15 @@ public class SmartPopupService {
     }
 
     /**
-     * Get trending products (high rating, high review count)
+     * Get trending products (most viewed, added to cart and ordered over the
+     * last 24 hours); falls back to the highest rated until there is activity
      * 
      * @return List of trending products
      */
     public List<Product> getTrendingProducts() {
-        return productRepository.findTop10ByOrderByAverageRatingDesc();
+        List<Product> trending = trendingService.topProducts(TrendingService.Window.LAST_DAY, null,
+                TrendingService.Ranking.TRENDING, 10);
+        return !trending.isEmpty() ? trending : productRepository.findTop10ByOrderByAverageRatingDesc();
     }
 
     /**
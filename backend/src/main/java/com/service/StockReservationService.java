@@ -0,0 +1,302 @@
+package com.service;
+
+import com.dto.OrderItemRowDTO;
+import com.dto.StockAvailabilityDTO;
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.StockReservation;
+import com.repository.OrderItemRepository;
+import com.repository.ProductVariantRepository;
+import com.repository.StockReservationRepository;
+import com.util.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StockReservationService
+ * =======================
+ *
+ * Holds the stock of orders paid online (UPI/QR) for
+ * {@code app.reservations.ttl-minutes}. Verifying the payment converts the hold
+ * into a sale; {@link StockReservationSweeper} releases holds whose time ran
+ * out.
+ *
+ * <p>
+ * The database row is the source of truth; this service also keeps the
+ * pending holds in a {@link TimingWheel} and per-variant held counts in memory,
+ * which back the available-to-sell view without touching the order tables.
+ * </p>
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private static final int WHEEL_SIZE = 3600;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Value("${app.reservations.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    // Payment methods that are paid after the order is placed
+    @Value("${app.reservations.payment-methods:qr,upi}")
+    private Set<String> holdPaymentMethods;
+
+    @Value("${app.reservations.availability-ttl-seconds:30}")
+    private long availabilityTtlSeconds;
+
+    private final TimingWheel<Long> wheel;
+
+    // orderId -> (variantId -> quantity) for every pending hold
+    private final Map<Long, Map<Long, Integer>> heldItems = new ConcurrentHashMap<>();
+
+    // variantId -> units held across all pending orders
+    private final Map<Long, Integer> heldByVariant = new ConcurrentHashMap<>();
+
+    // variantId -> on-hand stock as last read from the database
+    private final Map<Long, CachedStock> stockCache = new ConcurrentHashMap<>();
+
+    public StockReservationService(@Value("${app.reservations.tick-ms:1000}") long tickMillis) {
+        this.wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    public boolean requiresHold(String paymentMethod) {
+        return paymentMethod != null && holdPaymentMethods.contains(paymentMethod.trim().toLowerCase());
+    }
+
+    /**
+     * Record a hold for a freshly placed order. Its stock has already been
+     * taken from the variants by the caller.
+     */
+    @Transactional
+    public void hold(Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(ttlMinutes);
+        stockReservationRepository.save(new StockReservation(order.getId(), now, expiresAt));
+
+        Map<Long, Integer> items = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            items.merge(item.getVariant().getId(), item.getQuantity(), Integer::sum);
+        }
+        afterCommit(() -> track(order.getId(), items, expiresAt));
+        invalidateStock(items.keySet());
+    }
+
+    /**
+     * Turn the hold of a paid order into a sale. Orders without a hold (card,
+     * cash on delivery, placed before reservations existed) pass through.
+     *
+     * @throws RuntimeException when the hold already expired and the order was
+     *                          cancelled
+     */
+    @Transactional
+    public void convert(Long orderId) {
+        int converted = stockReservationRepository.closeHeld(List.of(orderId), StockReservation.Status.CONVERTED,
+                LocalDateTime.now(), StockReservation.Status.HELD);
+        if (converted == 0) {
+            stockReservationRepository.findById(orderId)
+                    .filter(r -> r.getStatus() == StockReservation.Status.RELEASED)
+                    .ifPresent(r -> {
+                        throw new RuntimeException("Payment window for order #" + orderId
+                                + " expired and the order was cancelled");
+                    });
+            return;
+        }
+        afterCommit(() -> forget(orderId));
+    }
+
+    /**
+     * The orders among {@code orderIds} whose hold is still open and past its
+     * deadline, with the holds row-locked until the caller's transaction ends.
+     * Nothing is closed: the caller cancels the orders it can and releases only
+     * those holds.
+     */
+    @Transactional
+    public List<Long> lockExpired(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        return stockReservationRepository.findExpiredHeld(orderIds, LocalDateTime.now(),
+                StockReservation.Status.HELD);
+    }
+
+    /**
+     * Mark the holds of the given orders as released. Returns the orders whose
+     * hold this call released; restoring their stock is up to the caller. The
+     * holds are read with a row lock, so a payment converting one of them
+     * concurrently either wins first (and the order is not returned) or waits
+     * and then finds it released.
+     */
+    @Transactional
+    public List<Long> release(Collection<Long> orderIds, boolean onlyExpired) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> released = onlyExpired
+                ? stockReservationRepository.findExpiredHeld(orderIds, now, StockReservation.Status.HELD)
+                : stockReservationRepository.findHeld(orderIds, StockReservation.Status.HELD);
+        if (released.isEmpty()) {
+            return released;
+        }
+        int closed = stockReservationRepository.closeHeld(released, StockReservation.Status.RELEASED, now,
+                StockReservation.Status.HELD);
+        if (closed != released.size()) {
+            // Cannot happen while the rows are locked; never hand back an order that may have been paid
+            throw new IllegalStateException("Released " + closed + " of " + released.size()
+                    + " locked stock reservations");
+        }
+        afterCommit(() -> released.forEach(this::forget));
+        return released;
+    }
+
+    /**
+     * Holds whose deadline passed since the previous tick.
+     */
+    public List<Long> pollExpired() {
+        return wheel.advance(System.currentTimeMillis());
+    }
+
+    /**
+     * Put holds that could not be released back on the wheel so the next
+     * attempt happens after {@code delayMillis}.
+     */
+    public void retryLater(Collection<Long> orderIds, long delayMillis) {
+        long deadline = System.currentTimeMillis() + delayMillis;
+        for (Long orderId : orderIds) {
+            if (heldItems.containsKey(orderId)) {
+                wheel.schedule(orderId, deadline);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the in-memory holds from the database (startup).
+     */
+    @Transactional(readOnly = true)
+    public int loadHeld() {
+        List<StockReservation> held = stockReservationRepository.findByStatus(StockReservation.Status.HELD);
+        if (held.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Map<Long, Integer>> items = new HashMap<>();
+        List<Long> orderIds = held.stream().map(StockReservation::getOrderId).toList();
+        for (OrderItemRowDTO row : orderItemRepository.findRowsByOrderIds(orderIds)) {
+            items.computeIfAbsent(row.getOrderId(), id -> new HashMap<>())
+                    .merge(row.getVariantId(), row.getQuantity(), Integer::sum);
+        }
+        for (StockReservation reservation : held) {
+            track(reservation.getOrderId(), items.getOrDefault(reservation.getOrderId(), Map.of()),
+                    reservation.getExpiresAt());
+        }
+        return held.size();
+    }
+
+    // ==================== AVAILABLE-TO-SELL VIEW ====================
+
+    /**
+     * Available and held units per variant. On-hand stock is cached for
+     * {@code app.reservations.availability-ttl-seconds} and refreshed in one
+     * query for all stale variants; holds come from memory.
+     */
+    public Map<Long, StockAvailabilityDTO> getAvailability(Collection<Long> variantIds) {
+        long now = System.currentTimeMillis();
+        List<Long> stale = variantIds.stream()
+                .filter(id -> {
+                    CachedStock cached = stockCache.get(id);
+                    return cached == null || now >= cached.expiryTime;
+                })
+                .distinct()
+                .toList();
+
+        if (!stale.isEmpty()) {
+            long expiry = now + availabilityTtlSeconds * 1000;
+            for (Object[] row : productVariantRepository.findQuantitiesByIds(stale)) {
+                stockCache.put((Long) row[0], new CachedStock(((Number) row[1]).intValue(), expiry));
+            }
+        }
+
+        Map<Long, StockAvailabilityDTO> result = new LinkedHashMap<>();
+        for (Long id : variantIds) {
+            CachedStock cached = stockCache.get(id);
+            if (cached != null) {
+                result.put(id, new StockAvailabilityDTO(id, Math.max(cached.quantity, 0),
+                        heldByVariant.getOrDefault(id, 0)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop cached stock of variants whose quantity was changed (after commit,
+     * so a concurrent read cannot cache the old value again).
+     */
+    public void invalidateStock(Collection<Long> variantIds) {
+        List<Long> ids = List.copyOf(variantIds);
+        ids.forEach(stockCache::remove);
+        afterCommit(() -> ids.forEach(stockCache::remove));
+    }
+
+    private void track(Long orderId, Map<Long, Integer> items, LocalDateTime expiresAt) {
+        if (heldItems.putIfAbsent(orderId, items) == null) {
+            items.forEach((variantId, qty) -> heldByVariant.merge(variantId, qty, Integer::sum));
+        }
+        wheel.schedule(orderId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private void forget(Long orderId) {
+        wheel.cancel(orderId);
+        Map<Long, Integer> items = heldItems.remove(orderId);
+        if (items != null) {
+            items.forEach((variantId, qty) -> heldByVariant.computeIfPresent(variantId,
+                    (id, held) -> held - qty > 0 ? held - qty : null));
+            invalidateStock(items.keySet());
+        }
+    }
+
+    private void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    private static class CachedStock {
+        final int quantity;
+        final long expiryTime;
+
+        CachedStock(int quantity, long expiryTime) {
+            this.quantity = quantity;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.service;
+
+import com.dto.BulkOrderStatusResultDTO;
+import com.dto.PaymentStatusDTO;
+import com.entity.OrderStatus;
+import com.entity.PaymentStatus;
+import com.payload.request.BulkOrderStatusRequest;
+import com.repository.OrderRepository;
+import com.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * StockReservationSweeper
+ * =======================
+ *
+ * Ticks the reservation timing wheel and cancels orders whose payment window
+ * ran out: the orders move to CANCELLED through the bulk status path, which
+ * returns their stock and releases their holds, in batches of {@link #BATCH_SIZE}.
+ */
+@Component
+@Slf4j
+public class StockReservationSweeper {
+
+    private static final int BATCH_SIZE = 200;
+    private static final long RETRY_DELAY_MS = 60_000;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private BulkOrderStatusService bulkOrderStatusService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentStatusNotifier paymentStatusNotifier;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reloadHolds() {
+        try {
+            int held = stockReservationService.loadHeld();
+            if (held > 0) {
+                log.info("Reloaded {} pending stock reservations", held);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reload stock reservations: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.reservations.tick-ms:1000}")
+    public void sweep() {
+        List<Long> expired = stockReservationService.pollExpired();
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < expired.size(); i += BATCH_SIZE) {
+            List<Long> batch = expired.subList(i, Math.min(i + BATCH_SIZE, expired.size()));
+            try {
+                Integer cancelled = tx.execute(status -> expireBatch(batch));
+                log.info("Released {} expired stock reservations", cancelled);
+            } catch (Exception e) {
+                log.error("Failed to release expired reservations {}: {}", batch, e.getMessage());
+                stockReservationService.retryLater(batch, RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    private int expireBatch(List<Long> orderIds) {
+        // Re-checked in the database: another node or a late payment may have won. The holds stay locked
+        // until commit, so a payment arriving now waits and then finds its order cancelled.
+        List<Long> expired = stockReservationService.lockExpired(orderIds);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        // Cancelling restores the stock and releases the holds of the orders it actually cancels
+        BulkOrderStatusRequest request = new BulkOrderStatusRequest();
+        request.setOrderIds(expired);
+        request.setStatus(OrderStatus.CANCELLED.name());
+        request.setDescription("Cancelled automatically: payment was not received in time");
+        BulkOrderStatusResultDTO result = bulkOrderStatusService.updateStatus(request);
+        if (!result.getRejected().isEmpty()) {
+            // e.g. already shipped by hand; the order and its hold are left alone
+            log.warn("Expired reservations not cancelled: {}", result.getRejected());
+        }
+
+        List<Long> cancelled = result.getUpdated();
+        if (!cancelled.isEmpty()) {
+            orderRepository.bulkUpdatePaymentStatus(cancelled, PaymentStatus.FAILED);
+            // Only payments that were still pending change, so only those are announced
+            List<Object[]> pending = paymentRepository.lockPendingByOrderIds(cancelled);
+            if (!pending.isEmpty()) {
+                List<Long> failedOrderIds = pending.stream().map(row -> (Long) row[0]).toList();
+                paymentRepository.updatePendingStatusByOrderIds(failedOrderIds, PaymentStatus.FAILED);
+                LocalDateTime now = LocalDateTime.now();
+                paymentStatusNotifier.publishAfterCommit(pending.stream()
+                        .map(row -> new PaymentStatusDTO((Long) row[0], (Long) row[1], PaymentStatus.FAILED, now))
+                        .toList());
+            }
+        }
+        return cancelled.size();
+    }
+}
@@ -0,0 +1,452 @@
+package com.service;
+
+import com.entity.Category;
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.Product;
+import com.repository.ProductRepository;
+import com.util.LongDoubleHashMap;
+import com.util.SpaceSaving;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * TrendingService
+ * ===============
+ *
+ * Streaming counts of product views, cart adds and ordered units over
+ * sliding windows of the last hour, day and week, for "trending now" and
+ * "best seller" lists overall and per category.
+ *
+ * <p>
+ * Events land in time buckets: twelve 5-minute buckets cover the last hour,
+ * 168 hourly buckets the last day and week. A bucket keeps one
+ * {@link SpaceSaving} summary per category (plus one over all products) and
+ * ranking, each tracking at most {@code app.trending.capacity} products, so
+ * memory stays bounded however many products are viewed. A bucket is
+ * recycled when its time slot comes round again. A window's ranking is the
+ * sum of its buckets' summaries, cached for {@code app.trending.cache-ms}.
+ * </p>
+ *
+ * <p>
+ * Ordered units are counted in the bucket of the order date, and taken back
+ * out of that bucket when the order is cancelled, so neither ranking keeps
+ * counting cancelled or expired orders.
+ * </p>
+ *
+ * <p>
+ * Counts live in memory per instance. On startup the last week of recorded
+ * views (the latest per user and product) and orders is replayed; cart adds
+ * are not stored with a time and start from zero. The replay only reads what
+ * happened before this service started, everything later is counted live,
+ * so nothing placed while the replay runs is counted twice. Cancellations of
+ * replayed orders are applied once the replay has finished, and only to
+ * orders it counted.
+ * </p>
+ */
+@Service
+@Slf4j
+public class TrendingService {
+
+    public enum Window {
+        LAST_HOUR("1h"),
+        LAST_DAY("24h"),
+        LAST_WEEK("7d");
+
+        private final String key;
+
+        Window(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public static Window of(String key) {
+            for (Window window : values()) {
+                if (window.key.equalsIgnoreCase(key)) {
+                    return window;
+                }
+            }
+            throw new RuntimeException("Unknown window: " + key + " (use 1h, 24h or 7d)");
+        }
+    }
+
+    public enum Ranking {
+        // Weighted views, cart adds and ordered units
+        TRENDING,
+        // Ordered units only
+        BEST_SELLING
+    }
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final long FINE_BUCKET_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int FINE_BUCKETS = 12;
+    private static final long COARSE_BUCKET_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int COARSE_BUCKETS = 168;
+
+    // One summary slot per category, plus the last one for all products
+    private static final int ALL_SCOPE = Category.values().length;
+    private static final int SCOPES = ALL_SCOPE + 1;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.trending.weight.view:1}")
+    private long viewWeight;
+
+    @Value("${app.trending.weight.cart:3}")
+    private long cartWeight;
+
+    @Value("${app.trending.weight.order:5}")
+    private long orderWeight;
+
+    @Value("${app.trending.capacity:100}")
+    private int capacity;
+
+    @Value("${app.trending.cache-ms:30000}")
+    private long cacheMs;
+
+    @Value("${app.trending.warm-start:true}")
+    private boolean warmStart;
+
+    private Ring fine;
+    private Ring coarse;
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    // Orders dated before this were placed before the service started: they are the replay's to count
+    private long replayCutoff;
+
+    // Guards the replay bookkeeping below
+    private final Object replayLock = new Object();
+    private boolean replayed;
+    private final Set<Long> replayedOrderIds = new HashSet<>();
+    private final List<Line> pendingCancellations = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        fine = new Ring(FINE_BUCKET_MS, FINE_BUCKETS, capacity);
+        coarse = new Ring(COARSE_BUCKET_MS, COARSE_BUCKETS, capacity);
+        replayCutoff = System.currentTimeMillis();
+    }
+
+    // ---- recording (applied once the surrounding transaction commits) ----
+
+    public void recordView(Product product) {
+        long modelNo = product.getModelNo();
+        Category category = product.getCategory();
+        afterCommit(() -> record(System.currentTimeMillis(), modelNo, category, viewWeight, 0));
+    }
+
+    public void recordCartAdd(Product product) {
+        long modelNo = product.getModelNo();
+        Category category = product.getCategory();
+        afterCommit(() -> record(System.currentTimeMillis(), modelNo, category, cartWeight, 0));
+    }
+
+    public void recordOrder(Order order) {
+        // Read the lines now, while the entities are still attached
+        long at = Timestamp.valueOf(order.getOrderDate()).getTime();
+        List<Line> lines = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            Product product = item.getVariant().getProduct();
+            lines.add(new Line(order.getId(), at, product.getModelNo(), product.getCategory(), item.getQuantity()));
+        }
+        afterCommit(() -> lines.forEach(line -> record(line.at, line.modelNo, line.category,
+                orderWeight * line.units, line.units)));
+    }
+
+    /** Takes the units of orders that have just been cancelled back out of the counts. */
+    public void recordCancellation(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        List<Line> lines = jdbcTemplate.query("SELECT i.order_id, o.order_date, v.model_no, p.category, i.quantity "
+                + "FROM order_item i JOIN orders o ON o.id = i.order_id "
+                + "JOIN product_variant v ON v.id = i.variant_id JOIN product p ON p.model_no = v.model_no "
+                + "WHERE i.order_id IN (" + ids + ")",
+                (rs, rowNum) -> new Line(rs.getLong(1), rs.getTimestamp(2).getTime(), rs.getLong(3),
+                        category(rs.getString(4)), rs.getLong(5)));
+        afterCommit(() -> {
+            List<Line> live = new ArrayList<>();
+            synchronized (replayLock) {
+                for (Line line : lines) {
+                    if (line.at >= replayCutoff) {
+                        live.add(line);
+                    } else if (!replayed) {
+                        pendingCancellations.add(line);
+                    } else if (replayedOrderIds.contains(line.orderId)) {
+                        live.add(line);
+                    }
+                }
+            }
+            live.forEach(this::unrecord);
+        });
+    }
+
+    // ---- reads ----
+
+    /** Model numbers of the top products, best first. */
+    public List<Long> topModelNos(Window window, Category category, Ranking ranking, int limit) {
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        String key = window + "/" + ranking + "/" + category;
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(key);
+        if (cached == null || cached.expiresAt < now) {
+            cached = new Cached(now + cacheMs, rank(window, category, ranking, now));
+            cache.put(key, cached);
+        }
+        List<Long> top = cached.modelNos;
+        return top.size() > n ? top.subList(0, n) : top;
+    }
+
+    /** The top products, best first; products deleted since are skipped. */
+    public List<Product> topProducts(Window window, Category category, Ranking ranking, int limit) {
+        List<Long> modelNos = topModelNos(window, category, ranking, limit);
+        if (modelNos.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byModelNo = new HashMap<>();
+        productRepository.findAllById(modelNos).forEach(product -> byModelNo.put(product.getModelNo(), product));
+        return modelNos.stream().map(byModelNo::get).filter(product -> product != null).toList();
+    }
+
+    private List<Long> rank(Window window, Category category, Ranking ranking, long now) {
+        int scope = category != null ? category.ordinal() : ALL_SCOPE;
+        LongDoubleHashMap totals = new LongDoubleHashMap(capacity * 4);
+        switch (window) {
+            case LAST_HOUR -> fine.collect(now, FINE_BUCKETS, ranking, scope, totals);
+            case LAST_DAY -> coarse.collect(now, 24, ranking, scope, totals);
+            case LAST_WEEK -> coarse.collect(now, COARSE_BUCKETS, ranking, scope, totals);
+        }
+
+        // Keep the best MAX_LIMIT; equal scores go to the newer (higher) model number
+        Comparator<long[]> byScore = Comparator.<long[]>comparingLong(entry -> entry[1])
+                .thenComparingLong(entry -> entry[0]);
+        PriorityQueue<long[]> best = new PriorityQueue<>(byScore);
+        for (long modelNo : totals.sortedKeys()) {
+            best.add(new long[] { modelNo, (long) totals.get(modelNo) });
+            if (best.size() > MAX_LIMIT) {
+                best.poll();
+            }
+        }
+        List<long[]> entries = new ArrayList<>(best);
+        entries.sort(byScore.reversed());
+        return entries.stream().map(entry -> entry[0]).toList();
+    }
+
+    // ---- warm start ----
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayRecentActivity() {
+        if (!warmStart) {
+            finishReplay(Set.of());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Timestamp since = new Timestamp(replayCutoff - COARSE_BUCKETS * COARSE_BUCKET_MS);
+        Timestamp until = new Timestamp(replayCutoff);
+        Set<Long> orderIds = new HashSet<>();
+        try {
+            int[] views = { 0 };
+            jdbcTemplate.query("SELECT rv.product_model_no, p.category, rv.viewed_at FROM recently_viewed rv "
+                    + "JOIN product p ON p.model_no = rv.product_model_no WHERE rv.viewed_at >= ? AND rv.viewed_at < ?",
+                    rs -> {
+                        record(rs.getTimestamp(3).getTime(), rs.getLong(1), category(rs.getString(2)), viewWeight, 0);
+                        views[0]++;
+                    }, since, until);
+
+            int[] lines = { 0 };
+            jdbcTemplate.query("SELECT v.model_no, p.category, o.order_date, i.quantity, o.id FROM order_item i "
+                    + "JOIN orders o ON o.id = i.order_id JOIN product_variant v ON v.id = i.variant_id "
+                    + "JOIN product p ON p.model_no = v.model_no "
+                    + "WHERE o.order_date >= ? AND o.order_date < ? AND o.status <> 'CANCELLED'",
+                    rs -> {
+                        long units = rs.getLong(4);
+                        record(rs.getTimestamp(3).getTime(), rs.getLong(1), category(rs.getString(2)),
+                                orderWeight * units, units);
+                        orderIds.add(rs.getLong(5));
+                        lines[0]++;
+                    }, since, until);
+            log.info("Trending counts replayed {} views and {} order lines in {} ms", views[0], lines[0],
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // Counts simply start from live traffic
+            log.warn("Could not replay recent activity into trending counts: {}", e.getMessage());
+        }
+        finishReplay(orderIds);
+    }
+
+    private void finishReplay(Set<Long> orderIds) {
+        List<Line> counted = new ArrayList<>();
+        synchronized (replayLock) {
+            replayed = true;
+            replayedOrderIds.addAll(orderIds);
+            // Cancelled while the replay ran; only take back what it actually counted
+            for (Line line : pendingCancellations) {
+                if (replayedOrderIds.contains(line.orderId)) {
+                    counted.add(line);
+                }
+            }
+            pendingCancellations.clear();
+        }
+        counted.forEach(this::unrecord);
+    }
+
+    // ---- internals ----
+
+    private void record(long at, long modelNo, Category category, long trendWeight, long units) {
+        fine.add(at, Ranking.TRENDING, category, modelNo, trendWeight);
+        coarse.add(at, Ranking.TRENDING, category, modelNo, trendWeight);
+        if (units > 0) {
+            fine.add(at, Ranking.BEST_SELLING, category, modelNo, units);
+            coarse.add(at, Ranking.BEST_SELLING, category, modelNo, units);
+        }
+    }
+
+    private void unrecord(Line line) {
+        fine.subtract(line.at, Ranking.TRENDING, line.category, line.modelNo, orderWeight * line.units);
+        coarse.subtract(line.at, Ranking.TRENDING, line.category, line.modelNo, orderWeight * line.units);
+        fine.subtract(line.at, Ranking.BEST_SELLING, line.category, line.modelNo, line.units);
+        coarse.subtract(line.at, Ranking.BEST_SELLING, line.category, line.modelNo, line.units);
+    }
+
+    private static Category category(String name) {
+        try {
+            return name != null ? Category.valueOf(name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void afterCommit(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private record Line(long orderId, long at, long modelNo, Category category, long units) {
+    }
+
+    private record Cached(long expiresAt, List<Long> modelNos) {
+    }
+
+    /**
+     * Fixed ring of time buckets. A slot holds the bucket for one time slot
+     * and is cleared when a later slot maps onto it; events older than the
+     * slot's current contents fall outside the ring and are dropped.
+     */
+    private static final class Ring {
+
+        private final long bucketMillis;
+        private final long[] epochs;
+        private final SpaceSaving[][] sketches;
+        private final int capacity;
+
+        Ring(long bucketMillis, int buckets, int capacity) {
+            this.bucketMillis = bucketMillis;
+            this.epochs = new long[buckets];
+            this.sketches = new SpaceSaving[buckets][Ranking.values().length * SCOPES];
+            this.capacity = capacity;
+            Arrays.fill(epochs, -1);
+        }
+
+        synchronized void add(long at, Ranking ranking, Category category, long modelNo, long weight) {
+            long epoch = at / bucketMillis;
+            int slot = (int) (epoch % epochs.length);
+            if (epoch < epochs[slot]) {
+                return;
+            }
+            if (epoch > epochs[slot]) {
+                epochs[slot] = epoch;
+                // Summaries are cleared rather than dropped, so their arrays are reused
+                for (SpaceSaving sketch : sketches[slot]) {
+                    if (sketch != null) {
+                        sketch.clear();
+                    }
+                }
+            }
+            sketch(slot, ranking, ALL_SCOPE).add(modelNo, weight);
+            if (category != null) {
+                sketch(slot, ranking, category.ordinal()).add(modelNo, weight);
+            }
+        }
+
+        synchronized void subtract(long at, Ranking ranking, Category category, long modelNo, long weight) {
+            long epoch = at / bucketMillis;
+            int slot = (int) (epoch % epochs.length);
+            // The bucket has already been recycled, so the weight went with it
+            if (epoch != epochs[slot]) {
+                return;
+            }
+            SpaceSaving all = sketches[slot][ranking.ordinal() * SCOPES + ALL_SCOPE];
+            if (all != null) {
+                all.subtract(modelNo, weight);
+            }
+            if (category != null) {
+                SpaceSaving scoped = sketches[slot][ranking.ordinal() * SCOPES + category.ordinal()];
+                if (scoped != null) {
+                    scoped.subtract(modelNo, weight);
+                }
+            }
+        }
+
+        synchronized void collect(long now, int buckets, Ranking ranking, int scope, LongDoubleHashMap totals) {
+            long current = now / bucketMillis;
+            for (long epoch = current; epoch > current - buckets; epoch--) {
+                int slot = (int) (epoch % epochs.length);
+                SpaceSaving sketch = sketches[slot][ranking.ordinal() * SCOPES + scope];
+                if (epochs[slot] == epoch && sketch != null) {
+                    sketch.addTo(totals);
+                }
+            }
+        }
+
+        private SpaceSaving sketch(int slot, Ranking ranking, int scope) {
+            int index = ranking.ordinal() * SCOPES + scope;
+            SpaceSaving sketch = sketches[slot][index];
+            if (sketch == null) {
+                sketch = new SpaceSaving(capacity);
+                sketches[slot][index] = sketch;
+            }
+            return sketch;
+        }
+    }
+}
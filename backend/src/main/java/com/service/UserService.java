@@ -26,6 +26,12 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private DashboardCounterService dashboardCounterService;
+
     /**
      * Get all users.
      */
@@ -56,6 +62,8 @@ public class UserService {
         User user = userRepository.findById(Objects.requireNonNull(userId, "User ID is required"))
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
         user.setRole(newRole);
+        // The commission account is resolved by role
+        settlementService.evictPlatformAccount();
         return userRepository.save(user);
     }
 
@@ -103,16 +111,14 @@ public class UserService {
      * Count users by role.
      */
     public long countUsersByRole(Role role) {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getRole() == role)
-                .count();
+        return dashboardCounterService.countUsers(role);
     }
 
     /**
      * Get total user count.
      */
     public long getTotalUserCount() {
-        return userRepository.count();
+        return dashboardCounterService.totalUsers();
     }
 
     /**
@@ -38,61 +38,76 @@ public class WalletService {
 
     /**
      * Credit amount to user's wallet.
+     *
+     * The balance is changed with one atomic UPDATE (no read-modify-write), so
+     * concurrent credits to the same wallet cannot lose each other.
      */
     @Transactional
-    public void creditWallet(User user, Double amount, Transaction.TransactionSource source, String referenceId,
-            String description) {
+    public Transaction creditWallet(User user, Double amount, Transaction.TransactionSource source,
+            String referenceId, String description) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Credit amount must be positive");
         }
 
-        Wallet wallet = getOrCreateWallet(user);
-        wallet.setBalance(wallet.getBalance() + amount);
-        walletRepository.save(wallet);
-
-        Transaction transaction = new Transaction();
-        transaction.setWallet(wallet);
-        transaction.setAmount(amount);
-        transaction.setType(Transaction.TransactionType.CREDIT);
-        transaction.setSource(source);
-        transaction.setReferenceId(referenceId);
-        transaction.setDescription(description);
-        transactionRepository.save(transaction);
+        Long walletId = walletIdFor(user);
+        walletRepository.applyCredit(walletId, amount, LocalDateTime.now());
+        return appendEntry(walletId, amount, Transaction.TransactionType.CREDIT, source, referenceId, description);
     }
 
     /**
-     * Debit amount from user's wallet.
+     * Debit amount from user's wallet. The balance check and the update are a
+     * single statement, so two concurrent debits cannot overdraw the wallet.
      */
     @Transactional
-    public void debitWallet(User user, Double amount, Transaction.TransactionSource source, String referenceId,
-            String description) {
+    public Transaction debitWallet(User user, Double amount, Transaction.TransactionSource source,
+            String referenceId, String description) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Debit amount must be positive");
         }
 
-        Wallet wallet = getOrCreateWallet(user);
-        if (wallet.getBalance() < amount) {
+        Long walletId = walletIdFor(user);
+        if (walletRepository.applyDebit(walletId, amount, LocalDateTime.now()) == 0) {
             throw new RuntimeException("Insufficient wallet balance");
         }
+        return appendEntry(walletId, amount, Transaction.TransactionType.DEBIT, source, referenceId, description);
+    }
 
-        wallet.setBalance(wallet.getBalance() - amount);
-        walletRepository.save(wallet);
+    /**
+     * Writes the ledger entry for a delta that was just applied. The wallet row
+     * is locked by our UPDATE until commit, so the sequence number and balance
+     * read here are exactly the ones our delta produced.
+     */
+    private Transaction appendEntry(Long walletId, double amount, Transaction.TransactionType type,
+            Transaction.TransactionSource source, String referenceId, String description) {
+        Object[] state = walletRepository.findLedgerState(walletId).get(0);
 
         Transaction transaction = new Transaction();
-        transaction.setWallet(wallet);
+        transaction.setWallet(walletRepository.getReferenceById(walletId));
         transaction.setAmount(amount);
-        transaction.setType(Transaction.TransactionType.DEBIT);
+        transaction.setType(type);
         transaction.setSource(source);
         transaction.setReferenceId(referenceId);
         transaction.setDescription(description);
-        transactionRepository.save(transaction);
+        transaction.setSequenceNo(((Number) state[0]).longValue());
+        transaction.setBalanceAfter(((Number) state[1]).doubleValue());
+        return transactionRepository.save(transaction);
+    }
+
+    private Long walletIdFor(User user) {
+        return walletRepository.findIdByUserId(user.getId()).orElseGet(() -> {
+            walletRepository.createIfAbsent(user.getId(), LocalDateTime.now());
+            return walletRepository.findIdByUserId(user.getId())
+                    .orElseThrow(() -> new RuntimeException("Could not create wallet for user " + user.getId()));
+        });
     }
 
     /**
      * Get wallet balance.
      */
     public Double getBalance(User user) {
-        return getOrCreateWallet(user).getBalance();
+        Long walletId = getOrCreateWallet(user).getId();
+        // Read the column, not a possibly cached entity
+        return ((Number) walletRepository.findLedgerState(walletId).get(0)[1]).doubleValue();
     }
 
     /**
@@ -0,0 +1,122 @@
+package com.service;
+
+import com.entity.Transaction;
+import com.entity.WalletSnapshot;
+import com.repository.TransactionRepository;
+import com.repository.WalletRepository;
+import com.repository.WalletSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * WalletSnapshotService
+ * =====================
+ *
+ * Periodically folds each wallet's ledger into a {@link WalletSnapshot} and
+ * checks the stored balance against the ledger: latest snapshot plus the sum of
+ * the entries after it must equal {@code wallets.balance}.
+ *
+ * <p>
+ * A wallet's first snapshot is its opening balance at sequence 0: the net of
+ * the ledger entries written before the ledger was sequenced (0 for wallets
+ * created since). It comes from the ledger, not from {@code wallets.balance},
+ * so drift that predates the first check is reported rather than adopted.
+ * Only the nightly job writes snapshots, each wallet in its own transaction
+ * with the wallet row locked; reads never write.
+ * </p>
+ */
+@Service
+@Slf4j
+public class WalletSnapshotService {
+
+    private static final double TOLERANCE = 0.005;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletSnapshotRepository walletSnapshotRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Scheduled(cron = "${app.wallet.snapshot-cron:0 0 2 * * *}")
+    public void snapshotAll() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int mismatches = 0;
+        for (Long walletId : walletRepository.findAllIds()) {
+            try {
+                Boolean consistent = tx.execute(status -> snapshot(walletId));
+                if (Boolean.FALSE.equals(consistent)) {
+                    mismatches++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to snapshot wallet {}: {}", walletId, e.getMessage());
+            }
+        }
+        log.info("Wallet snapshots taken, {} balance mismatches", mismatches);
+    }
+
+    /**
+     * Balance of the wallet recomputed from its latest snapshot and the ledger
+     * tail, independent of {@code wallets.balance}.
+     */
+    public double derivedBalance(Long walletId) {
+        Object[] state = walletRepository.findLedgerState(walletId).get(0);
+        long seq = ((Number) state[0]).longValue();
+        WalletSnapshot base = baseSnapshot(walletId);
+        return base.getBalance() + tailSum(walletId, base.getSequenceNo(), seq);
+    }
+
+    /**
+     * Writes a snapshot at the wallet's current sequence. Returns false when the
+     * stored balance disagrees with the ledger.
+     */
+    private boolean snapshot(Long walletId) {
+        Object[] state = walletRepository.lockLedgerState(walletId).get(0);
+        long seq = ((Number) state[0]).longValue();
+        double balance = ((Number) state[1]).doubleValue();
+
+        WalletSnapshot base = baseSnapshot(walletId);
+        if (base.getId() == null) {
+            walletSnapshotRepository.save(base);
+        }
+
+        double derived = base.getBalance() + tailSum(walletId, base.getSequenceNo(), seq);
+        if (base.getSequenceNo() != seq) {
+            walletSnapshotRepository.save(new WalletSnapshot(walletId, seq, derived));
+        }
+
+        if (Math.abs(derived - balance) > TOLERANCE) {
+            log.error("Wallet {} balance {} does not match ledger {} at seq {}", walletId, balance, derived, seq);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Latest stored snapshot, or the (unsaved) opening snapshot when the wallet
+     * has none yet.
+     */
+    private WalletSnapshot baseSnapshot(Long walletId) {
+        return walletSnapshotRepository.findTopByWalletIdOrderBySequenceNoDesc(walletId).orElseGet(() -> {
+            Double opening = transactionRepository.sumUnsequencedDelta(walletId, Transaction.TransactionType.CREDIT);
+            return new WalletSnapshot(walletId, 0, opening != null ? opening : 0);
+        });
+    }
+
+    private double tailSum(Long walletId, long fromSeq, long toSeq) {
+        if (toSeq <= fromSeq) {
+            return 0;
+        }
+        Double sum = transactionRepository.sumDelta(walletId, fromSeq, toSeq, Transaction.TransactionType.CREDIT);
+        return sum != null ? sum : 0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EmailTemplate
+ * =============
+ *
+ * A template parsed once into a list of literal and placeholder segments, so
+ * rendering is a single pass of appends with no scanning or regex work.
+ *
+ * <p>
+ * {@code {{name}}} inserts the value, HTML-escaped when the template is HTML;
+ * {@code {{{name}}}} inserts it as-is. Missing values render as empty text.
+ * {@link #inline(String, EmailTemplate)} splices another template in place of
+ * a placeholder, which is how the shared layout is merged into each email at
+ * startup.
+ * </p>
+ */
+public final class EmailTemplate {
+
+    private final String[] literals;
+    // placeholders[i] follows literals[i]; null after the last literal
+    private final String[] placeholders;
+    private final boolean[] raw;
+    private final boolean html;
+
+    private EmailTemplate(List<String> literals, List<String> placeholders, List<Boolean> raw, boolean html) {
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.raw = new boolean[raw.size()];
+        for (int i = 0; i < this.raw.length; i++) {
+            this.raw[i] = raw.get(i);
+        }
+        this.html = html;
+    }
+
+    public static EmailTemplate compile(String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) {
+                break;
+            }
+            boolean triple = source.startsWith("{{{", open);
+            String closing = triple ? "}}}" : "}}";
+            int nameStart = open + (triple ? 3 : 2);
+            int close = source.indexOf(closing, nameStart);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            literals.add(source.substring(pos, open));
+            placeholders.add(source.substring(nameStart, close).trim());
+            raw.add(triple);
+            pos = close + closing.length();
+        }
+        literals.add(source.substring(pos));
+        placeholders.add(null);
+        raw.add(false);
+        return new EmailTemplate(literals, placeholders, raw, html);
+    }
+
+    /**
+     * A copy of this template with {@code body}'s segments in place of every
+     * {@code name} placeholder.
+     */
+    public EmailTemplate inline(String name, EmailTemplate body) {
+        List<String> newLiterals = new ArrayList<>();
+        List<String> newPlaceholders = new ArrayList<>();
+        List<Boolean> newRaw = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+
+        for (int i = 0; i < literals.length; i++) {
+            pending.append(literals[i]);
+            if (placeholders[i] == null) {
+                break;
+            }
+            if (!placeholders[i].equals(name)) {
+                newLiterals.add(pending.toString());
+                newPlaceholders.add(placeholders[i]);
+                newRaw.add(raw[i]);
+                pending.setLength(0);
+                continue;
+            }
+            for (int j = 0; j < body.literals.length; j++) {
+                pending.append(body.literals[j]);
+                if (body.placeholders[j] == null) {
+                    break;
+                }
+                newLiterals.add(pending.toString());
+                newPlaceholders.add(body.placeholders[j]);
+                newRaw.add(body.raw[j]);
+                pending.setLength(0);
+            }
+        }
+        newLiterals.add(pending.toString());
+        newPlaceholders.add(null);
+        newRaw.add(false);
+        return new EmailTemplate(newLiterals, newPlaceholders, newRaw, html);
+    }
+
+    public void render(Map<String, ?> values, StringBuilder out) {
+        for (int i = 0; i < literals.length; i++) {
+            out.append(literals[i]);
+            String name = placeholders[i];
+            if (name == null) {
+                break;
+            }
+            Object value = values.get(name);
+            if (value == null) {
+                continue;
+            }
+            if (html && !raw[i]) {
+                escapeHtml(value.toString(), out);
+            } else {
+                out.append(value);
+            }
+        }
+    }
+
+    private static void escapeHtml(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
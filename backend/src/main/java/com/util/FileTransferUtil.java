@@ -0,0 +1,59 @@
+package com.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Path;
+
+/**
+ * FileTransferUtil
+ * ================
+ *
+ * Serves a stored file with an ETag. A matching {@code If-None-Match} gets a
+ * 304 without touching the file. Otherwise, when the servlet container
+ * supports it (Tomcat's NIO connector does), the file is handed to the
+ * container's sendfile so the bytes go from the page cache to the socket
+ * without being copied through the JVM; if not, it is streamed as a resource.
+ */
+public final class FileTransferUtil {
+
+    // Tomcat request attributes (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileTransferUtil() {
+    }
+
+    public static ResponseEntity<Resource> serve(HttpServletRequest request, Path file, long size, String etag,
+            MediaType contentType, String downloadName) {
+        String quotedEtag = "\"" + etag + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(quotedEtag);
+        headers.setCacheControl("private, no-cache");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(quotedEtag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        headers.setContentType(contentType);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(downloadName).build());
+        headers.setContentLength(size);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return ResponseEntity.ok().headers(headers).build();
+        }
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(file));
+    }
+}
@@ -0,0 +1,115 @@
+package com.util;
+
+import java.util.Arrays;
+
+/**
+ * LongDoubleHashMap
+ * =================
+ *
+ * Open-addressing hash map from {@code long} keys to {@code double} values,
+ * for aggregations over many rows (e.g. summing ledger amounts per user)
+ * without boxing a {@code Long} and a {@code Double} per entry.
+ *
+ * <p>
+ * Uses linear probing over parallel arrays and grows at 50% load. Keys are
+ * never removed. Not thread-safe.
+ * </p>
+ */
+public class LongDoubleHashMap {
+
+    private long[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongDoubleHashMap() {
+        this(16);
+    }
+
+    public LongDoubleHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key} (starting from 0) and
+     * returns the new value.
+     */
+    public double addTo(long key, double delta) {
+        int slot = slotOf(key);
+        if (used[slot]) {
+            return values[slot] += delta;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return delta;
+    }
+
+    public double get(long key) {
+        int slot = slotOf(key);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    public boolean containsKey(long key) {
+        return used[slotOf(key)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * All keys in ascending order.
+     */
+    public long[] sortedKeys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                result[n++] = keys[i];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int slotOf(long key) {
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,131 @@
+package com.util;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * QrImageEncoder
+ * ==============
+ *
+ * Writes a {@link BitMatrix} straight to PNG or SVG bytes. Unlike
+ * {@code MatrixToImageWriter} no {@code BufferedImage} (and no ImageIO/AWT) is
+ * involved: the PNG is a 1-bit grayscale image whose rows are packed directly
+ * from the matrix, and the SVG is a single path of horizontal runs.
+ */
+public final class QrImageEncoder {
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private QrImageEncoder() {
+    }
+
+    /**
+     * 1-bit PNG with one pixel per matrix cell (set cells black).
+     */
+    public static byte[] toPng(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream(rowBytes * height / 4 + 128);
+            png.write(PNG_SIGNATURE);
+
+            byte[] header = new byte[13];
+            putInt(header, 0, width);
+            putInt(header, 4, height);
+            header[8] = 1; // bit depth
+            header[9] = 0; // grayscale
+            // compression, filter and interlace methods stay 0
+            writeChunk(png, "IHDR", header, header.length);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(rowBytes * height / 8 + 64);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, 8192)) {
+                byte[] row = new byte[rowBytes + 1]; // leading filter byte 0 (none)
+                for (int y = 0; y < height; y++) {
+                    Arrays.fill(row, 1, row.length, (byte) 0);
+                    for (int x = 0; x < width; x++) {
+                        if (!matrix.get(x, y)) {
+                            // 1 = white in a 1-bit grayscale image
+                            row[1 + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                        }
+                    }
+                    out.write(row);
+                }
+            } finally {
+                deflater.end();
+            }
+            byte[] data = compressed.toByteArray();
+            writeChunk(png, "IDAT", data, data.length);
+            writeChunk(png, "IEND", new byte[0], 0);
+            return png.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * SVG of the matrix (one unit per cell) scaled to {@code size} pixels.
+     * Expects an unscaled matrix, i.e. one encoded with width and height 0.
+     */
+    public static byte[] toSvg(BitMatrix matrix, int size) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        StringBuilder svg = new StringBuilder(width * height * 2);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(size)
+                .append("\" height=\"").append(size)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && matrix.get(x, y)) {
+                    x++;
+                }
+                svg.append('M').append(start).append(' ').append(y)
+                        .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] lengthBytes = new byte[4];
+        putInt(lengthBytes, 0, length);
+        out.write(lengthBytes);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        byte[] crcBytes = new byte[4];
+        putInt(crcBytes, 0, (int) crc.getValue());
+        out.write(crcBytes);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
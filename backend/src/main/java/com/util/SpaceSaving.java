@@ -0,0 +1,166 @@
+package com.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpaceSaving
+ * ===========
+ *
+ * Heavy-hitters summary over a stream of weighted {@code long} keys (the
+ * Space-Saving algorithm). At most {@code capacity} keys are tracked; a new
+ * key arriving when the summary is full replaces the key with the smallest
+ * count and inherits that count as its error bound.
+ *
+ * <p>
+ * A tracked key's count over-estimates its true weight by at most its error,
+ * and any key whose true weight exceeds {@code total / capacity} is
+ * guaranteed to be tracked. Entries sit in a min-heap on count, so every
+ * update is O(log capacity). Not thread-safe.
+ * </p>
+ *
+ * <p>
+ * {@link #subtract} takes back weight added earlier (a cancelled order).
+ * Estimates of tracked keys stay upper bounds; weight that went to a key no
+ * longer tracked is already part of some other key's error and stays there.
+ * </p>
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Long, Integer> positions;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public void add(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        // Full: the smallest entry (heap root) makes room and hands over its count
+        long floor = counts[0];
+        positions.remove(keys[0]);
+        keys[0] = key;
+        counts[0] = floor + weight;
+        errors[0] = floor;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    /** Takes back {@code weight} previously added for {@code key}. */
+    public void subtract(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total = Math.max(0, total - weight);
+        Integer position = positions.get(key);
+        if (position == null) {
+            return;
+        }
+        counts[position] = Math.max(0, counts[position] - weight);
+        errors[position] = Math.min(errors[position], counts[position]);
+        siftUp(position);
+    }
+
+    /** Estimated weight of {@code key}, or 0 if it is not tracked. */
+    public long estimate(long key) {
+        Integer position = positions.get(key);
+        return position != null ? counts[position] : 0;
+    }
+
+    /** Upper bound on how much {@link #estimate} over-counts {@code key}. */
+    public long error(long key) {
+        Integer position = positions.get(key);
+        return position != null ? errors[position] : 0;
+    }
+
+    /** Adds every tracked key's estimate into {@code totals}. */
+    public void addTo(LongDoubleHashMap totals) {
+        for (int i = 0; i < size; i++) {
+            totals.addTo(keys[i], counts[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Sum of all weights added, tracked or not. */
+    public long total() {
+        return total;
+    }
+
+    public void clear() {
+        positions.clear();
+        size = 0;
+        total = 0;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[index] <= counts[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        long count = counts[a];
+        long error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+}
@@ -0,0 +1,90 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TimingWheel
+ * ===========
+ *
+ * Hashed timing wheel for many timeouts that are mostly cancelled before they
+ * fire. Scheduling and cancelling are O(1); {@link #advance(long)} only looks
+ * at the slots that passed since the previous call instead of every pending
+ * timeout.
+ *
+ * <p>
+ * Deadlines further away than one revolution stay in their slot and are
+ * skipped until their deadline has actually passed. All methods are
+ * synchronized; the wheel is meant to be driven by a single scheduled tick.
+ * </p>
+ *
+ * @param <K> key identifying a timeout (e.g. an order id)
+ */
+public class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final List<Map<K, Long>> slots;
+    private final Map<K, Integer> slotOfKey = new HashMap<>();
+    private long lastTick;
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.lastTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule (or reschedule) {@code key} to expire at {@code deadlineMillis}.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        // Never place a deadline in a slot that was already swept
+        long tick = Math.max(deadlineMillis / tickMillis, lastTick + 1);
+        int slot = (int) (tick % slots.size());
+        slots.get(slot).put(key, deadlineMillis);
+        slotOfKey.put(key, slot);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Integer slot = slotOfKey.remove(key);
+        return slot != null && slots.get(slot).remove(key) != null;
+    }
+
+    /**
+     * Sweep every slot up to {@code nowMillis} and return the keys whose
+     * deadline has passed. Returned keys are removed from the wheel.
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long nowTick = nowMillis / tickMillis;
+        // After a long pause one revolution covers every slot
+        long from = Math.max(lastTick + 1, nowTick - slots.size() + 1);
+
+        for (long tick = from; tick <= nowTick; tick++) {
+            Iterator<Map.Entry<K, Long>> it = slots.get((int) (tick % slots.size())).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Long> entry = it.next();
+                if (entry.getValue() <= nowMillis) {
+                    expired.add(entry.getKey());
+                    slotOfKey.remove(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        lastTick = Math.max(lastTick, nowTick);
+        return expired;
+    }
+
+    public synchronized int size() {
+        return slotOfKey.size();
+    }
+}
@@ -0,0 +1,203 @@
+package com.benchmark;
+
+import com.dto.OrderIntakeStatusDTO;
+import com.dto.OrderResponseDTO;
+import com.entity.ProductVariant;
+import com.entity.User;
+import com.payload.request.OrderRequest;
+import com.repository.CartRepository;
+import com.repository.ProductVariantRepository;
+import com.repository.UserRepository;
+import com.service.IdempotencyService;
+import com.service.OrderIntakeService;
+import com.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Flash-sale checkout throughput, 64 concurrent buyers on {@link #VARIANTS}
+ * hot SKUs: synchronous placement (one transaction per order, as
+ * {@code POST /api/orders}) against the intake queue (micro-batches, one
+ * transaction per batch).
+ *
+ * The database is modelled, not used: locking a variant takes an in-memory
+ * row lock that is held until commit, and every commit costs
+ * {@link #COMMIT_MICROS}. That captures the two costs batching targets (commits
+ * and waits on hot rows) but no per-order SQL. Production numbers are in the
+ * {@code orders.placement} timer ({@code mode=sync} vs {@code mode=intake}).
+ *
+ * Not part of the test suite. After {@code mvn test-compile}, run {@link #main}
+ * from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main OrderIntakeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class OrderIntakeBenchmark {
+
+    private static final long COMMIT_MICROS = 1000;
+    private static final int VARIANTS = 4;
+
+    private final AtomicLong userIds = new AtomicLong();
+    private final AtomicLong orderIds = new AtomicLong();
+    // Row locks by variant id, and the ones the current thread's transaction holds
+    private final Map<Long, ReentrantLock> rowLocks = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<ReentrantLock>> heldLocks = ThreadLocal.withInitial(ArrayList::new);
+    private ProductVariantRepository variants;
+    private OrderService orderService;
+    private TransactionTemplate tx;
+    private OrderIntakeService intake;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        // Each buyer has one unit of one of the hot SKUs
+        CartRepository carts = mock(CartRepository.class);
+        when(carts.findCartLinesByUserIds(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Object userId : (Collection<Object>) invocation.getArgument(0)) {
+                rows.add(new Object[] { userId, (Long) userId % VARIANTS, 1 });
+            }
+            return rows;
+        });
+        variants = mock(ProductVariantRepository.class);
+        when(variants.lockByIds(anyCollection())).thenAnswer(invocation -> {
+            List<ProductVariant> locked = new ArrayList<>();
+            for (Object id : new TreeSet<>((Collection<Object>) invocation.getArgument(0))) {
+                ReentrantLock rowLock = rowLocks.computeIfAbsent((Long) id, key -> new ReentrantLock());
+                rowLock.lock();
+                heldLocks.get().add(rowLock);
+                ProductVariant variant = new ProductVariant();
+                variant.setId((Long) id);
+                variant.setQuantity(Integer.MAX_VALUE);
+                locked.add(variant);
+            }
+            return locked;
+        });
+        UserRepository users = mock(UserRepository.class);
+        when(users.findById(anyLong())).thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0))));
+
+        orderService = mock(OrderService.class);
+        when(orderService.placeOrder(any(User.class), any(OrderRequest.class))).thenAnswer(invocation -> {
+            OrderResponseDTO order = new OrderResponseDTO();
+            order.setId(orderIds.incrementAndGet());
+            return order;
+        });
+
+        IdempotencyService idempotency = mock(IdempotencyService.class);
+        when(idempotency.execute(isNull(), anyLong(), anyString(), any(), eq(OrderIntakeStatusDTO.class), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(5)).get());
+
+        PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doAnswer(invocation -> {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(COMMIT_MICROS));
+            releaseRowLocks();
+            return null;
+        }).when(transactions).commit(any());
+        doAnswer(invocation -> {
+            releaseRowLocks();
+            return null;
+        }).when(transactions).rollback(any());
+        tx = new TransactionTemplate(transactions);
+
+        intake = new OrderIntakeService();
+        ReflectionTestUtils.setField(intake, "orderService", orderService);
+        ReflectionTestUtils.setField(intake, "cartRepository", carts);
+        ReflectionTestUtils.setField(intake, "productVariantRepository", variants);
+        ReflectionTestUtils.setField(intake, "userRepository", users);
+        ReflectionTestUtils.setField(intake, "transactionManager", transactions);
+        ReflectionTestUtils.setField(intake, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(intake, "idempotencyService", idempotency);
+        ReflectionTestUtils.setField(intake, "enabled", true);
+        ReflectionTestUtils.setField(intake, "shardCount", 4);
+        ReflectionTestUtils.setField(intake, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(intake, "batchSize", 25);
+        ReflectionTestUtils.setField(intake, "lingerMs", 5L);
+        ReflectionTestUtils.setField(intake, "ticketTtlSeconds", 600L);
+        ReflectionTestUtils.setField(intake, "drainTimeoutMs", 30_000L);
+        intake.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        intake.stop();
+    }
+
+    /** One transaction per order on the caller's thread, locking its variant like placeOrder does. */
+    @Benchmark
+    public OrderResponseDTO synchronous() {
+        Long userId = userIds.incrementAndGet();
+        return tx.execute(status -> {
+            variants.lockByIds(List.of(userId % VARIANTS));
+            return orderService.placeOrder(user(userId), new OrderRequest());
+        });
+    }
+
+    /** Queue the checkout and wait for its ticket, as a long-polling client does. */
+    @Benchmark
+    public OrderIntakeStatusDTO intake() throws Exception {
+        Long userId = userIds.incrementAndGet();
+        OrderIntakeStatusDTO queued = intake.submit(user(userId), new OrderRequest(), null);
+        return intake.awaitStatus(queued.getTicketId(), userId).orElseThrow().get(1, TimeUnit.MINUTES);
+    }
+
+    private void releaseRowLocks() {
+        heldLocks.get().forEach(ReentrantLock::unlock);
+        heldLocks.get().clear();
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderIntakeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.service.QRCodeService;
+import com.util.QrImageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payment QR rendering: the previous BufferedImage/ImageIO path against the
+ * direct PNG and SVG encoders, and a cache hit.
+ *
+ * Not part of the test suite. After {@code mvn test-compile}, run {@link #main}
+ * from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main QRCodeRenderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QRCodeRenderBenchmark {
+
+    private static final String PAYLOAD = "upi://pay?pa=9834963244@upi&pn=SnapCart&am=1499.00&cu=INR&tn=Order%20102938";
+    private static final int SIZE = 300;
+
+    private Map<EncodeHintType, Object> hints;
+    private BitMatrix matrix;
+    private QRCodeService cachedService;
+
+    @Setup
+    public void setUp() throws WriterException {
+        hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
+        hints.put(EncodeHintType.MARGIN, 1);
+        matrix = new MultiFormatWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, SIZE, SIZE, hints);
+
+        cachedService = new QRCodeService(16);
+        cachedService.render(PAYLOAD, SIZE, QRCodeService.Format.PNG);
+    }
+
+    /** Encode + BufferedImage + ImageIO, as before. */
+    @Benchmark
+    public byte[] bufferedImagePng() throws WriterException, IOException {
+        BitMatrix m = new MultiFormatWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, SIZE, SIZE, hints);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(m, "PNG", out);
+        return out.toByteArray();
+    }
+
+    /** Encode + direct 1-bit PNG. */
+    @Benchmark
+    public byte[] directPng() throws WriterException {
+        return QrImageEncoder.toPng(
+                new MultiFormatWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, SIZE, SIZE, hints));
+    }
+
+    /** Encode (unscaled) + SVG path. */
+    @Benchmark
+    public byte[] svg() throws WriterException {
+        return QrImageEncoder.toSvg(new MultiFormatWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, 0, 0, hints),
+                SIZE);
+    }
+
+    /** Image writing only, same matrix: ImageIO. */
+    @Benchmark
+    public byte[] imageIoWriteOnly() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(matrix, "PNG", out);
+        return out.toByteArray();
+    }
+
+    /** Image writing only, same matrix: direct encoder. */
+    @Benchmark
+    public byte[] directPngWriteOnly() {
+        return QrImageEncoder.toPng(matrix);
+    }
+
+    /** Repeated request for the same payment QR. */
+    @Benchmark
+    public byte[] cacheHit() throws WriterException {
+        return cachedService.render(PAYLOAD, SIZE, QRCodeService.Format.PNG);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QRCodeRenderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
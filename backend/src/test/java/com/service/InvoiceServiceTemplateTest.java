@@ -0,0 +1,86 @@
+package com.service;
+
+import com.entity.Order;
+import com.entity.OrderItem;
+import com.entity.Product;
+import com.entity.ProductVariant;
+import com.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The template renderer stamps into fixed boxes: an order that fits is
+ * rendered, and one with text that would overflow a box is refused without
+ * writing anything, so the caller can fall back to the flowing layout.
+ */
+class InvoiceServiceTemplateTest {
+
+    private final InvoiceService invoiceService = new InvoiceService(1);
+
+    @Test
+    void rendersOrderThatFits() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertTrue(invoiceService.generateInvoiceFromTemplate(order(), out));
+        assertTrue(new String(out.toByteArray(), 0, 5, StandardCharsets.ISO_8859_1).startsWith("%PDF"));
+    }
+
+    @Test
+    void refusesLongPaymentReference() {
+        Order order = order();
+        order.setPaymentReference("pay_" + "9".repeat(80));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertFalse(invoiceService.generateInvoiceFromTemplate(order, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void refusesAddressTallerThanItsBox() {
+        Order order = order();
+        order.setShippingAddress("Flat 12, Tower B, Some Residency, Near the Big Market, Outer Ring Road, "
+                .repeat(6) + "Bengaluru 560100");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertFalse(invoiceService.generateInvoiceFromTemplate(order, out));
+        assertEquals(0, out.size());
+    }
+
+    private static Order order() {
+        User user = new User();
+        user.setId(1L);
+        user.setName("Asha Rao");
+
+        Product product = new Product();
+        product.setName("Running Shoe");
+        ProductVariant variant = new ProductVariant();
+        variant.setId(1L);
+        variant.setProduct(product);
+        variant.setColor("Blue");
+        variant.setSize("9");
+
+        Order order = new Order();
+        order.setId(42L);
+        order.setUser(user);
+        order.setShippingAddress("12 MG Road, Bengaluru, Karnataka 560001");
+        order.setOrderDate(LocalDateTime.of(2026, 3, 1, 10, 30));
+        order.setTotalAmount(2499.0);
+        order.setPaymentReference("pay_N5x8Qk2LmA");
+        order.setPaymentMethod("upi");
+
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setVariant(variant);
+        item.setQuantity(1);
+        item.setPrice(2499.0);
+        order.getItems().add(item);
+        return order;
+    }
+}
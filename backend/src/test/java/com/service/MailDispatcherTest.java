@@ -0,0 +1,132 @@
+package com.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the dispatcher against an in-process GreenMail SMTP server: messages
+ * share connections, the rate limit holds, and mail queued while the server
+ * is down is delivered once it comes back.
+ */
+class MailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication())
+            .withPerMethodLifecycle(true);
+
+    private MailDispatcher dispatcher;
+    private JavaMailSenderImpl sender;
+
+    @AfterEach
+    void stopDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void sendsManyMessagesOverFewConnections() throws Exception {
+        start(ServerSetupTest.SMTP.getPort(), 1000);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(dispatcher.submit(message("user" + i + "@test.local", "Order " + i)));
+        }
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 50));
+        Set<String> subjects = Arrays.stream(greenMail.getReceivedMessages()).map(this::subject)
+                .collect(Collectors.toSet());
+        assertEquals(50, subjects.size());
+        // One long-lived connection per sender thread, not one per message
+        assertTrue(dispatcher.connectionsOpened() <= 2, "connections: " + dispatcher.connectionsOpened());
+    }
+
+    @Test
+    void respectsRateLimit() throws Exception {
+        start(ServerSetupTest.SMTP.getPort(), 20);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            dispatcher.submit(message("rate" + i + "@test.local", "Rate " + i));
+        }
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 11));
+
+        // 11 messages at 20/s need at least 10 intervals of 50 ms
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(elapsedMs >= 450, "elapsed: " + elapsedMs);
+    }
+
+    @Test
+    void retriesUntilServerIsBack() throws Exception {
+        int port = ServerSetupTest.SMTP.getPort() + 100;
+        start(port, 1000);
+        dispatcher.submit(message("late@test.local", "Delayed"));
+
+        Thread.sleep(300);
+        assertEquals(0, dispatcher.connectionsOpened());
+
+        GreenMail lateServer = new GreenMail(new ServerSetup(port, null, ServerSetup.PROTOCOL_SMTP));
+        lateServer.start();
+        try {
+            assertTrue(lateServer.waitForIncomingEmail(10_000, 1));
+            assertEquals("Delayed", lateServer.getReceivedMessages()[0].getSubject());
+        } finally {
+            lateServer.stop();
+        }
+    }
+
+    private void start(int port, double ratePerSecond) {
+        sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+
+        dispatcher = new MailDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "mailSender", sender);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "senders", 2);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 100);
+        ReflectionTestUtils.setField(dispatcher, "enqueueTimeoutMs", 100L);
+        ReflectionTestUtils.setField(dispatcher, "maxPerConnection", 100);
+        ReflectionTestUtils.setField(dispatcher, "idleCloseMs", 5000L);
+        ReflectionTestUtils.setField(dispatcher, "ratePerSecond", ratePerSecond);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 10);
+        ReflectionTestUtils.setField(dispatcher, "retryBackoffMs", 100L);
+        dispatcher.start();
+    }
+
+    private MimeMessage message(String to, String subject) throws Exception {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setFrom("noreply@snapcart.test");
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText("<p>" + subject + "</p>", true);
+        return message;
+    }
+
+    private String subject(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
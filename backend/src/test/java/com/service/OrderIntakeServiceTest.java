@@ -0,0 +1,230 @@
+package com.service;
+
+import com.dto.OrderIntakeStatusDTO;
+import com.dto.OrderResponseDTO;
+import com.entity.ProductVariant;
+import com.entity.User;
+import com.exception.ServiceBusyException;
+import com.payload.request.OrderRequest;
+import com.repository.CartRepository;
+import com.repository.ProductVariantRepository;
+import com.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the intake queue from many threads against an in-memory stand-in for
+ * the database (one SKU with limited stock): every ticket resolves, no more
+ * orders are placed than there is stock, and shutdown places or fails what is
+ * still queued instead of leaving tickets QUEUED.
+ */
+class OrderIntakeServiceTest {
+
+    private static final long VARIANT_ID = 7L;
+    private static final int THREADS = 16;
+
+    private final AtomicInteger stock = new AtomicInteger();
+    private final AtomicLong orderIds = new AtomicLong();
+    private final Map<String, Long> ticketOwners = new ConcurrentHashMap<>();
+    private volatile long placeDelayMs;
+    private OrderIntakeService intake;
+
+    @AfterEach
+    void stopIntake() {
+        if (intake != null) {
+            intake.stop();
+        }
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        start(120, 30_000);
+
+        List<String> tickets = submitConcurrently(200);
+
+        List<OrderIntakeStatusDTO> results = awaitAll(tickets);
+        long placed = results.stream().filter(r -> "PLACED".equals(r.getStatus())).count();
+        long failed = results.stream().filter(r -> "FAILED".equals(r.getStatus())).count();
+        assertEquals(120, placed);
+        assertEquals(80, failed);
+        assertEquals(0, stock.get());
+        assertEquals(120, orderIds.get());
+    }
+
+    @Test
+    void stopPlacesQueuedOrdersBeforeReturning() throws Exception {
+        placeDelayMs = 2;
+        start(1000, 30_000);
+
+        List<String> tickets = submitConcurrently(100);
+        intake.stop();
+
+        for (String ticketId : tickets) {
+            OrderIntakeStatusDTO status = intake.getStatus(ticketId, userIdOf(ticketId)).orElseThrow();
+            assertEquals("PLACED", status.getStatus(), ticketId);
+        }
+        assertEquals(100, orderIds.get());
+    }
+
+    @Test
+    void stopFailsWhatCannotBeDrainedInTime() throws Exception {
+        placeDelayMs = 20;
+        start(1000, 50);
+
+        List<String> tickets = submitConcurrently(100);
+        intake.stop();
+
+        // The batch a writer is in the middle of still completes; nothing stays QUEUED
+        List<OrderIntakeStatusDTO> results = awaitAll(tickets);
+        assertTrue(results.stream().noneMatch(r -> "QUEUED".equals(r.getStatus())));
+        assertTrue(results.stream().anyMatch(r -> r.getError() != null && r.getError().contains("shut down")));
+        assertThrows(ServiceBusyException.class, () -> intake.submit(user(1L), new OrderRequest(), null));
+    }
+
+    // ==================== FIXTURE ====================
+
+    private List<String> submitConcurrently(int requests) throws Exception {
+        ConcurrentLinkedQueue<String> tickets = new ConcurrentLinkedQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    int i;
+                    while ((i = next.incrementAndGet()) <= requests) {
+                        long userId = i;
+                        String ticketId = intake.submit(user(userId), new OrderRequest(), null).getTicketId();
+                        ticketOwners.put(ticketId, userId);
+                        tickets.add(ticketId);
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new ArrayList<>(tickets);
+    }
+
+    private List<OrderIntakeStatusDTO> awaitAll(List<String> tickets) throws Exception {
+        List<OrderIntakeStatusDTO> results = new ArrayList<>();
+        for (String ticketId : tickets) {
+            results.add(intake.awaitStatus(ticketId, userIdOf(ticketId)).orElseThrow().get(1, TimeUnit.MINUTES));
+        }
+        return results;
+    }
+
+    private Long userIdOf(String ticketId) {
+        return ticketOwners.get(ticketId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(int initialStock, long drainTimeoutMs) {
+        stock.set(initialStock);
+
+        // Every buyer has one unit of the same SKU in the cart
+        CartRepository carts = mock(CartRepository.class);
+        when(carts.findCartLinesByUserIds(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Object userId : (Collection<Object>) invocation.getArgument(0)) {
+                rows.add(new Object[] { userId, VARIANT_ID, 1 });
+            }
+            return rows;
+        });
+
+        // The locking read sees the stock left by previous batches
+        ProductVariantRepository variants = mock(ProductVariantRepository.class);
+        when(variants.lockByIds(anyCollection())).thenAnswer(invocation -> {
+            ProductVariant variant = new ProductVariant();
+            variant.setId(VARIANT_ID);
+            variant.setQuantity(stock.get());
+            return List.of(variant);
+        });
+
+        UserRepository users = mock(UserRepository.class);
+        when(users.findById(anyLong())).thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0))));
+
+        OrderService orders = mock(OrderService.class);
+        when(orders.placeOrder(any(User.class), any(OrderRequest.class))).thenAnswer(invocation -> {
+            if (placeDelayMs > 0) {
+                Thread.sleep(placeDelayMs);
+            }
+            if (stock.decrementAndGet() < 0) {
+                stock.incrementAndGet();
+                throw new RuntimeException("Insufficient stock");
+            }
+            OrderResponseDTO order = new OrderResponseDTO();
+            order.setId(orderIds.incrementAndGet());
+            return order;
+        });
+
+        IdempotencyService idempotency = mock(IdempotencyService.class);
+        when(idempotency.execute(isNull(), anyLong(), anyString(), any(), eq(OrderIntakeStatusDTO.class), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(5)).get());
+
+        PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        intake = new OrderIntakeService();
+        ReflectionTestUtils.setField(intake, "orderService", orders);
+        ReflectionTestUtils.setField(intake, "cartRepository", carts);
+        ReflectionTestUtils.setField(intake, "productVariantRepository", variants);
+        ReflectionTestUtils.setField(intake, "userRepository", users);
+        ReflectionTestUtils.setField(intake, "transactionManager", transactions);
+        ReflectionTestUtils.setField(intake, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(intake, "idempotencyService", idempotency);
+        ReflectionTestUtils.setField(intake, "enabled", true);
+        ReflectionTestUtils.setField(intake, "shardCount", 4);
+        ReflectionTestUtils.setField(intake, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(intake, "batchSize", 25);
+        ReflectionTestUtils.setField(intake, "lingerMs", 5L);
+        ReflectionTestUtils.setField(intake, "ticketTtlSeconds", 600L);
+        ReflectionTestUtils.setField(intake, "drainTimeoutMs", drainTimeoutMs);
+        intake.start();
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,139 @@
+package com.service;
+
+import com.entity.Role;
+import com.entity.Transaction;
+import com.entity.User;
+import com.repository.TransactionRepository;
+import com.repository.UserRepository;
+import com.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers one wallet from many threads: no credit or debit may be lost, the
+ * balance may never go negative, and the ledger must have one entry per
+ * successful operation with gap-free sequence numbers.
+ */
+@SpringBootTest
+class WalletServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletSnapshotService walletSnapshotService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = new User();
+        user.setName("Wallet Test");
+        user.setEmail("wallet-" + UUID.randomUUID().toString().substring(0, 8) + "@test.local");
+        user.setRole(Role.SUPER_ADMIN);
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        walletRepository.findByUserId(user.getId()).ifPresent(wallet -> {
+            transactionRepository.deleteAll(transactionRepository.findByWalletIdOrderBySequenceNoAsc(wallet.getId()));
+            walletRepository.delete(wallet);
+        });
+        userRepository.delete(user);
+    }
+
+    @Test
+    void concurrentCreditsAreNotLost() throws Exception {
+        runConcurrently(i -> walletService.creditWallet(user, 1.0, Transaction.TransactionSource.COMMISSION,
+                "T" + i, "concurrency test"));
+
+        int expected = THREADS * OPERATIONS_PER_THREAD;
+        assertEquals(expected, walletService.getBalance(user), 0.0001);
+        assertLedgerIsContiguous(expected);
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        int funded = THREADS * OPERATIONS_PER_THREAD / 2;
+        walletService.creditWallet(user, (double) funded, Transaction.TransactionSource.ADJUSTMENT, "seed", "seed");
+
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(i -> {
+            try {
+                walletService.debitWallet(user, 1.0, Transaction.TransactionSource.PAYOUT, "D" + i,
+                        "concurrency test");
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        // Exactly the funded amount can be debited, the rest must be refused
+        assertEquals(0.0, walletService.getBalance(user), 0.0001);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD - funded, rejected.get());
+        assertLedgerIsContiguous(1 + funded);
+    }
+
+    private void assertLedgerIsContiguous(int entries) {
+        Long walletId = walletRepository.findIdByUserId(user.getId()).orElseThrow();
+        List<Transaction> ledger = transactionRepository.findByWalletIdOrderBySequenceNoAsc(walletId);
+
+        assertEquals(entries, ledger.size());
+        for (int i = 0; i < ledger.size(); i++) {
+            assertEquals(i + 1, ledger.get(i).getSequenceNo());
+            assertTrue(ledger.get(i).getBalanceAfter() >= 0);
+        }
+        assertEquals(walletService.getBalance(user), walletSnapshotService.derivedBalance(walletId), 0.0001);
+    }
+
+    private void runConcurrently(java.util.function.IntConsumer operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = IntStream.range(0, THREADS)
+                    .mapToObj(t -> pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            operation.accept(t * OPERATIONS_PER_THREAD + i);
+                        }
+                        return null;
+                    }))
+                    .<Future<?>>map(f -> f)
+                    .toList();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The hand-written PNG must be a valid image that ZXing reads back to the
+ * same payload, and the SVG path must cover exactly the set modules, at
+ * every size (including widths that are not a multiple of 8).
+ */
+class QrImageEncoderTest {
+
+    private static final String PAYLOAD = "upi://pay?pa=shop@upi&pn=Shop&am=2499.00&cu=INR&tn=Order%2042";
+    private static final Map<EncodeHintType, Object> HINTS = new EnumMap<>(EncodeHintType.class);
+
+    static {
+        // As QRCodeService encodes
+        HINTS.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
+        HINTS.put(EncodeHintType.MARGIN, 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 150, 203, 400 })
+    void pngDecodesToPayload(int size) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, size, size, HINTS);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(QrImageEncoder.toPng(matrix)));
+
+        assertNotNull(image);
+        assertEquals(matrix.getWidth(), image.getWidth());
+        assertEquals(matrix.getHeight(), image.getHeight());
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                boolean black = (image.getRGB(x, y) & 0xFFFFFF) == 0;
+                assertEquals(matrix.get(x, y), black, "pixel " + x + "," + y);
+            }
+        }
+        if (size > 0) {
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+            assertEquals(PAYLOAD, new QRCodeReader().decode(bitmap).getText());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 64, 200, 512 })
+    void svgPathCoversExactlyTheSetModules(int size) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, 0, 0, HINTS);
+
+        byte[] svg = QrImageEncoder.toSvg(matrix, size);
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(svg));
+        Element root = document.getDocumentElement();
+        assertEquals("svg", root.getLocalName());
+        assertEquals("http://www.w3.org/2000/svg", root.getNamespaceURI());
+        assertEquals(String.valueOf(size), root.getAttribute("width"));
+        assertEquals(String.valueOf(size), root.getAttribute("height"));
+        assertEquals("0 0 " + matrix.getWidth() + " " + matrix.getHeight(), root.getAttribute("viewBox"));
+
+        Element path = (Element) root.getElementsByTagNameNS("http://www.w3.org/2000/svg", "path").item(0);
+        assertNotNull(path);
+        boolean[][] painted = new boolean[matrix.getHeight()][matrix.getWidth()];
+        Matcher run = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-(\\d+)z").matcher(path.getAttribute("d"));
+        int end = 0;
+        while (run.find()) {
+            assertEquals(end, run.start(), "unexpected path data");
+            end = run.end();
+            int x = Integer.parseInt(run.group(1));
+            int y = Integer.parseInt(run.group(2));
+            int length = Integer.parseInt(run.group(3));
+            assertEquals(length, Integer.parseInt(run.group(4)));
+            for (int i = x; i < x + length; i++) {
+                assertFalse(painted[y][i], "module painted twice " + i + "," + y);
+                painted[y][i] = true;
+            }
+        }
+        assertEquals(path.getAttribute("d").length(), end);
+        assertTrue(end > 0);
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                assertEquals(matrix.get(x, y), painted[y][x], "module " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exact counts below capacity, eviction of the smallest entry, and the
+ * Space-Saving bounds on a skewed stream checked against exact counts.
+ */
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileBelowCapacity() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        sketch.add(1, 5);
+        sketch.add(2, 3);
+        sketch.add(1, 2);
+        sketch.add(3, 0);
+
+        assertEquals(2, sketch.size());
+        assertEquals(7, sketch.estimate(1));
+        assertEquals(3, sketch.estimate(2));
+        assertEquals(0, sketch.error(1));
+        assertEquals(0, sketch.estimate(3));
+        assertEquals(10, sketch.total());
+    }
+
+    @Test
+    void newKeyReplacesSmallestAndInheritsItsCount() {
+        SpaceSaving sketch = new SpaceSaving(3);
+        sketch.add(1, 10);
+        sketch.add(2, 2);
+        sketch.add(3, 6);
+
+        sketch.add(4, 1);
+
+        assertEquals(3, sketch.size());
+        assertEquals(0, sketch.estimate(2));
+        assertEquals(3, sketch.estimate(4));
+        assertEquals(2, sketch.error(4));
+        assertEquals(10, sketch.estimate(1));
+        assertEquals(19, sketch.total());
+
+        // Key 4 is now the smallest and is the next to go
+        sketch.add(5, 1);
+        assertEquals(0, sketch.estimate(4));
+        assertEquals(4, sketch.estimate(5));
+        assertEquals(3, sketch.error(5));
+    }
+
+    @Test
+    void boundsHoldOnSkewedStream() {
+        int capacity = 20;
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            // Roughly Zipfian over 1000 keys: a few keys carry most of the weight
+            long key = (long) Math.floor(Math.pow(1000, random.nextDouble()));
+            long weight = 1 + random.nextInt(3);
+            sketch.add(key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, sketch.total());
+        assertEquals(capacity, sketch.size());
+
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            long key = entry.getKey();
+            long count = entry.getValue();
+            long estimate = sketch.estimate(key);
+            if (estimate > 0) {
+                // Never under-counts, and over-counts by at most the error, which is at most total / capacity
+                assertTrue(estimate >= count, "key " + key);
+                assertTrue(estimate - sketch.error(key) <= count, "key " + key);
+                assertTrue(sketch.error(key) <= total / capacity, "key " + key);
+            }
+            if (count > total / capacity) {
+                assertTrue(estimate > 0, "heavy key " + key + " is not tracked");
+            }
+        }
+    }
+
+    @Test
+    void subtractTakesBackTrackedWeightOnly() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.add(1, 10);
+        sketch.add(2, 4);
+        sketch.add(3, 1);
+
+        // Key 2 was evicted; its weight is part of key 3's error and stays there
+        sketch.subtract(2, 4);
+        assertEquals(5, sketch.estimate(3));
+        assertEquals(11, sketch.total());
+
+        sketch.subtract(1, 8);
+        assertEquals(2, sketch.estimate(1));
+        assertEquals(3, sketch.total());
+
+        // Key 1 is now the smallest, so it is the one a new key replaces
+        sketch.add(4, 1);
+        assertEquals(0, sketch.estimate(1));
+        assertEquals(3, sketch.estimate(4));
+        assertEquals(5, sketch.estimate(3));
+    }
+}